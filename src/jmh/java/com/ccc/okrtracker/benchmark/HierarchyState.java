@@ -0,0 +1,38 @@
+package com.ccc.okrtracker.benchmark;
+
+import com.ccc.okrtracker.entity.Project;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Shared benchmark parameters: the shape of the synthetic hierarchy.
+ * Override from the command line, e.g. -p shape=10x5x5x4x8 -p inactiveRatio=0.2
+ */
+@State(Scope.Benchmark)
+public abstract class HierarchyState {
+
+    // Fan-out per level: initiatives, goals, objectives, KRs, action items per KR
+    @Param({"3x3x3x3x3", "5x5x5x5x5"})
+    public String shape;
+
+    @Param({"0.1"})
+    public double manualKrRatio;
+
+    @Param({"0.3"})
+    public double metricKrRatio;
+
+    @Param({"0.05"})
+    public double inactiveRatio;
+
+    @Param({"42"})
+    public long seed;
+
+    protected Project project;
+
+    @Setup
+    public void buildHierarchy() {
+        project = SyntheticHierarchy.build(shape, manualKrRatio, metricKrRatio, inactiveRatio, seed);
+    }
+}
@@ -0,0 +1,215 @@
+package com.ccc.okrtracker.benchmark;
+
+import com.ccc.okrtracker.entity.*;
+import com.ccc.okrtracker.repository.HierarchySnapshot;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds synthetic, detached project hierarchies for the benchmarks.
+ * The shape is given as the fan-out per level: initiatives per project, goals per initiative,
+ * objectives per goal, KRs per objective and action items per KR. KRs are split into
+ * manual, metric-driven (no action items) and action-item-driven ones; any node below the
+ * project is inactive with the given probability. Generation is seeded, so a shape always
+ * produces the same tree. IDs are assigned level by level in ascending order, the same as
+ * a database would return them ordered by id.
+ */
+public final class SyntheticHierarchy {
+
+    private final int[] fanOut;
+    private final double manualKrRatio;
+    private final double metricKrRatio;
+    private final double inactiveRatio;
+    private final Random random;
+
+    private long nextId = 1;
+
+    private SyntheticHierarchy(int[] fanOut, double manualKrRatio, double metricKrRatio, double inactiveRatio, long seed) {
+        if (fanOut.length != 5) {
+            throw new IllegalArgumentException("Shape needs 5 fan-outs (initiatives,goals,objectives,krs,actionItems): "
+                    + Arrays.toString(fanOut));
+        }
+        if (manualKrRatio + metricKrRatio > 1.0) {
+            throw new IllegalArgumentException("manualKrRatio + metricKrRatio must not exceed 1");
+        }
+        this.fanOut = fanOut;
+        this.manualKrRatio = manualKrRatio;
+        this.metricKrRatio = metricKrRatio;
+        this.inactiveRatio = inactiveRatio;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @param shape Fan-outs separated by "x", e.g. "3x4x4x3x5" (JMH splits parameter values on commas)
+     */
+    public static Project build(String shape, double manualKrRatio, double metricKrRatio, double inactiveRatio, long seed) {
+        int[] fanOut = Arrays.stream(shape.split("x")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        return new SyntheticHierarchy(fanOut, manualKrRatio, metricKrRatio, inactiveRatio, seed).build();
+    }
+
+    private Project build() {
+        Project project = new Project("Benchmark project", "Synthetic hierarchy", 0, new ArrayList<>());
+        project.setId(nextId++);
+
+        List<StrategicInitiative> initiatives = new ArrayList<>();
+        for (int i = 0; i < fanOut[0]; i++) {
+            StrategicInitiative init = new StrategicInitiative();
+            init.setProject(project);
+            initNode(init, "Initiative " + i);
+            project.getInitiatives().add(init);
+            initiatives.add(init);
+        }
+
+        List<Goal> goals = new ArrayList<>();
+        for (StrategicInitiative init : initiatives) {
+            for (int i = 0; i < fanOut[1]; i++) {
+                Goal goal = new Goal();
+                goal.setInitiative(init);
+                initNode(goal, "Goal " + i);
+                init.getGoals().add(goal);
+                goals.add(goal);
+            }
+        }
+
+        List<Objective> objectives = new ArrayList<>();
+        for (Goal goal : goals) {
+            for (int i = 0; i < fanOut[2]; i++) {
+                Objective obj = new Objective();
+                obj.setGoal(goal);
+                initNode(obj, "Objective " + i);
+                obj.setYear(2024);
+                obj.setQuarter("Q" + (1 + i % 4));
+                obj.setDueDate(LocalDate.of(2024, 12, 31));
+                goal.getObjectives().add(obj);
+                objectives.add(obj);
+            }
+        }
+
+        List<KeyResult> keyResults = new ArrayList<>();
+        for (Objective obj : objectives) {
+            for (int i = 0; i < fanOut[3]; i++) {
+                KeyResult kr = new KeyResult();
+                kr.setObjective(obj);
+                initNode(kr, "Key result " + i);
+                kr.setAssignee("user" + random.nextInt(50));
+                kr.setProgress(random.nextInt(101));
+                double kind = random.nextDouble();
+                if (kind < manualKrRatio) {
+                    kr.setManualProgressSet(true);
+                } else if (kind < manualKrRatio + metricKrRatio) {
+                    kr.setMetricStart(0.0);
+                    kr.setMetricTarget(100.0 + random.nextInt(900));
+                    kr.setMetricCurrent(random.nextDouble() * kr.getMetricTarget());
+                    kr.setUnit("$");
+                }
+                obj.getKeyResults().add(kr);
+                keyResults.add(kr);
+            }
+        }
+
+        for (KeyResult kr : keyResults) {
+            if (kr.getManualProgressSet() || kr.getMetricTarget() != null) {
+                continue;
+            }
+            for (int i = 0; i < fanOut[4]; i++) {
+                ActionItem ai = new ActionItem();
+                ai.setKeyResult(kr);
+                initNode(ai, "Action item " + i);
+                boolean completed = random.nextBoolean();
+                ai.setIsCompleted(completed);
+                ai.setProgress(completed ? 100 : 0);
+                ai.setAssignee(kr.getAssignee());
+                ai.setDueDate(LocalDate.of(2024, 1 + random.nextInt(12), 1));
+                kr.getActionItems().add(ai);
+            }
+        }
+
+        return project;
+    }
+
+    private void initNode(BaseEntity node, String title) {
+        node.setId(nextId++);
+        node.setIsActive(random.nextDouble() >= inactiveRatio);
+        node.setCreatedBy("benchmark");
+        if (node instanceof StrategicInitiative init) {
+            init.setTitle(title);
+        } else if (node instanceof Goal goal) {
+            goal.setTitle(title);
+        } else if (node instanceof Objective obj) {
+            obj.setTitle(title);
+        } else if (node instanceof KeyResult kr) {
+            kr.setTitle(title);
+        } else if (node instanceof ActionItem ai) {
+            ai.setTitle(title);
+        }
+    }
+
+    /**
+     * Converts a hierarchy into the primitive snapshot used by the SNAPSHOT rollup engine,
+     * adding nodes level by level the same way HierarchySnapshotRepository loads them.
+     */
+    public static HierarchySnapshot toSnapshot(Project project) {
+        HierarchySnapshot.Builder builder = HierarchySnapshot.builder();
+        Map<Object, Integer> slots = new IdentityHashMap<>();
+        slots.put(project, builder.add(HierarchySnapshot.PROJECT, project.getId(), -1, project.getIsActive(),
+                project.getProgress()));
+
+        List<StrategicInitiative> initiatives = project.getInitiatives();
+        for (StrategicInitiative init : initiatives) {
+            slots.put(init, builder.add(HierarchySnapshot.INITIATIVE, init.getId(), slots.get(project),
+                    init.getIsActive(), init.getProgress()));
+        }
+        List<Goal> goals = initiatives.stream().flatMap(i -> i.getGoals().stream()).toList();
+        for (Goal goal : goals) {
+            slots.put(goal, builder.add(HierarchySnapshot.GOAL, goal.getId(), slots.get(goal.getInitiative()),
+                    goal.getIsActive(), goal.getProgress()));
+        }
+        List<Objective> objectives = goals.stream().flatMap(g -> g.getObjectives().stream()).toList();
+        for (Objective obj : objectives) {
+            slots.put(obj, builder.add(HierarchySnapshot.OBJECTIVE, obj.getId(), slots.get(obj.getGoal()),
+                    obj.getIsActive(), obj.getProgress()));
+        }
+        List<KeyResult> keyResults = objectives.stream().flatMap(o -> o.getKeyResults().stream()).toList();
+        for (KeyResult kr : keyResults) {
+            slots.put(kr, builder.add(HierarchySnapshot.KEY_RESULT, kr.getId(), slots.get(kr.getObjective()),
+                    kr.getIsActive(), kr.getProgress(), kr.getManualProgressSet(),
+                    orNaN(kr.getMetricStart()), orNaN(kr.getMetricTarget()), orNaN(kr.getMetricCurrent())));
+        }
+        for (KeyResult kr : keyResults) {
+            for (ActionItem ai : kr.getActionItems()) {
+                builder.add(HierarchySnapshot.ACTION_ITEM, ai.getId(), slots.get(kr), ai.getIsActive(), ai.getProgress());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return The number of nodes in the hierarchy, including the project
+     */
+    public static int countNodes(Project project) {
+        int count = 1;
+        for (StrategicInitiative init : project.getInitiatives()) {
+            count++;
+            for (Goal goal : init.getGoals()) {
+                count++;
+                for (Objective obj : goal.getObjectives()) {
+                    count++;
+                    for (KeyResult kr : obj.getKeyResults()) {
+                        count += 1 + kr.getActionItems().size();
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static double orNaN(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+}
@@ -0,0 +1,104 @@
+package com.ccc.okrtracker.benchmark;
+
+import com.ccc.okrtracker.config.WireFormatConfig;
+import com.ccc.okrtracker.dto.*;
+import com.ccc.okrtracker.entity.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Size and serialization time of the GET /api/hierarchy/projects payload (a ProjectView tree)
+ * in each wire format, optionally gzipped as server.compression does. The payload size of
+ * every combination is printed once per trial ("# Payload: ..."), next to the timings.
+ * Run e.g. ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="WireFormatBenchmark -p shape=5x5x5x5x5"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark extends HierarchyState {
+
+    private static final String[] WORDS = {"increase", "revenue", "customer", "retention", "by", "the", "end",
+            "of", "quarter", "launch", "new", "onboarding", "flow", "reduce", "churn", "and", "improve",
+            "platform", "reliability", "for", "enterprise", "accounts"};
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    // Length of every node's description (the column allows up to 1000 characters)
+    @Param({"0", "1000"})
+    public int descriptionLength;
+
+    private ObjectMapper objectMapper;
+    private ProjectView view;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        objectMapper = switch (format) {
+            case "json" -> builder.build();
+            case "smile" -> builder.factory(WireFormatConfig.smileFactory()).build();
+            case "cbor" -> builder.factory(WireFormatConfig.cborFactory()).build();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+        view = toView(project, new Random(seed));
+        System.out.printf("%n# Payload: %s%s, %d nodes, descriptions of %d chars: %,d bytes%n", format,
+                gzip ? "+gzip" : "", SyntheticHierarchy.countNodes(project), descriptionLength, serialize().length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        if (!gzip) {
+            return objectMapper.writeValueAsBytes(List.of(view));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, List.of(view));
+        }
+        return bytes.toByteArray();
+    }
+
+    private ProjectView toView(Project project, Random random) {
+        return new ProjectView(project.getId(), project.getTitle(), description(random), project.getProgress(),
+                project.getIsActive(), project.getInitiatives().stream().map(init -> new InitiativeView(
+                        init.getId(), init.getTitle(), description(random), init.getProgress(), init.getIsActive(),
+                        init.getGoals().stream().map(goal -> toView(goal, random)).toList())).toList());
+    }
+
+    private GoalView toView(Goal goal, Random random) {
+        return new GoalView(goal.getId(), goal.getTitle(), description(random), goal.getProgress(), goal.getIsActive(),
+                goal.getObjectives().stream().map(obj -> new ObjectiveView(obj.getId(), obj.getTitle(),
+                        description(random), obj.getProgress(), obj.getIsActive(), obj.getAssignee(), obj.getYear(),
+                        obj.getQuarter(), obj.getDueDate(),
+                        obj.getKeyResults().stream().map(kr -> toView(kr, random)).toList())).toList());
+    }
+
+    private KeyResultView toView(KeyResult kr, Random random) {
+        return new KeyResultView(kr.getId(), kr.getTitle(), description(random), kr.getProgress(), kr.getIsActive(),
+                kr.getAssignee(), kr.getMetricStart(), kr.getMetricTarget(), kr.getMetricCurrent(), kr.getUnit(),
+                kr.getManualProgressSet(), kr.getActionItems().stream().map(ai -> new ActionItemView(ai.getId(),
+                        ai.getTitle(), description(random), ai.getProgress(), ai.getIsActive(), ai.getDueDate(),
+                        ai.getAssignee(), ai.getIsCompleted())).toList());
+    }
+
+    // Seeded prose of the configured length, so every format serializes the same text
+    private String description(Random random) {
+        StringBuilder text = new StringBuilder(descriptionLength);
+        while (text.length() < descriptionLength) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return text.substring(0, descriptionLength);
+    }
+}
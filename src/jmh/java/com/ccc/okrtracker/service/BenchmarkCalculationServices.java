@@ -0,0 +1,80 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.entity.Project;
+import com.ccc.okrtracker.repository.*;
+import jakarta.persistence.EntityManager;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * CalculationService instances for benchmarks, wired without Spring or a database.
+ * Spring Data repositories a benchmark must not reach are stubs that fail with the method
+ * called, so a rollup path that starts using one shows up as a clear error; the JDBC
+ * repositories of the other engines get no JdbcTemplate.
+ */
+final class BenchmarkCalculationServices {
+
+    private BenchmarkCalculationServices() {
+    }
+
+    /**
+     * Rolls up the given detached project with the JAVA engine (rollupEngine/rollupMode stay
+     * unset). flush/clear are free, and the rollup lock and the progress listeners are off,
+     * so no transaction is needed.
+     */
+    static CalculationService javaEngine(Project project) {
+        return new CalculationService(
+                new FixedHierarchyLoader(project),
+                unused(KeyResultRepository.class),
+                unused(ObjectiveRepository.class),
+                unused(GoalRepository.class),
+                unused(StrategicInitiativeRepository.class),
+                unused(ActionItemRepository.class),
+                new ProgressRollupSqlRepository(null),
+                new HierarchySnapshotRepository(null),
+                new ProjectRollupLock(null),
+                new ProgressChangePublisher(List.of()),
+                new NoOpProjectVersionService(),
+                ignored(EntityManager.class));
+    }
+
+    // Hands out the synthetic project instead of querying it
+    private static class FixedHierarchyLoader extends HierarchyLoader {
+        private final Project project;
+
+        FixedHierarchyLoader(Project project) {
+            super(null);
+            this.project = project;
+        }
+
+        @Override
+        public Optional<Project> loadProject(Long projectId) {
+            return Optional.of(project);
+        }
+    }
+
+    // Version bumps are a single UPDATE, outside the scope of the benchmarks
+    private static class NoOpProjectVersionService extends ProjectVersionService {
+        NoOpProjectVersionService() {
+            super(null, null, null);
+        }
+
+        @Override
+        public void markChanged(Long projectId) {
+        }
+    }
+
+    // Interface stub failing on every call
+    private static <T> T unused(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, m, args) -> {
+            throw new UnsupportedOperationException(type.getSimpleName() + "." + m.getName() + " is not available in benchmarks");
+        }));
+    }
+
+    // Interface stub answering every call with null
+    private static <T> T ignored(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, m, args) -> null));
+    }
+}
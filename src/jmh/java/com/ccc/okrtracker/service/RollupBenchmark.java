@@ -0,0 +1,45 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.benchmark.HierarchyState;
+import com.ccc.okrtracker.benchmark.SyntheticHierarchy;
+import com.ccc.okrtracker.repository.HierarchySnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the progress rollup algorithm itself, without a database.
+ * - javaEngine: CalculationService.recalculateProject (JAVA engine) over a detached entity graph;
+ *   the hierarchy loader and EntityManager are stubs (see BenchmarkCalculationServices), so flush/clear are free.
+ * - snapshotEngine: the primitive-array rollup used by the SNAPSHOT engine.
+ * After the first invocation the stored values are already rolled up, so this measures the
+ * traversal and decision cost a rollup pays on every edit, not the write-back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RollupBenchmark extends HierarchyState {
+
+    private CalculationService calculationService;
+    private HierarchySnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        calculationService = BenchmarkCalculationServices.javaEngine(project);
+        snapshot = SyntheticHierarchy.toSnapshot(project);
+    }
+
+    @Benchmark
+    public int javaEngine() {
+        calculationService.recalculateProject(project.getId());
+        return project.getProgress();
+    }
+
+    @Benchmark
+    public int snapshotEngine() {
+        CalculationService.rollupSnapshot(snapshot);
+        return snapshot.getProgress()[snapshot.getSize() - 1];
+    }
+}
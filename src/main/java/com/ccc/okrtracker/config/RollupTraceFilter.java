@@ -0,0 +1,63 @@
+package com.ccc.okrtracker.config;
+
+import com.ccc.okrtracker.service.RollupTrace;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * Per-request rollup tracing.
+ * A request sent with "X-Rollup-Trace: true" records the decision path of every rollup it
+ * triggers (see RollupTrace). The trace is logged as a single INFO event and returned in
+ * the X-Rollup-Trace response header. Only traced responses are buffered, so that the
+ * header can still be added after the controller has written the body.
+ * Can be switched off with app.rollup.trace.header-enabled=false.
+ */
+@Component
+@Slf4j
+public class RollupTraceFilter extends OncePerRequestFilter {
+
+    public static final String TRACE_HEADER = "X-Rollup-Trace";
+
+    // Keeps the response header below common proxy limits
+    private static final int MAX_HEADER_LENGTH = 4096;
+
+    @Value("${app.rollup.trace.header-enabled:true}")
+    private boolean headerEnabled;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !headerEnabled || !"true".equalsIgnoreCase(request.getHeader(TRACE_HEADER));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RollupTrace trace = RollupTrace.start();
+        if (trace == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            trace.end();
+            String line = trace.toString();
+            log.info("Rollup trace {} {}: {}", request.getMethod(), request.getRequestURI(), line);
+            wrapper.setHeader(TRACE_HEADER, line.length() > MAX_HEADER_LENGTH
+                    ? line.substring(0, MAX_HEADER_LENGTH) + "..."
+                    : line);
+            wrapper.copyBodyToResponse();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ccc.okrtracker.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.util.List;
+
+/**
+ * Binary encodings of the API responses, chosen by the Accept header:
+ * - application/x-jackson-smile: Smile, with back-references to repeated field names and short
+ *   string values (the "type" of every node, assignees, quarters, units)
+ * - application/cbor: CBOR, with the stringref extension for repeated strings
+ * JSON stays the default. Both mappers are configured like the JSON one (spring.jackson.*).
+ */
+@Configuration
+public class WireFormatConfig {
+
+    public static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    public static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(smileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(cborFactory()).build());
+    }
+
+    public static SmileFactory smileFactory() {
+        return SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+    }
+
+    public static CBORFactory cborFactory() {
+        return CBORFactory.builder()
+                .enable(CBORGenerator.Feature.STRINGREF)
+                .build();
+    }
+
+    /**
+     * The binary type the client asks for, or null for JSON. Only an explicit Smile or CBOR
+     * type counts, so wildcards and browsers keep getting JSON.
+     */
+    public static MediaType binaryType(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return null;
+        }
+        List<MediaType> types;
+        try {
+            types = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        for (MediaType type : types) {
+            if (type.getQualityValue() > 0 && (type.equalsTypeAndSubtype(SMILE) || type.equalsTypeAndSubtype(CBOR))) {
+                return new MediaType(type.getType(), type.getSubtype());
+            }
+        }
+        return null;
+    }
+}
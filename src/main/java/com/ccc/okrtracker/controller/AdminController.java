@@ -1,5 +1,8 @@
 package com.ccc.okrtracker.controller;
 
+import com.ccc.okrtracker.dto.DriftReport;
+import com.ccc.okrtracker.dto.RecalculationStatus;
+import com.ccc.okrtracker.dto.TreeCacheStats;
 import com.ccc.okrtracker.dto.UserDTO;
 import com.ccc.okrtracker.entity.AccessLevel;
 import com.ccc.okrtracker.entity.Project;
@@ -11,6 +14,9 @@ import com.ccc.okrtracker.repository.UserProjectRepository;
 import com.ccc.okrtracker.repository.UserRepository;
 import com.ccc.okrtracker.service.ProjectAccessService;
 import com.ccc.okrtracker.service.HierarchyService;
+import com.ccc.okrtracker.service.ProjectRecalculationService;
+import com.ccc.okrtracker.service.ProjectTreeCache;
+import com.ccc.okrtracker.service.RollupDriftVerifier;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -34,6 +40,9 @@ public class AdminController {
     private final UserProjectRepository userProjectRepo;
     private final ProjectAccessService projectAccessService;
     private final HierarchyService hierarchyService;
+    private final ProjectRecalculationService projectRecalculationService;
+    private final RollupDriftVerifier rollupDriftVerifier;
+    private final ProjectTreeCache projectTreeCache;
 
     // Helper to get current user's email for audit
     private String getCurrentUserEmail() {
@@ -207,4 +216,35 @@ public class AdminController {
     public ResponseEntity<List<Project>> getAllProjectsForAdmin() {
         return ResponseEntity.ok(hierarchyService.getAllProjectsUnfiltered());
     }
-}
\ No newline at end of file
+
+    // --- Progress Maintenance ---
+
+    // Recalculate progress of every project in the background; poll the GET endpoint for progress.
+    // While a run is active, starting again just returns its status.
+    @PostMapping("/recalculate-all")
+    @PreAuthorize("hasAuthority('MANAGE_USERS')")
+    public ResponseEntity<RecalculationStatus> recalculateAllProjects() {
+        return ResponseEntity.accepted().body(projectRecalculationService.startRecalculateAll());
+    }
+
+    @GetMapping("/recalculate-all")
+    @PreAuthorize("hasAuthority('MANAGE_USERS')")
+    public ResponseEntity<RecalculationStatus> getRecalculateAllStatus() {
+        RecalculationStatus status = projectRecalculationService.getStatus();
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    // Hit/miss/eviction counters of the serialized project tree cache
+    @GetMapping("/tree-cache")
+    @PreAuthorize("hasAuthority('MANAGE_USERS')")
+    public ResponseEntity<TreeCacheStats> getTreeCacheStats() {
+        return ResponseEntity.ok(projectTreeCache.getStats());
+    }
+
+    // Drift counts found by the last background verification of stored progress values
+    @GetMapping("/rollup-drift")
+    @PreAuthorize("hasAuthority('MANAGE_USERS')")
+    public ResponseEntity<DriftReport> getRollupDrift() {
+        return ResponseEntity.ok(rollupDriftVerifier.getLastReport());
+    }
+}
@@ -1,13 +1,28 @@
 package com.ccc.okrtracker.controller;
 
+import com.ccc.okrtracker.config.WireFormatConfig;
+import com.ccc.okrtracker.dto.AssignedItemPage;
+import com.ccc.okrtracker.dto.ChangeSet;
+import com.ccc.okrtracker.dto.HierarchyFilter;
+import com.ccc.okrtracker.dto.SearchHit;
+import com.ccc.okrtracker.dto.TreeNode;
 import com.ccc.okrtracker.entity.*;
+import com.ccc.okrtracker.repository.HierarchyLevel;
 import com.ccc.okrtracker.service.HierarchyService;
+import com.ccc.okrtracker.service.HierarchyStreamService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/hierarchy")
@@ -15,13 +30,133 @@ import java.util.List;
 public class HierarchyController {
 
     private final HierarchyService hierarchyService;
+    private final HierarchyStreamService hierarchyStreamService;
 
     // --- GET ---
 
+    /**
+     * The accessible projects' trees. Optional filters (see HierarchyFilter) cut them down to the
+     * matching nodes and their ancestors, e.g. GET /api/hierarchy/projects?year=2025&quarter=Q3
+     * JSON by default; Smile or CBOR with "Accept: application/x-jackson-smile" or "application/cbor".
+     */
     @GetMapping("/projects")
     @PreAuthorize("hasAnyAuthority('VIEW_STRATEGY', 'MANAGE_STRATEGY')")
-    public ResponseEntity<List<Project>> getAllProjects() {
-        return ResponseEntity.ok(hierarchyService.getAllProjects());
+    public ResponseEntity<?> getAllProjects(HierarchyFilter filter, WebRequest request) {
+        MediaType binaryType = WireFormatConfig.binaryType(request.getHeader(HttpHeaders.ACCEPT));
+        // Read before the trees: a change in between makes the ETag older, never newer, than the body
+        Map<Long, Long> versions = hierarchyService.getAccessibleProjectVersions();
+        String variant = variant("projects", binaryType);
+        String etag = filter.isEmpty()
+                ? hierarchyService.getProjectsETag(versions, variant)
+                : hierarchyService.getProjectsETag(versions, variant, filter);
+        if (request.checkNotModified(etag)) {
+            return null; // 304, the hierarchy is not read
+        }
+        if (binaryType != null) {
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .contentType(binaryType)
+                    .body(hierarchyService.getProjectViews(versions.keySet(), filter));
+        }
+        // A JSON array of ProjectView, pre-serialized per project when unfiltered
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(filter.isEmpty()
+                        ? hierarchyService.getProjectsJson(versions)
+                        : hierarchyService.getFilteredProjectsJson(versions.keySet(), filter));
+    }
+
+    /**
+     * Same content as GET /projects, streamed from a database cursor as it is read,
+     * so memory stays flat for any number of projects.
+     */
+    @GetMapping("/projects/stream")
+    @PreAuthorize("hasAnyAuthority('VIEW_STRATEGY', 'MANAGE_STRATEGY')")
+    public ResponseEntity<StreamingResponseBody> streamAllProjects() {
+        // Resolved here: the body is written on another thread, without the security context
+        Set<Long> projectIds = hierarchyService.getAccessibleProjectIds();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> hierarchyStreamService.writeProjects(projectIds, out));
+    }
+
+    /**
+     * Lazily expanded tree: the accessible projects with child counts, plus 'depth' levels below.
+     * Example: GET /api/hierarchy/tree?depth=0 for the initial, collapsed tree.
+     * Like the other GET endpoints returning objects, it is encoded per the Accept header
+     * (JSON, Smile or CBOR, see WireFormatConfig).
+     */
+    @GetMapping("/tree")
+    @PreAuthorize("hasAnyAuthority('VIEW_STRATEGY', 'MANAGE_STRATEGY')")
+    public ResponseEntity<List<TreeNode>> getProjectTree(@RequestParam(defaultValue = "0") int depth,
+                                                         WebRequest request) {
+        MediaType binaryType = WireFormatConfig.binaryType(request.getHeader(HttpHeaders.ACCEPT));
+        String etag = hierarchyService.getProjectsETag(hierarchyService.getAccessibleProjectVersions(),
+                variant("tree:" + depth, binaryType));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(hierarchyService.getProjectTree(depth));
+    }
+
+    /**
+     * One node expanded on demand, e.g. GET /api/hierarchy/tree/goals/12?depth=1
+     */
+    @GetMapping("/tree/{type}/{id}")
+    @PreAuthorize("hasAnyAuthority('VIEW_STRATEGY', 'MANAGE_STRATEGY')")
+    public ResponseEntity<TreeNode> getSubtree(@PathVariable String type, @PathVariable Long id,
+                                               @RequestParam(defaultValue = "1") int depth) {
+        return ResponseEntity.ok(hierarchyService.getSubtree(HierarchyLevel.fromPathSegment(type), id, depth));
+    }
+
+    /**
+     * Delta sync: nodes changed since the cursor of the previous response.
+     * Start with GET /api/hierarchy/changes (no cursor) for the initial cursor, then load the hierarchy.
+     */
+    @GetMapping("/changes")
+    @PreAuthorize("hasAnyAuthority('VIEW_STRATEGY', 'MANAGE_STRATEGY')")
+    public ResponseEntity<ChangeSet> getChanges(@RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(hierarchyService.getChangesSince(cursor));
+    }
+
+    /**
+     * Objectives, key results and action items assigned to the current user, with breadcrumbs,
+     * paged by keyset: pass the response's nextCursor as ?cursor= for the next page.
+     */
+    @GetMapping("/my-work")
+    @PreAuthorize("hasAnyAuthority('VIEW_STRATEGY', 'MANAGE_STRATEGY')")
+    public ResponseEntity<AssignedItemPage> getMyWork(@RequestParam(required = false) String cursor,
+                                                      @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(hierarchyService.getMyWork(cursor, limit));
+    }
+
+    /**
+     * Full-text search over titles and descriptions, e.g. GET /api/hierarchy/search?q=revenue%20gro
+     */
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyAuthority('VIEW_STRATEGY', 'MANAGE_STRATEGY')")
+    public ResponseEntity<List<SearchHit>> search(@RequestParam String q,
+                                                  @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(hierarchyService.search(q, limit));
+    }
+
+    /**
+     * Live changes as server-sent events: "created", "updated", "archived" and "progress"
+     * (see HierarchyEvent), and "resync" when the client fell behind and should catch up
+     * through GET /changes.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyAuthority('VIEW_STRATEGY', 'MANAGE_STRATEGY')")
+    public SseEmitter streamEvents() {
+        return hierarchyService.subscribeToEvents();
+    }
+
+    // Each encoding is its own representation, with its own ETag
+    private static String variant(String variant, MediaType binaryType) {
+        return binaryType != null ? variant + ":" + binaryType.getSubtype() : variant;
     }
 
     // --- POST (Create) ---
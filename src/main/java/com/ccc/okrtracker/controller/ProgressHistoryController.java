@@ -0,0 +1,46 @@
+package com.ccc.okrtracker.controller;
+
+import com.ccc.okrtracker.dto.ProgressHistoryPoint;
+import com.ccc.okrtracker.repository.HierarchyLevel;
+import com.ccc.okrtracker.service.ProgressHistoryService;
+import com.ccc.okrtracker.service.ProgressHistoryService.Bucket;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Progress over time of a single node, downsampled to daily or weekly buckets.
+ * Example: GET /api/history/objectives/42?from=2026-01-01&to=2026-03-31&bucket=WEEK
+ */
+@RestController
+@RequestMapping("/api/history")
+@RequiredArgsConstructor
+public class ProgressHistoryController {
+
+    private static final int DEFAULT_RANGE_DAYS = 90;
+
+    private final ProgressHistoryService historyService;
+
+    /**
+     * @param from First day (inclusive), defaults to 90 days before 'to'
+     * @param to   Last day (inclusive), defaults to today
+     */
+    @GetMapping("/{type}/{id}")
+    @PreAuthorize("hasAnyAuthority('VIEW_STRATEGY', 'MANAGE_STRATEGY')")
+    public ResponseEntity<List<ProgressHistoryPoint>> getHistory(
+            @PathVariable String type,
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "DAY") Bucket bucket) {
+        HierarchyLevel level = HierarchyLevel.fromPathSegment(type);
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_RANGE_DAYS);
+        return ResponseEntity.ok(historyService.getHistory(level, id, start, end, bucket));
+    }
+}
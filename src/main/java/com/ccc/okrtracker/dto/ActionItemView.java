@@ -0,0 +1,17 @@
+package com.ccc.okrtracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+
+/**
+ * Read model of an action item, see {@link ProjectView}.
+ */
+public record ActionItemView(Long id, String title, String description, Integer progress, Boolean isActive,
+                             LocalDate dueDate, String assignee, Boolean isCompleted) {
+
+    @JsonProperty("type")
+    public String type() {
+        return "ActionItem";
+    }
+}
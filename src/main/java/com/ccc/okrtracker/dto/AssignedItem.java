@@ -0,0 +1,41 @@
+package com.ccc.okrtracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * An objective, key result or action item assigned to the current user (GET /api/hierarchy/my-work).
+ * Level-specific fields are omitted when they do not apply.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AssignedItem {
+
+    private Long id;
+
+    private String type; // Objective, KeyResult or ActionItem
+
+    private String title;
+
+    private Integer progress;
+
+    private Long projectId;
+
+    private List<Breadcrumb> breadcrumbs; // Ancestors, project first
+
+    // Objective, action item
+    private LocalDate dueDate;
+
+    // Objective
+    private Integer year;
+
+    private String quarter;
+
+    // Action item
+    private Boolean isCompleted;
+}
@@ -0,0 +1,19 @@
+package com.ccc.okrtracker.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of the current user's assigned items, ordered by type (objectives, key results,
+ * action items) and id.
+ */
+@Data
+@NoArgsConstructor
+public class AssignedItemPage {
+
+    private List<AssignedItem> items;
+
+    private String nextCursor; // Null on the last page, otherwise pass as ?cursor= for the next page
+}
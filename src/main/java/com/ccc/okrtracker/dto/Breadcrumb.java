@@ -0,0 +1,7 @@
+package com.ccc.okrtracker.dto;
+
+/**
+ * An ancestor of a node, for showing where the node sits in the hierarchy.
+ */
+public record Breadcrumb(String type, Long id, String title) {
+}
@@ -0,0 +1,24 @@
+package com.ccc.okrtracker.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Nodes changed since a cursor (GET /api/hierarchy/changes).
+ * Nodes are flat, parents before children, and carry their parentId; soft-deleted nodes are
+ * included with isActive false. The same node may be returned again by the next request.
+ * Children are never expanded and the child counts are not filled in.
+ */
+@Data
+@NoArgsConstructor
+public class ChangeSet {
+
+    private String cursor; // Pass as ?cursor= on the next request
+
+    private Set<Long> projectIds; // Accessible projects; a new ID means a project to load in full
+
+    private List<TreeNode> nodes;
+}
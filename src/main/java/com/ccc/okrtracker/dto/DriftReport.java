@@ -0,0 +1,38 @@
+package com.ccc.okrtracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Result of the last rollup drift verification pass.
+ */
+@Data
+@NoArgsConstructor
+public class DriftReport {
+
+    private boolean running;
+
+    private boolean repairEnabled;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime startedAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime finishedAt;
+
+    private int projectsChecked;
+
+    private int projectsWithDrift;
+
+    private long driftedNodes;
+
+    private int projectsRepaired;
+
+    private long totalDriftedNodesSinceStartup;
+
+    private Map<Long, Integer> driftByProject; // Project ID -> number of nodes whose stored values drifted
+}
@@ -0,0 +1,17 @@
+package com.ccc.okrtracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Read model of a goal, see {@link ProjectView}.
+ */
+public record GoalView(Long id, String title, String description, Integer progress, Boolean isActive,
+                       List<ObjectiveView> objectives) {
+
+    @JsonProperty("type")
+    public String type() {
+        return "Goal";
+    }
+}
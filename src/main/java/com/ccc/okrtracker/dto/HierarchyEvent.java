@@ -0,0 +1,13 @@
+package com.ccc.okrtracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A change pushed to subscribers of GET /api/hierarchy/events.
+ * event is "created", "updated", "archived" or "progress" (a rolled-up value changed);
+ * type uses the same values as the entities' "type". parentId is only set for "created",
+ * progress only for "progress".
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record HierarchyEvent(String event, String type, Long id, Long projectId, Long parentId, Integer progress) {
+}
@@ -0,0 +1,33 @@
+package com.ccc.okrtracker.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Filters of GET /api/hierarchy/projects, applied in SQL. All given filters must match.
+ * Objectives, key results and action items are matched; year and quarter are those of the
+ * objective, so they also select the key results and action items below it. Key results have
+ * no due date, so they never match a due date filter themselves.
+ */
+@Data
+@NoArgsConstructor
+public class HierarchyFilter {
+
+    private String assignee;
+
+    private Integer year;
+
+    private String quarter; // "Q1", "Q2"...
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate dueBefore;
+
+    private Boolean overdue; // Due before today and not done (action items: not completed, objectives: progress below 100)
+
+    public boolean isEmpty() {
+        return assignee == null && year == null && quarter == null && dueBefore == null && !Boolean.TRUE.equals(overdue);
+    }
+}
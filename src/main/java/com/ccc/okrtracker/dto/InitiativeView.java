@@ -0,0 +1,17 @@
+package com.ccc.okrtracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Read model of a strategic initiative, see {@link ProjectView}.
+ */
+public record InitiativeView(Long id, String title, String description, Integer progress, Boolean isActive,
+                             List<GoalView> goals) {
+
+    @JsonProperty("type")
+    public String type() {
+        return "StrategicInitiative";
+    }
+}
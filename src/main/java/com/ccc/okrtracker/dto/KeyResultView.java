@@ -0,0 +1,18 @@
+package com.ccc.okrtracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Read model of a key result, see {@link ProjectView}.
+ */
+public record KeyResultView(Long id, String title, String description, Integer progress, Boolean isActive,
+                            String assignee, Double metricStart, Double metricTarget, Double metricCurrent,
+                            String unit, Boolean manualProgressSet, List<ActionItemView> actionItems) {
+
+    @JsonProperty("type")
+    public String type() {
+        return "KeyResult";
+    }
+}
@@ -0,0 +1,19 @@
+package com.ccc.okrtracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Read model of an objective, see {@link ProjectView}.
+ */
+public record ObjectiveView(Long id, String title, String description, Integer progress, Boolean isActive,
+                            String assignee, Integer year, String quarter, LocalDate dueDate,
+                            List<KeyResultView> keyResults) {
+
+    @JsonProperty("type")
+    public String type() {
+        return "Objective";
+    }
+}
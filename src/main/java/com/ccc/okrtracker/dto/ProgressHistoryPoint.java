@@ -0,0 +1,28 @@
+package com.ccc.okrtracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One time bucket (day or week) of a node's progress history.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProgressHistoryPoint {
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime bucketStart;
+
+    private int progress; // Last value recorded in the bucket
+
+    private int minProgress;
+
+    private int maxProgress;
+
+    private long samples;
+}
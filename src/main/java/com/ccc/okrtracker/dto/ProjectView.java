@@ -0,0 +1,19 @@
+package com.ccc.okrtracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Read model of a project and its tree, as returned by the hierarchy GET endpoints.
+ * Only the fields the UI shows: no audit columns, no entity state.
+ */
+public record ProjectView(Long id, String title, String description, Integer progress, Boolean isActive,
+                          List<InitiativeView> initiatives) {
+
+    // Same discriminator the entities expose (BaseEntity.getType)
+    @JsonProperty("type")
+    public String type() {
+        return "Project";
+    }
+}
@@ -0,0 +1,38 @@
+package com.ccc.okrtracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Progress report of a "recalculate all projects" run.
+ */
+@Data
+@NoArgsConstructor
+public class RecalculationStatus {
+
+    private boolean running;
+
+    private int concurrency;
+
+    private int totalProjects;
+
+    private int completedProjects;
+
+    private int failedProjects;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime startedAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime finishedAt;
+
+    private long elapsedMillis;
+
+    private double projectsPerSecond;
+
+    private Map<Long, String> failures; // Project ID -> error message
+}
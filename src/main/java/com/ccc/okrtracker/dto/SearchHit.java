@@ -0,0 +1,28 @@
+package com.ccc.okrtracker.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A node matching a full-text search (GET /api/hierarchy/search), best ranked first.
+ */
+@Data
+@NoArgsConstructor
+public class SearchHit {
+
+    private Long id;
+
+    private String type; // Same values as the entities' "type": Project, StrategicInitiative, ...
+
+    private String title;
+
+    private Integer progress;
+
+    private double rank; // Higher is better; only comparable within one response
+
+    private Long projectId;
+
+    private List<Breadcrumb> breadcrumbs; // Ancestors, project first
+}
@@ -0,0 +1,28 @@
+package com.ccc.okrtracker.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counters of the serialized project tree cache (ProjectTreeCache).
+ */
+@Data
+@NoArgsConstructor
+public class TreeCacheStats {
+
+    private boolean enabled;
+
+    private int entries;
+
+    private long bytes;
+
+    private long maxBytes;
+
+    private long hits;
+
+    private long misses; // Includes stale entries (older version than the project's current one)
+
+    private long evictions; // Removed to stay within maxBytes
+
+    private long invalidations; // Removed because the project was written
+}
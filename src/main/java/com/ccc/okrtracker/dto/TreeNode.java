@@ -0,0 +1,66 @@
+package com.ccc.okrtracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A node of the lazily expanded hierarchy tree (GET /api/hierarchy/tree).
+ * children is null when the node was not expanded (depth limit reached) and empty when it has
+ * no children, so the UI can tell "not loaded" from "none"; the counts are always filled in,
+ * so an expand arrow can be shown without loading the children.
+ * Level-specific fields are omitted when they do not apply.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TreeNode {
+
+    private Long id;
+
+    private String type; // Same values as the entities' "type": Project, StrategicInitiative, ...
+
+    private Long parentId; // Only set in change sets (GET /api/hierarchy/changes)
+
+    private String title;
+
+    private String description;
+
+    private Integer progress;
+
+    private Boolean isActive;
+
+    private Integer childCount; // Null for action items
+
+    private Integer activeChildCount;
+
+    private List<TreeNode> children;
+
+    // Objective, key result, action item
+    private String assignee;
+
+    // Objective
+    private Integer year;
+
+    private String quarter;
+
+    // Objective, action item
+    private LocalDate dueDate;
+
+    // Key result
+    private Double metricStart;
+
+    private Double metricTarget;
+
+    private Double metricCurrent;
+
+    private String unit;
+
+    private Boolean manualProgressSet;
+
+    // Action item
+    private Boolean isCompleted;
+}
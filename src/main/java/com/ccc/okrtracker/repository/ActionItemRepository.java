@@ -4,8 +4,13 @@ import com.ccc.okrtracker.entity.ActionItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ActionItemRepository extends JpaRepository<ActionItem, Long> {
-    // We fetch all because we do in-memory filtering in frontend for tree
-    // But specific queries can be added here
+    // Trees are read through HierarchyViewRepository, which also applies the hierarchy filters
+    // (assignee, year/quarter, due date) in SQL
+
+    // All action items (active and inactive) of a KR, used by path-only rollup
+    List<ActionItem> findByKeyResultId(Long keyResultId);
 }
\ No newline at end of file
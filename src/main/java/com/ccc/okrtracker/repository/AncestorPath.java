@@ -0,0 +1,55 @@
+package com.ccc.okrtracker.repository;
+
+import com.ccc.okrtracker.dto.Breadcrumb;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The joins from a level's table (alias n0) up to its project, selecting the id and title of
+ * every ancestor as n1_id, n1_title, ... where n1 is the parent and the last alias the project.
+ * For the project level there are no joins and the project is n0 itself.
+ */
+record AncestorPath(HierarchyLevel level, int depth, String from, String columns) {
+
+    static AncestorPath of(HierarchyLevel level) {
+        StringBuilder from = new StringBuilder(level.getTable()).append(" n0");
+        StringBuilder columns = new StringBuilder();
+        int depth = 0;
+        for (HierarchyLevel current = level; current != HierarchyLevel.PROJECT; current = current.parent()) {
+            String alias = "n" + (depth + 1);
+            from.append(" JOIN ").append(current.parent().getTable()).append(' ').append(alias)
+                    .append(" ON ").append(alias).append(".id = n").append(depth).append('.').append(current.getParentColumn());
+            columns.append(", ").append(alias).append(".id AS ").append(alias).append("_id, ")
+                    .append(alias).append(".title AS ").append(alias).append("_title");
+            depth++;
+        }
+        return new AncestorPath(level, depth, from.toString(), columns.toString());
+    }
+
+    /**
+     * Alias of the project table
+     */
+    String project() {
+        return "n" + depth;
+    }
+
+    long projectId(ResultSet rs) throws SQLException {
+        return rs.getLong(depth == 0 ? "id" : "n" + depth + "_id");
+    }
+
+    /**
+     * The ancestors of the row's node, project first
+     */
+    List<Breadcrumb> breadcrumbs(ResultSet rs) throws SQLException {
+        List<Breadcrumb> breadcrumbs = new ArrayList<>(depth);
+        for (int n = depth; n >= 1; n--) {
+            HierarchyLevel ancestor = HierarchyLevel.values()[level.ordinal() - n];
+            breadcrumbs.add(new Breadcrumb(ancestor.getEntityClass().getSimpleName(),
+                    rs.getLong("n" + n + "_id"), rs.getString("n" + n + "_title")));
+        }
+        return breadcrumbs;
+    }
+}
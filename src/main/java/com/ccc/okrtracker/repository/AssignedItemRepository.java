@@ -0,0 +1,83 @@
+package com.ccc.okrtracker.repository;
+
+import com.ccc.okrtracker.dto.AssignedItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Looks up the active objectives, key results and action items assigned to a user, with the
+ * titles of their ancestors. Lookups go through the (assignee_user_id, id) indexes, one range
+ * scan per page (keyset pagination by id), instead of scanning the hierarchy.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AssignedItemRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Items of one level assigned to the user, with an id above afterId, in active projects among
+     * the given ones, ordered by id.
+     */
+    public List<AssignedItem> findAssigned(HierarchyLevel level, Long userId, long afterId,
+                                           Collection<Long> projectIds, int limit) {
+        if (projectIds.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String columns = switch (level) {
+            case OBJECTIVE -> ", n0.due_date, n0.year, n0.quarter";
+            case KEY_RESULT -> "";
+            case ACTION_ITEM -> ", n0.due_date, n0.is_completed";
+            default -> throw new IllegalArgumentException("Nothing is assigned at level " + level);
+        };
+
+        AncestorPath path = AncestorPath.of(level);
+        String sql = "SELECT n0.id, n0.title, n0.progress" + columns + path.columns()
+                + " FROM " + path.from()
+                + " WHERE n0.assignee_user_id = ? AND n0.id > ? AND n0.is_active"
+                + " AND " + path.project() + ".is_active AND " + path.project() + ".id = ANY(?)"
+                + " ORDER BY n0.id LIMIT ?";
+
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setLong(1, userId);
+            ps.setLong(2, afterId);
+            ps.setArray(3, con.createArrayOf("bigint", projectIds.toArray()));
+            ps.setInt(4, limit);
+            return ps;
+        }, (rs, rowNum) -> mapItem(path, rs));
+    }
+
+    private static AssignedItem mapItem(AncestorPath path, ResultSet rs) throws SQLException {
+        HierarchyLevel level = path.level();
+        AssignedItem item = new AssignedItem();
+        item.setId(rs.getLong("id"));
+        item.setType(level.getEntityClass().getSimpleName());
+        item.setTitle(rs.getString("title"));
+        item.setProgress(rs.getObject("progress", Integer.class));
+        item.setProjectId(path.projectId(rs));
+        item.setBreadcrumbs(path.breadcrumbs(rs));
+        if (level == HierarchyLevel.OBJECTIVE) {
+            item.setDueDate(toLocalDate(rs.getDate("due_date")));
+            item.setYear(rs.getObject("year", Integer.class));
+            item.setQuarter(rs.getString("quarter"));
+        } else if (level == HierarchyLevel.ACTION_ITEM) {
+            item.setDueDate(toLocalDate(rs.getDate("due_date")));
+            item.setIsCompleted(rs.getObject("is_completed", Boolean.class));
+        }
+        return item;
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date != null ? date.toLocalDate() : null;
+    }
+}
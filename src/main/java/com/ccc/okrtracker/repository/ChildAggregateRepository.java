@@ -0,0 +1,153 @@
+package com.ccc.okrtracker.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reads the materialized child aggregates (active_child_count, child_progress_sum and, on
+ * key_result, child_count) and writes the progress derived from them.
+ * The aggregates themselves are kept current by row triggers on the child tables
+ * (apply_child_aggregate), whatever writes the child: JPA, the SQL or snapshot engines, imports.
+ * The columns are deliberately not mapped on the entities, so a JPA flush of a stale entity
+ * can never overwrite them.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ChildAggregateRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return The row, or null if it does not exist
+     */
+    public ChildAggregateRow find(HierarchyLevel level, Long id) {
+        String parentColumn = level.getParentColumn() != null ? level.getParentColumn() : "NULL";
+        String sql = switch (level) {
+            case KEY_RESULT -> """
+                SELECT id, objective_id AS parent_id, is_active, progress,
+                       active_child_count, child_progress_sum, child_count,
+                       manual_progress_set, metric_start, metric_target, metric_current
+                FROM key_result
+                WHERE id = ?
+            """;
+            case ACTION_ITEM -> """
+                SELECT id, key_result_id AS parent_id, is_active, progress
+                FROM action_item
+                WHERE id = ?
+            """;
+            default -> "SELECT id, " + parentColumn + " AS parent_id, is_active, progress, "
+                    + "active_child_count, child_progress_sum FROM " + level.getTable() + " WHERE id = ?";
+        };
+        List<ChildAggregateRow> rows = jdbcTemplate.query(sql, (rs, rowNum) -> mapRow(rs, level), id);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Write the progress (and, for KRs, metricCurrent) derived from a parent row's aggregates.
+     * The triggers then apply the change to the grandparent's aggregates.
+     */
+    public void updateProgress(HierarchyLevel level, ChildAggregateRow row) {
+        if (level == HierarchyLevel.KEY_RESULT) {
+            jdbcTemplate.update(
+                    "UPDATE key_result SET progress = ?, metric_current = ?, updated_date = CURRENT_TIMESTAMP WHERE id = ?",
+                    row.getProgress(), row.getMetricCurrent(), row.getId());
+        } else if (level != HierarchyLevel.ACTION_ITEM) {
+            jdbcTemplate.update("UPDATE " + level.getTable()
+                    + " SET progress = ?, updated_date = CURRENT_TIMESTAMP WHERE id = ?",
+                    row.getProgress(), row.getId());
+        }
+    }
+
+    /**
+     * Recompute the aggregates of every parent in a project from its children's stored
+     * progress. The triggers keep them exact, so this is only a reconciliation, run by the
+     * recalculate-all job and by drift repairs (e.g. after manual SQL with triggers disabled).
+     * Only rows whose aggregates actually change are written.
+     */
+    public void rebuildProject(Long projectId) {
+        jdbcTemplate.update("""
+            UPDATE key_result t
+            SET active_child_count = c.active_count,
+                child_progress_sum = c.progress_sum,
+                child_count = c.total_count
+            FROM (
+                SELECT k.id,
+                       COUNT(a.id) FILTER (WHERE a.is_active) AS active_count,
+                       COALESCE(SUM(COALESCE(a.progress, 0)) FILTER (WHERE a.is_active), 0) AS progress_sum,
+                       COUNT(a.id) AS total_count
+                FROM key_result k
+                JOIN objective o ON o.id = k.objective_id
+                JOIN goal g ON g.id = o.goal_id
+                JOIN strategic_initiative i ON i.id = g.initiative_id
+                LEFT JOIN action_item a ON a.key_result_id = k.id
+                WHERE i.project_id = ?
+                GROUP BY k.id
+            ) c
+            WHERE t.id = c.id
+              AND (t.active_child_count, t.child_progress_sum, t.child_count)
+                  IS DISTINCT FROM (c.active_count::int, c.progress_sum::bigint, c.total_count::int)
+        """, projectId);
+        rebuildLevel("objective", "key_result", "objective_id", """
+            FROM objective p
+            JOIN goal g ON g.id = p.goal_id
+            JOIN strategic_initiative i ON i.id = g.initiative_id
+        """, "i.project_id", projectId);
+        rebuildLevel("goal", "objective", "goal_id", """
+            FROM goal p
+            JOIN strategic_initiative i ON i.id = p.initiative_id
+        """, "i.project_id", projectId);
+        rebuildLevel("strategic_initiative", "goal", "initiative_id",
+                "FROM strategic_initiative p", "p.project_id", projectId);
+        rebuildLevel("project", "strategic_initiative", "project_id",
+                "FROM project p", "p.id", projectId);
+    }
+
+    private void rebuildLevel(String table, String childTable, String childParentColumn,
+                              String fromClause, String projectColumn, Long projectId) {
+        String sql = "UPDATE " + table + " t"
+                + " SET active_child_count = c.active_count, child_progress_sum = c.progress_sum"
+                + " FROM (SELECT p.id,"
+                + "   COUNT(ch.id) FILTER (WHERE ch.is_active) AS active_count,"
+                + "   COALESCE(SUM(COALESCE(ch.progress, 0)) FILTER (WHERE ch.is_active), 0) AS progress_sum "
+                + fromClause
+                + " LEFT JOIN " + childTable + " ch ON ch." + childParentColumn + " = p.id"
+                + " WHERE " + projectColumn + " = ?"
+                + " GROUP BY p.id) c"
+                + " WHERE t.id = c.id"
+                + " AND (t.active_child_count, t.child_progress_sum)"
+                + "     IS DISTINCT FROM (c.active_count::int, c.progress_sum::bigint)";
+        jdbcTemplate.update(sql, projectId);
+    }
+
+    private static ChildAggregateRow mapRow(ResultSet rs, HierarchyLevel level) throws SQLException {
+        ChildAggregateRow row = new ChildAggregateRow();
+        row.setId(rs.getLong("id"));
+        long parentId = rs.getLong("parent_id");
+        row.setParentId(rs.wasNull() ? null : parentId);
+        row.setActive(rs.getBoolean("is_active"));
+        row.setProgress(rs.getInt("progress")); // null progress counts as 0, as in the rollup
+        if (level == HierarchyLevel.ACTION_ITEM) {
+            return row;
+        }
+        row.setActiveChildCount(rs.getInt("active_child_count"));
+        row.setChildProgressSum(rs.getLong("child_progress_sum"));
+        if (level == HierarchyLevel.KEY_RESULT) {
+            row.setChildCount(rs.getInt("child_count"));
+            row.setManual(rs.getBoolean("manual_progress_set"));
+            row.setMetricStart(readDouble(rs, "metric_start"));
+            row.setMetricTarget(readDouble(rs, "metric_target"));
+            row.setMetricCurrent(readDouble(rs, "metric_current"));
+        }
+        return row;
+    }
+
+    private static Double readDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+}
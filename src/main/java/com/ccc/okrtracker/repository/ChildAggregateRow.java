@@ -0,0 +1,26 @@
+package com.ccc.okrtracker.repository;
+
+import lombok.Data;
+
+/**
+ * One hierarchy row with its materialized child aggregates, as read and written by
+ * ChildAggregateRepository. The KR-only fields are left at their defaults on other levels.
+ */
+@Data
+public class ChildAggregateRow {
+    private Long id;
+    private Long parentId; // null for a project
+    private boolean active;
+    private int progress;
+
+    // Active children and the sum of their progress
+    private int activeChildCount;
+    private long childProgressSum;
+
+    // KR only: all action items (active or not), manual lock and metrics
+    private int childCount;
+    private boolean manual;
+    private Double metricStart;
+    private Double metricTarget;
+    private Double metricCurrent;
+}
@@ -0,0 +1,12 @@
+package com.ccc.okrtracker.repository;
+
+/**
+ * Projection for the sum and count of the active children's progress under one parent.
+ * Used by path-only rollup to recompute a parent without loading its children.
+ */
+public interface ChildProgressAggregate {
+
+    Long getProgressSum();
+
+    Long getActiveCount();
+}
@@ -2,10 +2,17 @@ package com.ccc.okrtracker.repository;
 
 import com.ccc.okrtracker.entity.Goal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface GoalRepository extends JpaRepository<Goal, Long> {
     // We fetch all because we do in-memory filtering in frontend for tree
     // But specific queries can be added here
+
+    // Sum and count of active children's progress, used by path-only rollup
+    @Query("SELECT COALESCE(SUM(g.progress), 0) AS progressSum, COUNT(g) AS activeCount " +
+           "FROM Goal g WHERE g.initiative.id = :initiativeId AND g.isActive = true")
+    ChildProgressAggregate aggregateActiveProgressByInitiative(@Param("initiativeId") Long initiativeId);
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.ccc.okrtracker.repository;
+
+import com.ccc.okrtracker.entity.*;
+import com.ccc.okrtracker.exception.ResourceNotFoundException;
+
+/**
+ * The levels of the OKR hierarchy, top-down, with the table and parent column of each,
+ * and the path segment naming the level in REST URLs (e.g. /api/history/key-results/7).
+ */
+public enum HierarchyLevel {
+    PROJECT("project", null, Project.class, "projects"),
+    INITIATIVE("strategic_initiative", "project_id", StrategicInitiative.class, "initiatives"),
+    GOAL("goal", "initiative_id", Goal.class, "goals"),
+    OBJECTIVE("objective", "goal_id", Objective.class, "objectives"),
+    KEY_RESULT("key_result", "objective_id", KeyResult.class, "key-results"),
+    ACTION_ITEM("action_item", "key_result_id", ActionItem.class, "action-items");
+
+    private final String table;
+    private final String parentColumn;
+    private final Class<? extends BaseEntity> entityClass;
+    private final String pathSegment;
+
+    HierarchyLevel(String table, String parentColumn, Class<? extends BaseEntity> entityClass, String pathSegment) {
+        this.table = table;
+        this.parentColumn = parentColumn;
+        this.entityClass = entityClass;
+        this.pathSegment = pathSegment;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getParentColumn() {
+        return parentColumn;
+    }
+
+    public Class<? extends BaseEntity> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getPathSegment() {
+        return pathSegment;
+    }
+
+    /**
+     * @return The level below, or null for ACTION_ITEM
+     */
+    public HierarchyLevel child() {
+        return this == ACTION_ITEM ? null : values()[ordinal() + 1];
+    }
+
+    /**
+     * @return The level above, or null for PROJECT
+     */
+    public HierarchyLevel parent() {
+        return this == PROJECT ? null : values()[ordinal() - 1];
+    }
+
+    /**
+     * @throws ResourceNotFoundException for an unknown path segment
+     */
+    public static HierarchyLevel fromPathSegment(String segment) {
+        for (HierarchyLevel level : values()) {
+            if (level.pathSegment.equals(segment)) {
+                return level;
+            }
+        }
+        throw new ResourceNotFoundException("Unknown hierarchy type: " + segment);
+    }
+
+    public static HierarchyLevel of(BaseEntity node) {
+        for (HierarchyLevel level : values()) {
+            if (level.entityClass.isInstance(node)) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("Not a hierarchy node: " + node.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,76 @@
+package com.ccc.okrtracker.repository;
+
+import com.ccc.okrtracker.entity.Project;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Loads a whole project tree (initiatives, goals, objectives, KRs, action items) with one
+ * query per level, instead of one lazy collection load per parent. Used by the entity rollup,
+ * which walks the full tree of one project.
+ * Each query fetch-joins one level's child collection for all parents of that level in the
+ * project. The persistence context resolves the parent references to the entities
+ * loaded by the previous query, so every collection of the tree ends up initialized without
+ * any further SQL: 5 queries in total, whatever the size of the tree.
+ * The entities are managed, so callers may modify them like any other loaded entity.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HierarchyLoader {
+
+    private final EntityManager entityManager;
+
+    /**
+     * Load a project with its fully initialized tree.
+     * Children are loaded whether active or not, the same as the lazy collections.
+     *
+     * @return Empty if the project does not exist
+     */
+    @Transactional(readOnly = true)
+    public Optional<Project> loadProject(Long projectId) {
+        List<Project> projects = entityManager.createQuery("""
+                SELECT p FROM Project p
+                LEFT JOIN FETCH p.initiatives
+                WHERE p.id = :id
+                """, Project.class)
+                .setParameter("id", projectId)
+                .getResultList();
+        if (projects.isEmpty()) {
+            return Optional.empty();
+        }
+
+        fetchLevel("""
+                SELECT i FROM StrategicInitiative i
+                LEFT JOIN FETCH i.goals
+                WHERE i.project.id = :id
+                """, projectId);
+        fetchLevel("""
+                SELECT g FROM Goal g
+                LEFT JOIN FETCH g.objectives
+                WHERE g.initiative.project.id = :id
+                """, projectId);
+        fetchLevel("""
+                SELECT o FROM Objective o
+                LEFT JOIN FETCH o.keyResults
+                WHERE o.goal.initiative.project.id = :id
+                """, projectId);
+        fetchLevel("""
+                SELECT k FROM KeyResult k
+                LEFT JOIN FETCH k.actionItems
+                WHERE k.objective.goal.initiative.project.id = :id
+                """, projectId);
+        return Optional.of(projects.get(0));
+    }
+
+    // The result is not needed: loading it initializes the collections of the already managed parents
+    private void fetchLevel(String jpql, Long projectId) {
+        entityManager.createQuery(jpql)
+                .setParameter("id", projectId)
+                .getResultList();
+    }
+}
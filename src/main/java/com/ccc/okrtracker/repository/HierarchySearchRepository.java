@@ -0,0 +1,82 @@
+package com.ccc.okrtracker.repository;
+
+import com.ccc.okrtracker.dto.SearchHit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text search over the titles and descriptions of all hierarchy levels, through the
+ * search_vector columns (kept current by triggers, GIN-indexed). Hits are ranked with
+ * ts_rank_cd, a title match counting more than a description match.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HierarchySearchRepository {
+
+    private static final Pattern TERM = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int MAX_TERMS = 8;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Turn free text into a tsquery: every word must match, the last one as a prefix
+     * (search as you type). Everything but letters and digits is dropped, so the result is
+     * always valid tsquery syntax.
+     *
+     * @return null if the text has no words
+     */
+    public static String toTsQuery(String text) {
+        List<String> terms = new ArrayList<>();
+        Matcher matcher = TERM.matcher(text);
+        while (matcher.find() && terms.size() < MAX_TERMS) {
+            terms.add(matcher.group().toLowerCase());
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+        return String.join(" & ", terms) + ":*";
+    }
+
+    /**
+     * The best ranked active nodes of one level matching the query, in active projects among
+     * the given ones.
+     *
+     * @param tsQuery See {@link #toTsQuery}
+     */
+    public List<SearchHit> search(HierarchyLevel level, String tsQuery, Collection<Long> projectIds, int limit) {
+        if (projectIds.isEmpty()) {
+            return List.of();
+        }
+        AncestorPath path = AncestorPath.of(level);
+        String sql = "SELECT n0.id, n0.title, n0.progress, ts_rank_cd(n0.search_vector, q) AS rank" + path.columns()
+                + " FROM " + path.from() + " CROSS JOIN to_tsquery('simple', ?) q"
+                + " WHERE n0.search_vector @@ q AND n0.is_active"
+                + " AND " + path.project() + ".is_active AND " + path.project() + ".id = ANY(?)"
+                + " ORDER BY rank DESC, n0.id LIMIT ?";
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setString(1, tsQuery);
+            ps.setArray(2, con.createArrayOf("bigint", projectIds.toArray()));
+            ps.setInt(3, limit);
+            return ps;
+        }, (rs, rowNum) -> {
+            SearchHit hit = new SearchHit();
+            hit.setId(rs.getLong("id"));
+            hit.setType(level.getEntityClass().getSimpleName());
+            hit.setTitle(rs.getString("title"));
+            hit.setProgress(rs.getObject("progress", Integer.class));
+            hit.setRank(rs.getDouble("rank"));
+            hit.setProjectId(path.projectId(rs));
+            hit.setBreadcrumbs(path.breadcrumbs(rs));
+            return hit;
+        });
+    }
+}
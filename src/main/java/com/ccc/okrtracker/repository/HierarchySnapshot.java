@@ -0,0 +1,159 @@
+package com.ccc.okrtracker.repository;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Compact, primitive-only view of one project's hierarchy, used for allocation-free rollup.
+ * Every node (project, initiatives, goals, objectives, KRs, action items) is one slot in a
+ * set of parallel arrays. Slots are laid out bottom-up - every child comes before its parent
+ * and the project is the last slot - so a single forward pass can aggregate a whole project.
+ * Null progress is stored as {@link #NULL_PROGRESS}, null metrics as NaN.
+ */
+@Getter
+public final class HierarchySnapshot {
+
+    public static final byte PROJECT = 0;
+    public static final byte INITIATIVE = 1;
+    public static final byte GOAL = 2;
+    public static final byte OBJECTIVE = 3;
+    public static final byte KEY_RESULT = 4;
+    public static final byte ACTION_ITEM = 5;
+
+    public static final int NULL_PROGRESS = Integer.MIN_VALUE;
+
+    private final int size;
+    private final long[] ids;
+    private final byte[] levels;
+    private final int[] parents; // slot index of the parent, -1 for the project
+    private final boolean[] active;
+    private final boolean[] manual;
+
+    // Values as loaded from the database, kept to write back only the deltas
+    private final int[] storedProgress;
+    private final double[] storedMetricCurrent;
+
+    // Values produced by the rollup
+    private final int[] progress;
+    private final double[] metricStart;
+    private final double[] metricTarget;
+    private final double[] metricCurrent;
+
+    private HierarchySnapshot(Builder builder) {
+        int n = builder.size;
+        this.size = n;
+        this.ids = new long[n];
+        this.levels = new byte[n];
+        this.parents = new int[n];
+        this.active = new boolean[n];
+        this.manual = new boolean[n];
+        this.storedProgress = new int[n];
+        this.metricStart = new double[n];
+        this.metricTarget = new double[n];
+        this.storedMetricCurrent = new double[n];
+
+        // The builder is filled top-down (parents first); reverse it so children come first
+        for (int from = 0; from < n; from++) {
+            int to = n - 1 - from;
+            ids[to] = builder.ids[from];
+            levels[to] = builder.levels[from];
+            int parent = builder.parents[from];
+            parents[to] = parent < 0 ? -1 : n - 1 - parent;
+            active[to] = builder.active[from];
+            manual[to] = builder.manual[from];
+            storedProgress[to] = builder.progress[from];
+            metricStart[to] = builder.metricStart[from];
+            metricTarget[to] = builder.metricTarget[from];
+            storedMetricCurrent[to] = builder.metricCurrent[from];
+        }
+        this.progress = storedProgress.clone();
+        this.metricCurrent = storedMetricCurrent.clone();
+    }
+
+    public boolean progressChanged(int slot) {
+        return progress[slot] != storedProgress[slot];
+    }
+
+    public boolean metricCurrentChanged(int slot) {
+        return Double.compare(metricCurrent[slot], storedMetricCurrent[slot]) != 0;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Accumulates nodes level by level, top-down. Each level must be added in ascending id
+     * order so that {@link #indexOf} can resolve parent slots with a binary search.
+     */
+    public static final class Builder {
+
+        private int size;
+        private long[] ids = new long[64];
+        private byte[] levels = new byte[64];
+        private int[] parents = new int[64];
+        private boolean[] active = new boolean[64];
+        private boolean[] manual = new boolean[64];
+        private int[] progress = new int[64];
+        private double[] metricStart = new double[64];
+        private double[] metricTarget = new double[64];
+        private double[] metricCurrent = new double[64];
+
+        private Builder() {
+        }
+
+        /**
+         * @return The slot of the added node
+         */
+        public int add(byte level, long id, int parent, boolean isActive, int nodeProgress) {
+            return add(level, id, parent, isActive, nodeProgress, false, Double.NaN, Double.NaN, Double.NaN);
+        }
+
+        public int add(byte level, long id, int parent, boolean isActive, int nodeProgress,
+                       boolean isManual, double start, double target, double current) {
+            if (size == ids.length) {
+                grow();
+            }
+            ids[size] = id;
+            levels[size] = level;
+            parents[size] = parent;
+            active[size] = isActive;
+            manual[size] = isManual;
+            progress[size] = nodeProgress;
+            metricStart[size] = start;
+            metricTarget[size] = target;
+            metricCurrent[size] = current;
+            return size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Slot of the node with the given id within [from, to), or -1 if absent.
+         */
+        public int indexOf(long id, int from, int to) {
+            int found = Arrays.binarySearch(ids, from, to, id);
+            return found >= 0 ? found : -1;
+        }
+
+        public HierarchySnapshot build() {
+            return new HierarchySnapshot(this);
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            active = Arrays.copyOf(active, capacity);
+            manual = Arrays.copyOf(manual, capacity);
+            progress = Arrays.copyOf(progress, capacity);
+            metricStart = Arrays.copyOf(metricStart, capacity);
+            metricTarget = Arrays.copyOf(metricTarget, capacity);
+            metricCurrent = Arrays.copyOf(metricCurrent, capacity);
+        }
+    }
+}
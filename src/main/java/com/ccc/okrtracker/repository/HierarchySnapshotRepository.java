@@ -0,0 +1,174 @@
+package com.ccc.okrtracker.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads a project's hierarchy into a {@link HierarchySnapshot} with lean JDBC projections
+ * (ids, parent ids, active flags, progress, manual flags and metrics only - no entities),
+ * and writes back only the values a rollup changed, as JDBC batches.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HierarchySnapshotRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Load the snapshot of a project, or null if the project does not exist.
+     */
+    public HierarchySnapshot load(Long projectId) {
+        HierarchySnapshot.Builder builder = HierarchySnapshot.builder();
+
+        jdbcTemplate.query("SELECT id, is_active, progress FROM project WHERE id = ?",
+                rs -> {
+                    builder.add(HierarchySnapshot.PROJECT, rs.getLong("id"), -1,
+                            rs.getBoolean("is_active"), readProgress(rs));
+                }, projectId);
+        if (builder.size() == 0) {
+            return null;
+        }
+
+        int levelStart = 0;
+        levelStart = loadLevel(builder, HierarchySnapshot.INITIATIVE, levelStart, """
+            SELECT i.id, i.project_id AS parent_id, i.is_active, i.progress
+            FROM strategic_initiative i
+            WHERE i.project_id = ?
+            ORDER BY i.id
+        """, projectId);
+        levelStart = loadLevel(builder, HierarchySnapshot.GOAL, levelStart, """
+            SELECT g.id, g.initiative_id AS parent_id, g.is_active, g.progress
+            FROM goal g
+            JOIN strategic_initiative i ON i.id = g.initiative_id
+            WHERE i.project_id = ?
+            ORDER BY g.id
+        """, projectId);
+        levelStart = loadLevel(builder, HierarchySnapshot.OBJECTIVE, levelStart, """
+            SELECT o.id, o.goal_id AS parent_id, o.is_active, o.progress
+            FROM objective o
+            JOIN goal g ON g.id = o.goal_id
+            JOIN strategic_initiative i ON i.id = g.initiative_id
+            WHERE i.project_id = ?
+            ORDER BY o.id
+        """, projectId);
+        levelStart = loadLevel(builder, HierarchySnapshot.KEY_RESULT, levelStart, """
+            SELECT k.id, k.objective_id AS parent_id, k.is_active, k.progress,
+                   k.manual_progress_set, k.metric_start, k.metric_target, k.metric_current
+            FROM key_result k
+            JOIN objective o ON o.id = k.objective_id
+            JOIN goal g ON g.id = o.goal_id
+            JOIN strategic_initiative i ON i.id = g.initiative_id
+            WHERE i.project_id = ?
+            ORDER BY k.id
+        """, projectId);
+        loadLevel(builder, HierarchySnapshot.ACTION_ITEM, levelStart, """
+            SELECT a.id, a.key_result_id AS parent_id, a.is_active, a.progress
+            FROM action_item a
+            JOIN key_result k ON k.id = a.key_result_id
+            JOIN objective o ON o.id = k.objective_id
+            JOIN goal g ON g.id = o.goal_id
+            JOIN strategic_initiative i ON i.id = g.initiative_id
+            WHERE i.project_id = ?
+            ORDER BY a.id
+        """, projectId);
+
+        return builder.build();
+    }
+
+    /**
+     * Append one level to the builder, resolving parents among the previous level's slots.
+     *
+     * @return The first slot of the loaded level, i.e. the parent range start for the next level
+     */
+    private int loadLevel(HierarchySnapshot.Builder builder, byte level, int parentStart, String sql, Long projectId) {
+        int parentEnd = builder.size();
+        boolean withMetrics = level == HierarchySnapshot.KEY_RESULT;
+        jdbcTemplate.query(con -> streamingStatement(con, sql, projectId), (ResultSet rs) -> {
+            int parent = builder.indexOf(rs.getLong("parent_id"), parentStart, parentEnd);
+            if (withMetrics) {
+                builder.add(level, rs.getLong("id"), parent, rs.getBoolean("is_active"), readProgress(rs),
+                        rs.getBoolean("manual_progress_set"),
+                        readDouble(rs, "metric_start"), readDouble(rs, "metric_target"), readDouble(rs, "metric_current"));
+            } else {
+                builder.add(level, rs.getLong("id"), parent, rs.getBoolean("is_active"), readProgress(rs));
+            }
+        });
+        return parentEnd;
+    }
+
+    // Inside a transaction the Postgres driver then reads through a cursor instead of buffering the whole level
+    private static PreparedStatement streamingStatement(Connection con, String sql, Long projectId) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql);
+        ps.setFetchSize(FETCH_SIZE);
+        ps.setLong(1, projectId);
+        return ps;
+    }
+
+    /**
+     * Write back the progress (and, for KRs, metricCurrent) of every node the rollup changed.
+     *
+     * @return The number of rows updated
+     */
+    public int writeChanges(HierarchySnapshot snapshot) {
+        List<Object[]> projects = new ArrayList<>();
+        List<Object[]> initiatives = new ArrayList<>();
+        List<Object[]> goals = new ArrayList<>();
+        List<Object[]> objectives = new ArrayList<>();
+        List<Object[]> keyResults = new ArrayList<>();
+
+        int[] progress = snapshot.getProgress();
+        double[] metricCurrent = snapshot.getMetricCurrent();
+        for (int slot = 0; slot < snapshot.getSize(); slot++) {
+            byte level = snapshot.getLevels()[slot];
+            long id = snapshot.getIds()[slot];
+            if (level == HierarchySnapshot.KEY_RESULT) {
+                if (snapshot.progressChanged(slot) || snapshot.metricCurrentChanged(slot)) {
+                    Double current = Double.isNaN(metricCurrent[slot]) ? null : metricCurrent[slot];
+                    keyResults.add(new Object[]{progress[slot], current, id});
+                }
+            } else if (level != HierarchySnapshot.ACTION_ITEM && snapshot.progressChanged(slot)) {
+                Object[] row = {progress[slot], id};
+                switch (level) {
+                    case HierarchySnapshot.PROJECT -> projects.add(row);
+                    case HierarchySnapshot.INITIATIVE -> initiatives.add(row);
+                    case HierarchySnapshot.GOAL -> goals.add(row);
+                    default -> objectives.add(row);
+                }
+            }
+        }
+
+        batchUpdate("UPDATE project SET progress = ?, updated_date = CURRENT_TIMESTAMP WHERE id = ?", projects);
+        batchUpdate("UPDATE strategic_initiative SET progress = ?, updated_date = CURRENT_TIMESTAMP WHERE id = ?", initiatives);
+        batchUpdate("UPDATE goal SET progress = ?, updated_date = CURRENT_TIMESTAMP WHERE id = ?", goals);
+        batchUpdate("UPDATE objective SET progress = ?, updated_date = CURRENT_TIMESTAMP WHERE id = ?", objectives);
+        batchUpdate("UPDATE key_result SET progress = ?, metric_current = ?, updated_date = CURRENT_TIMESTAMP WHERE id = ?", keyResults);
+
+        return projects.size() + initiatives.size() + goals.size() + objectives.size() + keyResults.size();
+    }
+
+    private void batchUpdate(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+    }
+
+    private static int readProgress(ResultSet rs) throws SQLException {
+        int value = rs.getInt("progress");
+        return rs.wasNull() ? HierarchySnapshot.NULL_PROGRESS : value;
+    }
+
+    private static double readDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ccc.okrtracker.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+
+/**
+ * Reads a project tree as one flat, depth-first ordered row stream: the project row is
+ * followed by its initiatives, each initiative by its goals, and so on down to the action
+ * items. Rows are read through a forward-only cursor. Only one project is read per query,
+ * so the sort covers a single tree and its first rows arrive without waiting for the others.
+ * Every row carries its node_level (a HierarchyLevel ordinal) and the union of all node
+ * columns; columns a level does not have are null.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HierarchyStreamRepository {
+
+    private static final int FETCH_SIZE = 500;
+
+    private static final String NODE_COLUMNS = """
+            n.id, n.title, n.description, n.progress, n.is_active""";
+
+    private static final String SQL = """
+        WITH p AS (
+            SELECT * FROM project WHERE id = ? AND is_active
+        )
+        SELECT 0 AS node_level, n.id AS p_id, NULL::bigint AS i_id, NULL::bigint AS g_id,
+               NULL::bigint AS o_id, NULL::bigint AS k_id, %1$s,
+               NULL::varchar AS assignee, NULL::integer AS year, NULL::varchar AS quarter, NULL::date AS due_date,
+               NULL::double precision AS metric_start, NULL::double precision AS metric_target,
+               NULL::double precision AS metric_current, NULL::varchar AS unit,
+               NULL::boolean AS manual_progress_set, NULL::boolean AS is_completed
+        FROM p n
+        UNION ALL
+        SELECT 1, n.project_id, n.id, NULL, NULL, NULL, %1$s,
+               NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL
+        FROM strategic_initiative n
+        JOIN p ON p.id = n.project_id
+        UNION ALL
+        SELECT 2, i.project_id, i.id, n.id, NULL, NULL, %1$s,
+               NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL
+        FROM goal n
+        JOIN strategic_initiative i ON i.id = n.initiative_id
+        JOIN p ON p.id = i.project_id
+        UNION ALL
+        SELECT 3, i.project_id, i.id, g.id, n.id, NULL, %1$s,
+               n.assignee, n.year, n.quarter, n.due_date, NULL, NULL, NULL, NULL, NULL, NULL
+        FROM objective n
+        JOIN goal g ON g.id = n.goal_id
+        JOIN strategic_initiative i ON i.id = g.initiative_id
+        JOIN p ON p.id = i.project_id
+        UNION ALL
+        SELECT 4, i.project_id, i.id, g.id, o.id, n.id, %1$s,
+               n.assignee, NULL, NULL, NULL, n.metric_start, n.metric_target, n.metric_current, n.unit,
+               n.manual_progress_set, NULL
+        FROM key_result n
+        JOIN objective o ON o.id = n.objective_id
+        JOIN goal g ON g.id = o.goal_id
+        JOIN strategic_initiative i ON i.id = g.initiative_id
+        JOIN p ON p.id = i.project_id
+        UNION ALL
+        SELECT 5, i.project_id, i.id, g.id, o.id, k.id, %1$s,
+               n.assignee, NULL, NULL, n.due_date, NULL, NULL, NULL, NULL, NULL, n.is_completed
+        FROM action_item n
+        JOIN key_result k ON k.id = n.key_result_id
+        JOIN objective o ON o.id = k.objective_id
+        JOIN goal g ON g.id = o.goal_id
+        JOIN strategic_initiative i ON i.id = g.initiative_id
+        JOIN p ON p.id = i.project_id
+        ORDER BY i_id NULLS FIRST, g_id NULLS FIRST, o_id NULLS FIRST, k_id NULLS FIRST, node_level, id
+        """.formatted(NODE_COLUMNS);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Stream the tree of the project, depth-first, to the handler. Nothing is read if the
+     * project does not exist or is archived.
+     * Must run inside a transaction, otherwise the Postgres driver buffers the whole result.
+     */
+    public void streamProject(Long projectId, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setLong(1, projectId);
+            return ps;
+        }, handler);
+    }
+}
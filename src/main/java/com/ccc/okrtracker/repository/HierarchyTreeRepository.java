@@ -0,0 +1,222 @@
+package com.ccc.okrtracker.repository;
+
+import com.ccc.okrtracker.dto.TreeNode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads parts of the hierarchy as {@link TreeNode}s, down to a given depth, for on-demand
+ * expansion in the UI. Each expanded level costs two queries (the nodes, and the child counts
+ * of those nodes), whatever the number of nodes on the level.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HierarchyTreeRepository {
+
+    private static final String[] TYPES = {
+            "Project", "StrategicInitiative", "Goal", "Objective", "KeyResult", "ActionItem"};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Load the given nodes of one level and expand them.
+     *
+     * @param depth Number of levels to expand below the nodes; 0 loads only the nodes and their counts
+     * @return The nodes found, ordered by id
+     */
+    public List<TreeNode> findNodes(HierarchyLevel level, Collection<Long> ids, int depth) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<TreeNode> nodes = new ArrayList<>();
+        query(level, "id", ids).values().forEach(nodes::addAll);
+        expand(level, nodes, depth);
+        return nodes;
+    }
+
+    /**
+     * A change cursor for {@link #findChangedSince}: the oldest transaction id still running when
+     * the current transaction took its snapshot. Every change this transaction cannot see yet was
+     * made by a transaction with an id of at least this value. Call it before reading the changes,
+     * in the same (read-only) transaction.
+     */
+    public long currentCursor() {
+        return jdbcTemplate.queryForObject("SELECT txid_snapshot_xmin(txid_current_snapshot())", Long.class);
+    }
+
+    /**
+     * The project a node belongs to, or null if the node does not exist.
+     */
+    public Long findProjectId(HierarchyLevel level, Long id) {
+        ProjectPath path = ProjectPath.of(level);
+        List<Long> found = jdbcTemplate.queryForList(
+                "SELECT " + path.projectId() + " FROM " + path.from() + " WHERE n0.id = ?", Long.class, id);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Nodes of a level changed by transactions with an id of at least sinceTxid (see the
+     * change_txid triggers), within the given projects. Each node carries its parentId.
+     */
+    public List<TreeNode> findChangedSince(HierarchyLevel level, long sinceTxid, Collection<Long> projectIds) {
+        if (projectIds.isEmpty()) {
+            return List.of();
+        }
+        ProjectPath path = ProjectPath.of(level);
+        String parentId = level == HierarchyLevel.PROJECT ? "NULL::bigint" : "n0." + level.getParentColumn();
+        String sql = "SELECT " + parentId + " AS parent_id, " + nodeColumns(level)
+                + " FROM " + path.from()
+                + " WHERE n0.change_txid >= ? AND " + path.projectId() + " = ANY(?)"
+                + " ORDER BY n0.id";
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setLong(1, sinceTxid);
+            ps.setArray(2, con.createArrayOf("bigint", projectIds.toArray()));
+            return ps;
+        }, (rs, rowNum) -> {
+            TreeNode node = mapNode(level, rs);
+            node.setParentId(rs.getObject("parent_id", Long.class));
+            return node;
+        });
+    }
+
+    /**
+     * The joins from a level's table (alias n0) up to its project id,
+     * e.g. key_result n0 -> objective n1 -> goal n2 -> strategic_initiative n3.project_id
+     */
+    private record ProjectPath(String from, String projectId) {
+
+        static ProjectPath of(HierarchyLevel level) {
+            StringBuilder from = new StringBuilder(level.getTable()).append(" n0");
+            int alias = 0;
+            HierarchyLevel current = level;
+            while (current != HierarchyLevel.PROJECT && current != HierarchyLevel.INITIATIVE) {
+                HierarchyLevel parent = current.parent();
+                from.append(" JOIN ").append(parent.getTable()).append(" n").append(alias + 1)
+                        .append(" ON n").append(alias + 1).append(".id = n").append(alias)
+                        .append('.').append(current.getParentColumn());
+                alias++;
+                current = parent;
+            }
+            String projectColumn = current == HierarchyLevel.PROJECT ? "id" : "project_id";
+            return new ProjectPath(from.toString(), "n" + alias + "." + projectColumn);
+        }
+    }
+
+    private void expand(HierarchyLevel level, List<TreeNode> nodes, int depth) {
+        HierarchyLevel childLevel = level.child();
+        if (childLevel == null || nodes.isEmpty()) {
+            return;
+        }
+        List<Long> ids = nodes.stream().map(TreeNode::getId).toList();
+        fillCounts(childLevel, nodes, ids);
+        if (depth <= 0) {
+            return;
+        }
+
+        Map<Long, List<TreeNode>> childrenByParent = query(childLevel, childLevel.getParentColumn(), ids);
+        List<TreeNode> allChildren = new ArrayList<>();
+        for (TreeNode node : nodes) {
+            List<TreeNode> children = childrenByParent.getOrDefault(node.getId(), new ArrayList<>());
+            node.setChildren(children);
+            allChildren.addAll(children);
+        }
+        expand(childLevel, allChildren, depth - 1);
+    }
+
+    private void fillCounts(HierarchyLevel childLevel, List<TreeNode> nodes, List<Long> ids) {
+        String parentColumn = childLevel.getParentColumn();
+        Map<Long, int[]> counts = new HashMap<>();
+        jdbcTemplate.query(con -> statement(con, "SELECT " + parentColumn + " AS parent_id, COUNT(*) AS child_count,"
+                + " COUNT(*) FILTER (WHERE is_active) AS active_child_count"
+                + " FROM " + childLevel.getTable()
+                + " WHERE " + parentColumn + " = ANY(?)"
+                + " GROUP BY " + parentColumn, ids), rs -> {
+            counts.put(rs.getLong("parent_id"), new int[]{rs.getInt("child_count"), rs.getInt("active_child_count")});
+        });
+        for (TreeNode node : nodes) {
+            int[] count = counts.getOrDefault(node.getId(), new int[2]);
+            node.setChildCount(count[0]);
+            node.setActiveChildCount(count[1]);
+        }
+    }
+
+    /**
+     * Nodes of a level whose keyColumn is one of the given IDs, grouped by that column, ordered by id.
+     */
+    private Map<Long, List<TreeNode>> query(HierarchyLevel level, String keyColumn, Collection<Long> ids) {
+        String sql = "SELECT n0." + keyColumn + " AS key_id, " + nodeColumns(level)
+                + " FROM " + level.getTable() + " n0"
+                + " WHERE n0." + keyColumn + " = ANY(?)"
+                + " ORDER BY n0.id";
+
+        Map<Long, List<TreeNode>> byKey = new LinkedHashMap<>();
+        jdbcTemplate.query(con -> statement(con, sql, ids), rs -> {
+            byKey.computeIfAbsent(rs.getLong("key_id"), key -> new ArrayList<>()).add(mapNode(level, rs));
+        });
+        return byKey;
+    }
+
+    // The columns read by mapNode, from the table aliased n0
+    private static String nodeColumns(HierarchyLevel level) {
+        String columns = switch (level) {
+            case OBJECTIVE -> ", n0.assignee, n0.year, n0.quarter, n0.due_date";
+            case KEY_RESULT -> ", n0.assignee, n0.metric_start, n0.metric_target, n0.metric_current, n0.unit, n0.manual_progress_set";
+            case ACTION_ITEM -> ", n0.due_date, n0.assignee, n0.is_completed";
+            default -> "";
+        };
+        return "n0.id, n0.title, n0.description, n0.progress, n0.is_active" + columns;
+    }
+
+    private static TreeNode mapNode(HierarchyLevel level, ResultSet rs) throws SQLException {
+        TreeNode node = new TreeNode();
+        node.setId(rs.getLong("id"));
+        node.setType(TYPES[level.ordinal()]);
+        node.setTitle(rs.getString("title"));
+        node.setDescription(rs.getString("description"));
+        node.setProgress(rs.getObject("progress", Integer.class));
+        node.setIsActive(rs.getBoolean("is_active"));
+        if (level == HierarchyLevel.OBJECTIVE) {
+            node.setAssignee(rs.getString("assignee"));
+            node.setYear(rs.getObject("year", Integer.class));
+            node.setQuarter(rs.getString("quarter"));
+            node.setDueDate(toLocalDate(rs.getDate("due_date")));
+        } else if (level == HierarchyLevel.KEY_RESULT) {
+            node.setAssignee(rs.getString("assignee"));
+            node.setMetricStart(rs.getObject("metric_start", Double.class));
+            node.setMetricTarget(rs.getObject("metric_target", Double.class));
+            node.setMetricCurrent(rs.getObject("metric_current", Double.class));
+            node.setUnit(rs.getString("unit"));
+            node.setManualProgressSet(rs.getObject("manual_progress_set", Boolean.class));
+        } else if (level == HierarchyLevel.ACTION_ITEM) {
+            node.setDueDate(toLocalDate(rs.getDate("due_date")));
+            node.setAssignee(rs.getString("assignee"));
+            node.setIsCompleted(rs.getObject("is_completed", Boolean.class));
+        }
+        return node;
+    }
+
+    private static PreparedStatement statement(Connection con, String sql, Collection<Long> ids) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql);
+        ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+        return ps;
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date != null ? date.toLocalDate() : null;
+    }
+}
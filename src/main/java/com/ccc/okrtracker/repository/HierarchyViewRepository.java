@@ -0,0 +1,236 @@
+package com.ccc.okrtracker.repository;
+
+import com.ccc.okrtracker.dto.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads project trees directly into the immutable read model (ProjectView and below) with
+ * plain JDBC projections: one query per level, no entities, no persistence context.
+ * Levels are read bottom-up, so each row can be built with its already complete children.
+ * Like the Project entities, the trees include inactive children; only the projects
+ * themselves must be active.
+ * With a {@link HierarchyFilter} each level keeps only the rows that match it or have a kept
+ * child, so the trees are cut down to the matching nodes and their ancestors in SQL.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HierarchyViewRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Load the trees of the active projects among the given IDs, ordered by id at every level.
+     * Call inside a read-only transaction for a consistent view across the queries.
+     */
+    public List<ProjectView> findProjects(Collection<Long> projectIds) {
+        return findProjects(projectIds, null);
+    }
+
+    /**
+     * Like {@link #findProjects(Collection)}, keeping only the nodes matching the filter and their
+     * ancestors. Projects without a match are left out.
+     *
+     * @param filter null or empty for the full trees
+     */
+    public List<ProjectView> findProjects(Collection<Long> projectIds, HierarchyFilter filter) {
+        if (projectIds.isEmpty()) {
+            return List.of();
+        }
+        boolean filtered = filter != null && !filter.isEmpty();
+
+        List<Object> params = new ArrayList<>(List.of(projectIds));
+        String where = filtered ? " AND " + matchCondition(HierarchyLevel.ACTION_ITEM, filter, params) : "";
+        Map<Long, List<ActionItemView>> actionItems = queryByParent("""
+            SELECT a.key_result_id AS parent_id, a.id, a.title, a.description, a.progress, a.is_active,
+                   a.due_date, a.assignee, a.is_completed
+            FROM action_item a
+            JOIN key_result k ON k.id = a.key_result_id
+            JOIN objective o ON o.id = k.objective_id
+            JOIN goal g ON g.id = o.goal_id
+            JOIN strategic_initiative i ON i.id = g.initiative_id
+            JOIN project p ON p.id = i.project_id AND p.is_active
+            WHERE p.id = ANY(?)%s
+            ORDER BY a.id
+        """.formatted(where), params, (rs, rowNum) -> new ActionItemView(rs.getLong("id"), rs.getString("title"),
+                rs.getString("description"), getInteger(rs, "progress"), rs.getBoolean("is_active"),
+                toLocalDate(rs.getDate("due_date")), rs.getString("assignee"), getBoolean(rs, "is_completed")));
+
+        // A key result is kept if it matches, or if one of its action items was kept
+        params = new ArrayList<>(List.of(projectIds));
+        where = "";
+        if (filtered) {
+            where = " AND (" + matchCondition(HierarchyLevel.KEY_RESULT, filter, params) + " OR k.id = ANY(?))";
+            params.add(actionItems.keySet());
+        }
+        Map<Long, List<KeyResultView>> keyResults = queryByParent("""
+            SELECT k.objective_id AS parent_id, k.id, k.title, k.description, k.progress, k.is_active,
+                   k.assignee, k.metric_start, k.metric_target, k.metric_current, k.unit, k.manual_progress_set
+            FROM key_result k
+            JOIN objective o ON o.id = k.objective_id
+            JOIN goal g ON g.id = o.goal_id
+            JOIN strategic_initiative i ON i.id = g.initiative_id
+            JOIN project p ON p.id = i.project_id AND p.is_active
+            WHERE p.id = ANY(?)%s
+            ORDER BY k.id
+        """.formatted(where), params, (rs, rowNum) -> new KeyResultView(rs.getLong("id"), rs.getString("title"),
+                rs.getString("description"), getInteger(rs, "progress"), rs.getBoolean("is_active"),
+                rs.getString("assignee"), getDouble(rs, "metric_start"), getDouble(rs, "metric_target"),
+                getDouble(rs, "metric_current"), rs.getString("unit"), getBoolean(rs, "manual_progress_set"),
+                children(actionItems, rs)));
+
+        params = new ArrayList<>(List.of(projectIds));
+        where = "";
+        if (filtered) {
+            where = " AND (" + matchCondition(HierarchyLevel.OBJECTIVE, filter, params) + " OR o.id = ANY(?))";
+            params.add(keyResults.keySet());
+        }
+        Map<Long, List<ObjectiveView>> objectives = queryByParent("""
+            SELECT o.goal_id AS parent_id, o.id, o.title, o.description, o.progress, o.is_active,
+                   o.assignee, o.year, o.quarter, o.due_date
+            FROM objective o
+            JOIN goal g ON g.id = o.goal_id
+            JOIN strategic_initiative i ON i.id = g.initiative_id
+            JOIN project p ON p.id = i.project_id AND p.is_active
+            WHERE p.id = ANY(?)%s
+            ORDER BY o.id
+        """.formatted(where), params, (rs, rowNum) -> new ObjectiveView(rs.getLong("id"), rs.getString("title"),
+                rs.getString("description"), getInteger(rs, "progress"), rs.getBoolean("is_active"),
+                rs.getString("assignee"), getInteger(rs, "year"), rs.getString("quarter"),
+                toLocalDate(rs.getDate("due_date")), children(keyResults, rs)));
+
+        // Above objectives nothing can match, so the filter only keeps the ancestors
+        where = filtered ? " AND g.id = ANY(?)" : "";
+        params = filtered ? List.of(projectIds, objectives.keySet()) : List.of(projectIds);
+        Map<Long, List<GoalView>> goals = queryByParent("""
+            SELECT g.initiative_id AS parent_id, g.id, g.title, g.description, g.progress, g.is_active
+            FROM goal g
+            JOIN strategic_initiative i ON i.id = g.initiative_id
+            JOIN project p ON p.id = i.project_id AND p.is_active
+            WHERE p.id = ANY(?)%s
+            ORDER BY g.id
+        """.formatted(where), params, (rs, rowNum) -> new GoalView(rs.getLong("id"), rs.getString("title"),
+                rs.getString("description"), getInteger(rs, "progress"), rs.getBoolean("is_active"),
+                children(objectives, rs)));
+
+        where = filtered ? " AND i.id = ANY(?)" : "";
+        params = filtered ? List.of(projectIds, goals.keySet()) : List.of(projectIds);
+        Map<Long, List<InitiativeView>> initiatives = queryByParent("""
+            SELECT i.project_id AS parent_id, i.id, i.title, i.description, i.progress, i.is_active
+            FROM strategic_initiative i
+            JOIN project p ON p.id = i.project_id AND p.is_active
+            WHERE p.id = ANY(?)%s
+            ORDER BY i.id
+        """.formatted(where), params, (rs, rowNum) -> new InitiativeView(rs.getLong("id"), rs.getString("title"),
+                rs.getString("description"), getInteger(rs, "progress"), rs.getBoolean("is_active"),
+                children(goals, rs)));
+
+        String projectSql = """
+            SELECT p.id, p.title, p.description, p.progress, p.is_active
+            FROM project p
+            WHERE p.id = ANY(?) AND p.is_active%s
+            ORDER BY p.id
+        """.formatted(filtered ? " AND p.id = ANY(?)" : "");
+        List<Object> projectParams = filtered ? List.of(projectIds, initiatives.keySet()) : List.of(projectIds);
+        return jdbcTemplate.query(con -> statement(con, projectSql, projectParams), (rs, rowNum) -> new ProjectView(
+                rs.getLong("id"), rs.getString("title"), rs.getString("description"), getInteger(rs, "progress"),
+                rs.getBoolean("is_active"), initiatives.getOrDefault(rs.getLong("id"), List.of())));
+    }
+
+    /**
+     * The filter as a condition on one level's row, with the objective (alias o) joined.
+     * Appends the condition's parameters.
+     */
+    private static String matchCondition(HierarchyLevel level, HierarchyFilter filter, List<Object> params) {
+        boolean dueFilter = filter.getDueBefore() != null || Boolean.TRUE.equals(filter.getOverdue());
+        if (level == HierarchyLevel.KEY_RESULT && dueFilter) {
+            return "FALSE";
+        }
+        String alias = switch (level) {
+            case OBJECTIVE -> "o";
+            case KEY_RESULT -> "k";
+            default -> "a";
+        };
+        List<String> terms = new ArrayList<>();
+        if (filter.getAssignee() != null) {
+            terms.add(alias + ".assignee = ?");
+            params.add(filter.getAssignee());
+        }
+        if (filter.getYear() != null) {
+            terms.add("o.year = ?");
+            params.add(filter.getYear());
+        }
+        if (filter.getQuarter() != null) {
+            terms.add("o.quarter = ?");
+            params.add(filter.getQuarter());
+        }
+        if (filter.getDueBefore() != null) {
+            terms.add(alias + ".due_date < ?");
+            params.add(Date.valueOf(filter.getDueBefore()));
+        }
+        if (Boolean.TRUE.equals(filter.getOverdue())) {
+            terms.add(alias + ".due_date < CURRENT_DATE");
+            terms.add(level == HierarchyLevel.OBJECTIVE ? "COALESCE(o.progress, 0) < 100" : "NOT COALESCE(a.is_completed, FALSE)");
+        }
+        return String.join(" AND ", terms);
+    }
+
+    // Runs a level query and groups the built views by their parent_id, keeping the row order
+    private <T> Map<Long, List<T>> queryByParent(String sql, List<Object> params, RowMapper<T> mapper) {
+        Map<Long, List<T>> byParent = new HashMap<>();
+        jdbcTemplate.query(con -> statement(con, sql, params), rs -> {
+            byParent.computeIfAbsent(rs.getLong("parent_id"), id -> new ArrayList<>())
+                    .add(mapper.mapRow(rs, 0));
+        });
+        return byParent;
+    }
+
+    private static <T> List<T> children(Map<Long, List<T>> byParent, ResultSet rs) throws SQLException {
+        List<T> children = byParent.get(rs.getLong("id"));
+        return children != null ? List.copyOf(children) : List.of();
+    }
+
+    // Collections are bound as bigint arrays, for "= ANY(?)"
+    private static PreparedStatement statement(Connection con, String sql, List<Object> params) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql);
+        for (int i = 0; i < params.size(); i++) {
+            Object param = params.get(i);
+            if (param instanceof Collection<?> ids) {
+                ps.setArray(i + 1, con.createArrayOf("bigint", ids.toArray()));
+            } else {
+                ps.setObject(i + 1, param);
+            }
+        }
+        return ps;
+    }
+
+    private static Integer getInteger(ResultSet rs, String column) throws SQLException {
+        return rs.getObject(column, Integer.class);
+    }
+
+    private static Double getDouble(ResultSet rs, String column) throws SQLException {
+        return rs.getObject(column, Double.class);
+    }
+
+    private static Boolean getBoolean(ResultSet rs, String column) throws SQLException {
+        return rs.getObject(column, Boolean.class);
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date != null ? date.toLocalDate() : null;
+    }
+}
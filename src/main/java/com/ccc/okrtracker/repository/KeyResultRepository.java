@@ -2,10 +2,17 @@ package com.ccc.okrtracker.repository;
 
 import com.ccc.okrtracker.entity.KeyResult;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface KeyResultRepository extends JpaRepository<KeyResult, Long> {
-    // We fetch all because we do in-memory filtering in frontend for tree
-    // But specific queries can be added here
+    // Trees are read through HierarchyViewRepository, which also applies the hierarchy filters
+    // (assignee, year/quarter, due date) in SQL
+
+    // Sum and count of active children's progress, used by path-only rollup
+    @Query("SELECT COALESCE(SUM(k.progress), 0) AS progressSum, COUNT(k) AS activeCount " +
+           "FROM KeyResult k WHERE k.objective.id = :objectiveId AND k.isActive = true")
+    ChildProgressAggregate aggregateActiveProgressByObjective(@Param("objectiveId") Long objectiveId);
 }
\ No newline at end of file
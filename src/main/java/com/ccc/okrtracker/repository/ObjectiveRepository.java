@@ -2,10 +2,17 @@ package com.ccc.okrtracker.repository;
 
 import com.ccc.okrtracker.entity.Objective;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ObjectiveRepository extends JpaRepository<Objective, Long> {
-    // We fetch all because we do in-memory filtering in frontend for tree
-    // But specific queries can be added here
+    // Trees are read through HierarchyViewRepository, which also applies the hierarchy filters
+    // (assignee, year/quarter, due date) in SQL
+
+    // Sum and count of active children's progress, used by path-only rollup
+    @Query("SELECT COALESCE(SUM(o.progress), 0) AS progressSum, COUNT(o) AS activeCount " +
+           "FROM Objective o WHERE o.goal.id = :goalId AND o.isActive = true")
+    ChildProgressAggregate aggregateActiveProgressByGoal(@Param("goalId") Long goalId);
 }
\ No newline at end of file
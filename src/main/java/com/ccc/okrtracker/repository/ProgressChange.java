@@ -0,0 +1,7 @@
+package com.ccc.okrtracker.repository;
+
+/**
+ * A node whose progress was changed by a set-based rollup.
+ */
+public record ProgressChange(HierarchyLevel level, Long id, int progress) {
+}
@@ -0,0 +1,92 @@
+package com.ccc.okrtracker.repository;
+
+import com.ccc.okrtracker.dto.ProgressHistoryPoint;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Append-only store of progress values over time (progress_history).
+ * Rows are never updated; one row is a (node, time, progress) point, kept compact
+ * (smallint level and progress, no surrogate key) so the table can hold millions of points.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProgressHistoryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * A point to append.
+     */
+    public record Point(HierarchyLevel level, Long projectId, Long nodeId, int progress, LocalDateTime recordedAt) {
+    }
+
+    /**
+     * Append points as a single JDBC batch.
+     */
+    public void append(List<Point> points) {
+        if (points.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO progress_history (project_id, node_level, node_id, progress, recorded_at)
+            VALUES (?, ?, ?, ?, ?)
+        """, points, points.size(), (ps, point) -> {
+            ps.setLong(1, point.projectId());
+            ps.setShort(2, (short) point.level().ordinal());
+            ps.setLong(3, point.nodeId());
+            ps.setShort(4, (short) point.progress());
+            ps.setTimestamp(5, Timestamp.valueOf(point.recordedAt()));
+        });
+    }
+
+    /**
+     * Downsample the history of one node into time buckets, in the database.
+     * Only points of the given projects are considered, so inaccessible nodes simply have no history.
+     *
+     * @param bucket A date_trunc unit, e.g. "day" or "week"
+     */
+    public List<ProgressHistoryPoint> findBuckets(HierarchyLevel level, Long nodeId, Collection<Long> projectIds,
+                                                  LocalDateTime from, LocalDateTime to, String bucket) {
+        if (projectIds.isEmpty()) {
+            return List.of();
+        }
+        String sql = """
+            SELECT date_trunc(:bucket, recorded_at) AS bucket_start,
+                   (array_agg(progress ORDER BY recorded_at DESC))[1] AS last_progress,
+                   MIN(progress) AS min_progress,
+                   MAX(progress) AS max_progress,
+                   COUNT(*) AS samples
+            FROM progress_history
+            WHERE node_level = :level
+              AND node_id = :nodeId
+              AND project_id IN (:projectIds)
+              AND recorded_at >= :from
+              AND recorded_at < :to
+            GROUP BY bucket_start
+            ORDER BY bucket_start
+        """;
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("bucket", bucket)
+                .addValue("level", (short) level.ordinal())
+                .addValue("nodeId", nodeId)
+                .addValue("projectIds", projectIds)
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        return namedJdbcTemplate.query(sql, params, (rs, rowNum) -> new ProgressHistoryPoint(
+                rs.getTimestamp("bucket_start").toLocalDateTime(),
+                rs.getInt("last_progress"),
+                rs.getInt("min_progress"),
+                rs.getInt("max_progress"),
+                rs.getLong("samples")));
+    }
+}
@@ -0,0 +1,220 @@
+package com.ccc.okrtracker.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Set-based progress rollup for a whole project.
+ * Runs one grouped UPDATE ... FROM per hierarchy level, bottom-up, without hydrating
+ * the JPA graph. Mirrors CalculationService.recalculateProject:
+ * - only nodes whose whole ancestor chain is active are recalculated
+ * - manual KRs keep their progress, other KRs use action items, then metrics
+ * - metricCurrent is back-filled from action item progress
+ * - a parent without active children gets 0, a project without active initiatives is left alone
+ * Only rows whose value actually changes are written; the UPDATEs return the rows whose
+ * progress changed, for the progress history, and how many rows were written in total.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProgressRollupSqlRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The outcome of a project rollup.
+     *
+     * @param changes     The nodes whose progress changed, bottom-up
+     * @param updatedRows All rows written, including KRs whose only change is their metricCurrent
+     */
+    public record Result(List<ProgressChange> changes, int updatedRows) {
+    }
+
+    /**
+     * Recalculate the progress of every level of a project.
+     * Must run inside a transaction so the levels are updated atomically.
+     */
+    public Result rollupProject(Long projectId) {
+        List<ProgressChange> changes = new ArrayList<>();
+        int updatedRows = rollupKeyResults(projectId, changes);
+        for (List<ProgressChange> level : List.of(rollupObjectives(projectId), rollupGoals(projectId),
+                rollupInitiatives(projectId), rollupProjectRow(projectId))) {
+            changes.addAll(level);
+            updatedRows += level.size();
+        }
+        return new Result(changes, updatedRows);
+    }
+
+    // Adds the KRs whose progress changed to the list; metric-only updates are not progress changes
+    private int rollupKeyResults(Long projectId, List<ProgressChange> changes) {
+        String sql = """
+            WITH ai AS (
+                SELECT a.key_result_id,
+                       COUNT(*) AS total_count,
+                       COUNT(*) FILTER (WHERE a.is_active) AS active_count,
+                       COALESCE(SUM(COALESCE(a.progress, 0)) FILTER (WHERE a.is_active), 0) AS active_sum
+                FROM action_item a
+                JOIN key_result k ON k.id = a.key_result_id
+                JOIN objective o ON o.id = k.objective_id
+                JOIN goal g ON g.id = o.goal_id
+                JOIN strategic_initiative i ON i.id = g.initiative_id
+                WHERE i.project_id = ?
+                GROUP BY a.key_result_id
+            ),
+            calc AS (
+                SELECT k.id,
+                       COALESCE(k.manual_progress_set, false) AS manual,
+                       COALESCE(ai.active_count, 0) AS active_count,
+                       COALESCE(ai.total_count, 0) AS total_count,
+                       CASE
+                           WHEN COALESCE(k.manual_progress_set, false) THEN COALESCE(k.progress, 0)
+                           WHEN ai.active_count > 0 THEN LEAST(100, ROUND(ai.active_sum::numeric / ai.active_count))
+                           WHEN ai.total_count > 0 THEN 0
+                           WHEN k.metric_target > 0 AND k.metric_current IS NOT NULL THEN
+                               CASE
+                                   WHEN k.metric_target - COALESCE(k.metric_start, 0) <> 0 THEN
+                                       GREATEST(0, LEAST(100, ROUND((((k.metric_current - COALESCE(k.metric_start, 0))
+                                           / (k.metric_target - COALESCE(k.metric_start, 0))) * 100)::numeric)))
+                                   ELSE 0
+                               END
+                           ELSE COALESCE(k.progress, 0)
+                       END AS new_progress
+                FROM key_result k
+                JOIN objective o ON o.id = k.objective_id
+                JOIN goal g ON g.id = o.goal_id
+                JOIN strategic_initiative i ON i.id = g.initiative_id
+                LEFT JOIN ai ON ai.key_result_id = k.id
+                WHERE i.project_id = ?
+                  AND k.is_active AND o.is_active AND g.is_active AND i.is_active
+            ),
+            target AS (
+                SELECT c.id,
+                       c.new_progress,
+                       k.progress IS DISTINCT FROM c.new_progress AS progress_changed,
+                       CASE
+                           WHEN c.manual OR NOT (k.metric_target > 0) THEN k.metric_current
+                           WHEN c.active_count > 0 THEN COALESCE(k.metric_start, 0)
+                               + (k.metric_target - COALESCE(k.metric_start, 0)) * c.new_progress::double precision / 100.0
+                           WHEN c.total_count > 0 THEN COALESCE(k.metric_start, 0)
+                           ELSE k.metric_current
+                       END AS new_metric_current
+                FROM calc c
+                JOIN key_result k ON k.id = c.id
+            ),
+            updated AS (
+                UPDATE key_result kr
+                SET progress = t.new_progress,
+                    metric_current = t.new_metric_current,
+                    updated_date = CURRENT_TIMESTAMP
+                FROM target t
+                WHERE kr.id = t.id
+                  AND (kr.progress IS DISTINCT FROM t.new_progress
+                       OR kr.metric_current IS DISTINCT FROM t.new_metric_current)
+                RETURNING kr.id, kr.progress, t.progress_changed
+            )
+            SELECT id, progress, progress_changed FROM updated
+        """;
+        int[] updatedRows = new int[1];
+        jdbcTemplate.query(sql, rs -> {
+            updatedRows[0]++;
+            if (rs.getBoolean("progress_changed")) {
+                changes.add(new ProgressChange(HierarchyLevel.KEY_RESULT, rs.getLong("id"), rs.getInt("progress")));
+            }
+        }, projectId, projectId);
+        return updatedRows[0];
+    }
+
+    private List<ProgressChange> rollupObjectives(Long projectId) {
+        String sql = """
+            UPDATE objective t
+            SET progress = c.new_progress,
+                updated_date = CURRENT_TIMESTAMP
+            FROM (
+                SELECT o.id,
+                       COALESCE(ROUND(SUM(COALESCE(k.progress, 0))::numeric / NULLIF(COUNT(k.id), 0)), 0) AS new_progress
+                FROM objective o
+                JOIN goal g ON g.id = o.goal_id
+                JOIN strategic_initiative i ON i.id = g.initiative_id
+                LEFT JOIN key_result k ON k.objective_id = o.id AND k.is_active
+                WHERE i.project_id = ?
+                  AND o.is_active AND g.is_active AND i.is_active
+                GROUP BY o.id
+            ) c
+            WHERE t.id = c.id
+              AND t.progress IS DISTINCT FROM c.new_progress
+            RETURNING t.id, t.progress
+        """;
+        return jdbcTemplate.query(sql, changeMapper(HierarchyLevel.OBJECTIVE), projectId);
+    }
+
+    private List<ProgressChange> rollupGoals(Long projectId) {
+        String sql = """
+            UPDATE goal t
+            SET progress = c.new_progress,
+                updated_date = CURRENT_TIMESTAMP
+            FROM (
+                SELECT g.id,
+                       COALESCE(ROUND(SUM(COALESCE(o.progress, 0))::numeric / NULLIF(COUNT(o.id), 0)), 0) AS new_progress
+                FROM goal g
+                JOIN strategic_initiative i ON i.id = g.initiative_id
+                LEFT JOIN objective o ON o.goal_id = g.id AND o.is_active
+                WHERE i.project_id = ?
+                  AND g.is_active AND i.is_active
+                GROUP BY g.id
+            ) c
+            WHERE t.id = c.id
+              AND t.progress IS DISTINCT FROM c.new_progress
+            RETURNING t.id, t.progress
+        """;
+        return jdbcTemplate.query(sql, changeMapper(HierarchyLevel.GOAL), projectId);
+    }
+
+    private List<ProgressChange> rollupInitiatives(Long projectId) {
+        String sql = """
+            UPDATE strategic_initiative t
+            SET progress = c.new_progress,
+                updated_date = CURRENT_TIMESTAMP
+            FROM (
+                SELECT i.id,
+                       COALESCE(ROUND(SUM(COALESCE(g.progress, 0))::numeric / NULLIF(COUNT(g.id), 0)), 0) AS new_progress
+                FROM strategic_initiative i
+                LEFT JOIN goal g ON g.initiative_id = i.id AND g.is_active
+                WHERE i.project_id = ?
+                  AND i.is_active
+                GROUP BY i.id
+            ) c
+            WHERE t.id = c.id
+              AND t.progress IS DISTINCT FROM c.new_progress
+            RETURNING t.id, t.progress
+        """;
+        return jdbcTemplate.query(sql, changeMapper(HierarchyLevel.INITIATIVE), projectId);
+    }
+
+    private List<ProgressChange> rollupProjectRow(Long projectId) {
+        String sql = """
+            UPDATE project t
+            SET progress = c.new_progress,
+                updated_date = CURRENT_TIMESTAMP
+            FROM (
+                SELECT i.project_id,
+                       ROUND(SUM(COALESCE(i.progress, 0))::numeric / COUNT(*)) AS new_progress
+                FROM strategic_initiative i
+                WHERE i.project_id = ?
+                  AND i.is_active
+                GROUP BY i.project_id
+            ) c
+            WHERE t.id = c.project_id
+              AND t.progress IS DISTINCT FROM c.new_progress
+            RETURNING t.id, t.progress
+        """;
+        return jdbcTemplate.query(sql, changeMapper(HierarchyLevel.PROJECT), projectId);
+    }
+
+    private static RowMapper<ProgressChange> changeMapper(HierarchyLevel level) {
+        return (rs, rowNum) -> new ProgressChange(level, rs.getLong("id"), rs.getInt("progress"));
+    }
+}
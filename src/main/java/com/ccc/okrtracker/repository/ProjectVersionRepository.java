@@ -0,0 +1,45 @@
+package com.ccc.okrtracker.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The per-project tree version (project.tree_version), bumped on every write to a project's
+ * hierarchy. Not mapped on the Project entity, so entity saves never overwrite it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProjectVersionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void increment(Long projectId) {
+        jdbcTemplate.update("UPDATE project SET tree_version = tree_version + 1 WHERE id = ?", projectId);
+    }
+
+    /**
+     * Versions of the active projects among the given IDs, ordered by project id.
+     * Reads the project table only.
+     */
+    public Map<Long, Long> findActiveVersions(Collection<Long> projectIds) {
+        Map<Long, Long> versions = new LinkedHashMap<>();
+        if (projectIds.isEmpty()) {
+            return versions;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT id, tree_version FROM project WHERE id = ANY(?) AND is_active ORDER BY id");
+            ps.setArray(1, con.createArrayOf("bigint", projectIds.toArray()));
+            return ps;
+        }, rs -> {
+            versions.put(rs.getLong("id"), rs.getLong("tree_version"));
+        });
+        return versions;
+    }
+}
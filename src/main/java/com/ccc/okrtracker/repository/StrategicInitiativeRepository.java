@@ -3,10 +3,17 @@ package com.ccc.okrtracker.repository;
 
 import com.ccc.okrtracker.entity.StrategicInitiative;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface StrategicInitiativeRepository extends JpaRepository<StrategicInitiative, Long> {
     // We fetch all because we do in-memory filtering in frontend for tree
     // But specific queries can be added here
+
+    // Sum and count of active children's progress, used by path-only rollup
+    @Query("SELECT COALESCE(SUM(i.progress), 0) AS progressSum, COUNT(i) AS activeCount " +
+           "FROM StrategicInitiative i WHERE i.project.id = :projectId AND i.isActive = true")
+    ChildProgressAggregate aggregateActiveProgressByProject(@Param("projectId") Long projectId);
 }
\ No newline at end of file
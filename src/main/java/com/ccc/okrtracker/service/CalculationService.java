@@ -3,16 +3,22 @@
 package com.ccc.okrtracker.service;
 
 import com.ccc.okrtracker.entity.*;
+import com.ccc.okrtracker.exception.ResourceNotFoundException;
 import com.ccc.okrtracker.repository.*;
 import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
-import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -20,21 +26,257 @@ public class CalculationService {
 
     private static final Logger logger = LoggerFactory.getLogger(CalculationService.class);
 
-    private final ProjectRepository projectRepository;
+    // RollupTrace node names, indexed by HierarchyLevel ordinal
+    private static final String[] TRACE_NODE_NAMES = {"PROJ", "INIT", "GOAL", "OBJ", "KR", "AI"};
+
+    private final HierarchyLoader hierarchyLoader;
     private final KeyResultRepository krRepository;
     private final ObjectiveRepository objectiveRepository;
     private final GoalRepository goalRepository;
     private final StrategicInitiativeRepository initiativeRepository;
+    private final ActionItemRepository actionItemRepository;
+    private final ProgressRollupSqlRepository rollupSqlRepository;
+    private final HierarchySnapshotRepository snapshotRepository;
+    private final ProjectRollupLock rollupLock;
+    private final ProgressChangePublisher progressChanges;
+    private final ProjectVersionService projectVersions;
     private final EntityManager entityManager;
 
+    @Value("${app.rollup.mode:FULL}")
+    private RollupMode rollupMode;
+
+    @Value("${app.rollup.engine:JAVA}")
+    private RollupEngine rollupEngine;
+
+    // Projects whose rollups are always traced (see RollupTrace), e.g. while investigating a report
+    @Value("${app.rollup.trace.project-ids:}")
+    private Set<Long> traceProjectIds = Set.of();
+
+    public RollupMode getRollupMode() {
+        return rollupMode;
+    }
+
     // Helper to safely extract Integer progress, defaulting to 0 if null
     private int safeProgress(Integer progress) {
         return Optional.ofNullable(progress).orElse(0);
     }
 
+    /**
+     * Rolls up progress after a node of the given project was added, updated or soft-deleted.
+     * In FULL mode the whole project is recalculated; in PATH mode only the changed node
+     * and its ancestors are (see {@link #recalculatePath(Long, BaseEntity)}).
+     *
+     * @param projectId The project the changed node belongs to
+     * @param changed   The node that was written
+     */
+    @Transactional
+    public void recalculateAfterChange(Long projectId, BaseEntity changed) {
+        rollupLock.lockForRollup(projectId);
+        projectVersions.markChanged(projectId);
+        traced(projectId, () -> {
+            if (rollupMode == RollupMode.PATH && changed != null && !(changed instanceof Project)) {
+                recalculatePath(projectId, changed);
+            } else {
+                recalculateProject(projectId);
+            }
+        });
+    }
+
+    /**
+     * Runs a rollup with a trace if the project is listed in app.rollup.trace.project-ids and
+     * no trace is active yet; the trace is then logged as a single event.
+     */
+    private void traced(Long projectId, Runnable rollup) {
+        RollupTrace trace = traceProjectIds.contains(projectId) ? RollupTrace.start() : null;
+        try {
+            rollup.run();
+        } finally {
+            if (trace != null) {
+                trace.end();
+                logger.info("Rollup trace project id={}: {}", projectId, trace);
+            }
+        }
+    }
+
+    /**
+     * Recalculates the changed node from its direct children, then walks up
+     * KR -> Objective -> Goal -> Initiative -> Project, recomputing each ancestor from
+     * the stored progress of its active children. Siblings are read as aggregates,
+     * so a single edit costs O(depth x siblings) instead of O(project size).
+     * The same as in the full rollup, an inactive changed node keeps its progress (its parent
+     * is still recalculated), and nothing is recalculated below an inactive ancestor.
+     *
+     * @param projectId The project the changed node belongs to
+     * @param changed   The node that was written (ActionItem, KeyResult, Objective, Goal or StrategicInitiative)
+     * @throws IllegalArgumentException for a Project, which is always recalculated in full
+     */
+    @Transactional
+    public void recalculatePath(Long projectId, BaseEntity changed) {
+        if (!ancestorsActive(changed)) {
+            // The full rollup skips the whole path below the inactive ancestor, and the nodes
+            // above it do not count it, so nothing can change
+            RollupTrace trace = RollupTrace.current();
+            if (trace != null) {
+                trace.event(TRACE_NODE_NAMES[HierarchyLevel.of(changed).ordinal()] + "#" + changed.getId() + " below inactive ancestor");
+            }
+            return;
+        }
+        // Make the write visible to the aggregate queries below
+        entityManager.flush();
+
+        if (changed instanceof ActionItem ai) {
+            rollupKeyResult(projectId, ai.getKeyResult());
+        } else if (changed instanceof KeyResult kr) {
+            rollupKeyResult(projectId, kr);
+        } else if (changed instanceof Objective obj) {
+            rollupObjective(projectId, obj);
+        } else if (changed instanceof Goal goal) {
+            rollupGoal(projectId, goal);
+        } else if (changed instanceof StrategicInitiative init) {
+            rollupInitiative(projectId, init);
+        } else {
+            throw new IllegalArgumentException("No path rollup for " + changed.getType());
+        }
+    }
+
+    // Whether every ancestor of the node below the project is active
+    private static boolean ancestorsActive(BaseEntity node) {
+        BaseEntity ancestor = parentOf(node);
+        while (ancestor != null && !(ancestor instanceof Project)) {
+            if (!ancestor.getIsActive()) {
+                return false;
+            }
+            ancestor = parentOf(ancestor);
+        }
+        return true;
+    }
+
+    private static BaseEntity parentOf(BaseEntity node) {
+        if (node instanceof ActionItem ai) {
+            return ai.getKeyResult();
+        } else if (node instanceof KeyResult kr) {
+            return kr.getObjective();
+        } else if (node instanceof Objective obj) {
+            return obj.getGoal();
+        } else if (node instanceof Goal goal) {
+            return goal.getInitiative();
+        } else if (node instanceof StrategicInitiative init) {
+            return init.getProject();
+        }
+        return null;
+    }
+
+    private void rollupKeyResult(Long projectId, KeyResult kr) {
+        if (kr.getIsActive()) {
+            int krProgress = calculateKeyResultProgress(kr, actionItemRepository.findByKeyResultId(kr.getId()));
+            applyProgress(HierarchyLevel.KEY_RESULT, projectId, kr.getId(), kr::getProgress, kr::setProgress, krProgress);
+        }
+        rollupObjective(projectId, kr.getObjective());
+    }
+
+    private void rollupObjective(Long projectId, Objective obj) {
+        if (obj.getIsActive()) {
+            applyPathProgress(HierarchyLevel.OBJECTIVE, projectId, obj.getId(), obj::getProgress, obj::setProgress,
+                    krRepository.aggregateActiveProgressByObjective(obj.getId()));
+        }
+        rollupGoal(projectId, obj.getGoal());
+    }
+
+    private void rollupGoal(Long projectId, Goal goal) {
+        if (goal.getIsActive()) {
+            applyPathProgress(HierarchyLevel.GOAL, projectId, goal.getId(), goal::getProgress, goal::setProgress,
+                    objectiveRepository.aggregateActiveProgressByGoal(goal.getId()));
+        }
+        rollupInitiative(projectId, goal.getInitiative());
+    }
+
+    private void rollupInitiative(Long projectId, StrategicInitiative init) {
+        if (init.getIsActive()) {
+            applyPathProgress(HierarchyLevel.INITIATIVE, projectId, init.getId(), init::getProgress, init::setProgress,
+                    goalRepository.aggregateActiveProgressByInitiative(init.getId()));
+        }
+        rollupProject(init.getProject());
+    }
+
+    private void rollupProject(Project project) {
+        ChildProgressAggregate initiatives = initiativeRepository.aggregateActiveProgressByProject(project.getId());
+        // Same as the full rollup: a project without active initiatives keeps its progress
+        if (initiatives.getActiveCount() > 0) {
+            applyPathProgress(HierarchyLevel.PROJECT, project.getId(), project.getId(), project::getProgress,
+                    project::setProgress, initiatives);
+        }
+        logger.debug("Path rollup reached project id={}, progress={}", project.getId(), project.getProgress());
+    }
+
+    private void applyPathProgress(HierarchyLevel level, Long projectId, Long id, Supplier<Integer> getter,
+                                   Consumer<Integer> setter, ChildProgressAggregate children) {
+        int value = averageOrZero(children);
+        applyProgress(level, projectId, id, getter, setter, value);
+        RollupTrace trace = RollupTrace.current();
+        if (trace != null) {
+            trace.node(TRACE_NODE_NAMES[level.ordinal()], id, "path avg " + children.getActiveCount(), value);
+        }
+    }
+
+    /**
+     * Sets a node's progress only when the value differs, so unchanged nodes never become
+     * dirty and no UPDATE is issued for them. Entities are managed, so no save() is needed.
+     * A changed value is also recorded in the progress history.
+     *
+     * @return true if the progress changed
+     */
+    private boolean applyProgress(HierarchyLevel level, Long projectId, Long id,
+                                  Supplier<Integer> getter, Consumer<Integer> setter, int value) {
+        if (Objects.equals(getter.get(), value)) {
+            return false;
+        }
+        setter.accept(value);
+        progressChanges.changed(level, projectId, id, value);
+        return true;
+    }
+
+    // Rounded average of the active children, 0 when there are none (matches recalculateProject)
+    private int averageOrZero(ChildProgressAggregate aggregate) {
+        long count = aggregate.getActiveCount();
+        if (count == 0) {
+            return 0;
+        }
+        return Math.round((float) aggregate.getProgressSum() / count);
+    }
+
+    /**
+     * Recalculates every active node of a project. The project's tree version is bumped
+     * only if a row was written, so a rollup that finds nothing to change keeps the
+     * cached tree and the clients' ETags valid.
+     */
     @Transactional
     public void recalculateProject(Long projectId) {
-        logger.info("=== RECALCULATE PROJECT START: projectId={} ===", projectId);
+        // Serialize rollups of the same project until commit; other projects are unaffected
+        rollupLock.lockForRollup(projectId);
+        int[] updatedRows = new int[1];
+        traced(projectId, () -> {
+            if (rollupEngine == RollupEngine.SQL) {
+                updatedRows[0] = recalculateProjectWithSql(projectId);
+            } else if (rollupEngine == RollupEngine.SNAPSHOT) {
+                updatedRows[0] = recalculateProjectWithSnapshot(projectId);
+            } else {
+                updatedRows[0] = recalculateProjectWithEntities(projectId);
+            }
+        });
+        if (updatedRows[0] > 0) {
+            projectVersions.markChanged(projectId);
+        }
+    }
+
+    /**
+     * Entity-based rollup: loads the whole project graph and recalculates it bottom-up.
+     * Per-node decisions are only recorded when a RollupTrace is active.
+     *
+     * @return The number of nodes written
+     */
+    private int recalculateProjectWithEntities(Long projectId) {
+        logger.debug("=== RECALCULATE PROJECT START: projectId={} ===", projectId);
+        RollupTrace trace = RollupTrace.current();
         
         // Synchronize any pending changes to database before clearing cache
         // This ensures all previous saves are committed before we fetch fresh data
@@ -49,154 +291,67 @@ public class CalculationService {
         // This prevents stale data issues in test environments and long-running transactions
         entityManager.clear();
         
-        // Fetch project
-        Project project = projectRepository.findById(projectId).orElseThrow();
-
-        // Force initialization of lazy collections at all levels
-        Hibernate.initialize(project.getInitiatives());
-        
-        for (StrategicInitiative init : project.getInitiatives()) {
-            Hibernate.initialize(init.getGoals());
-            for (Goal goal : init.getGoals()) {
-                Hibernate.initialize(goal.getObjectives());
-                for (Objective obj : goal.getObjectives()) {
-                    Hibernate.initialize(obj.getKeyResults());
-                    for (KeyResult kr : obj.getKeyResults()) {
-                        Hibernate.initialize(kr.getActionItems());
-                    }
-                }
-            }
-        }
+        // Fetch the project with its whole tree, one query per level
+        Project project = hierarchyLoader.loadProject(projectId).orElseThrow();
         
         int projTotal = 0;
         int initCount = 0;
+        int changedNodes = 0;
 
         for (StrategicInitiative init : project.getInitiatives()) {
-            logger.info("Initiative id={}, isActive={}", init.getId(), init.getIsActive());
-            if (!init.getIsActive()) continue;
+            if (!init.getIsActive()) {
+                if (trace != null) trace.event("INIT#" + init.getId() + " inactive");
+                continue;
+            }
 
             int initTotal = 0;
             int goalCount = 0;
 
             for (Goal goal : init.getGoals()) {
-                logger.info("  Goal id={}, isActive={}", goal.getId(), goal.getIsActive());
-                if (!goal.getIsActive()) continue;
+                if (!goal.getIsActive()) {
+                    if (trace != null) trace.event("GOAL#" + goal.getId() + " inactive");
+                    continue;
+                }
 
                 int goalTotal = 0;
                 int objCount = 0;
 
                 for (Objective obj : goal.getObjectives()) {
-                    logger.info("    Objective id={}, isActive={}", obj.getId(), obj.getIsActive());
-                    if (!obj.getIsActive()) continue;
+                    if (!obj.getIsActive()) {
+                        if (trace != null) trace.event("OBJ#" + obj.getId() + " inactive");
+                        continue;
+                    }
 
                     int objTotal = 0;
                     int krCount = 0;
 
                     for (KeyResult kr : obj.getKeyResults()) {
-                        logger.info("      KeyResult id={}, isActive={}", kr.getId(), kr.getIsActive());
-                        if (!kr.getIsActive()) continue;
-
-                        // KR Logic: Smart calculation based on manual lock flag
-                        // 1. If KR was manually set (manualProgressSet=true), use direct value and ignore action items
-                        // 2. Otherwise, calculate from action items or metrics
-                        int krProgress = 0;
-                        
-                        boolean manuallySet = kr.getManualProgressSet() != null && kr.getManualProgressSet();
-                        
-                        logger.info("KR {} calculation: manualProgressSet={}, hasActionItems={}, hasMetrics={}", 
-                                kr.getId(), 
-                                manuallySet, 
-                                !kr.getActionItems().isEmpty(),
-                                (kr.getMetricTarget() != null && kr.getMetricCurrent() != null));
-                        
-                        if (manuallySet) {
-                            // If manually set, use the progress value directly - don't recalculate or sync from metrics
-                            // This preserves the user's manual input while allowing rollup to parent entities
-                            krProgress = safeProgress(kr.getProgress());
-                            logger.info("KR {} is MANUAL: using progress={}", kr.getId(), krProgress);
-                        } else {
-                            // KR was not manually set, calculate from action items or metrics
-                            
-                            // Check if action items exist and should be used
-                            long totalAiCount = kr.getActionItems().stream()
-                                    .filter(ai -> ai != null)
-                                    .count();
-                            long activeAiCount = kr.getActionItems().stream()
-                                    .filter(ai -> ai != null)
-                                    .filter(BaseEntity::getIsActive)
-                                    .count();
-                            
-                            logger.info("KR {} action items: total={}, active={}", kr.getId(), totalAiCount, activeAiCount);
-
-                            if (activeAiCount > 0) {
-                                // Calculate KR progress from average of action items
-                                double aiSum = kr.getActionItems().stream()
-                                        .filter(ai -> ai != null)
-                                        .filter(BaseEntity::getIsActive)
-                                        .mapToInt(ai -> safeProgress(ai.getProgress()))
-                                        .sum();
-                                krProgress = (int) Math.min(100, Math.round(aiSum / activeAiCount));
-                                logger.info("KR {} calculated from {} active action items: progress={}", kr.getId(), activeAiCount, krProgress);
-                                
-                                // Update metricCurrent to reflect the calculated progress
-                                if (kr.getMetricTarget() != null && kr.getMetricTarget() > 0) {
-                                    double start = Optional.ofNullable(kr.getMetricStart()).orElse(0.0);
-                                    double target = kr.getMetricTarget();
-                                    double range = target - start;
-                                    double newCurrent = start + (range * krProgress / 100.0);
-                                    kr.setMetricCurrent(newCurrent);
-                                }
-                            } else if (totalAiCount > 0) {
-                                // All action items were deleted - reset progress to 0
-                                krProgress = 0;
-                                logger.info("KR {} has {} deleted action items, resetting progress to 0", kr.getId(), totalAiCount);
-                                // Also reset metricCurrent if metrics exist
-                                if (kr.getMetricTarget() != null && kr.getMetricTarget() > 0) {
-                                    double start = Optional.ofNullable(kr.getMetricStart()).orElse(0.0);
-                                    kr.setMetricCurrent(start);
-                                }
-                            } else if (kr.getMetricTarget() != null && kr.getMetricTarget() > 0 && 
-                                      kr.getMetricCurrent() != null) {
-                                // No action items, calculate from metrics
-                                double target = kr.getMetricTarget();
-                                double start = Optional.ofNullable(kr.getMetricStart()).orElse(0.0);
-                                double current = kr.getMetricCurrent();
-
-                                double range = target - start;
-                                
-                                logger.info("KR {} calculating from metrics: start={}, current={}, target={}, range={}", 
-                                        kr.getId(), start, current, target, range);
-
-                                if (range != 0.0) {
-                                    double percentage = ((current - start) / range) * 100;
-                                    krProgress = (int) Math.min(100, Math.max(0, Math.round(percentage)));
-                                    logger.info("KR {} metric calculation: percentage={}, krProgress={}", kr.getId(), percentage, krProgress);
-                                } else if (current == start) {
-                                    krProgress = 0;
-                                    logger.info("KR {} metric calculation: range is 0 and current==start, setting progress=0", kr.getId());
-                                }
-                            } else {
-                                // No action items and no metrics, use current progress value
-                                krProgress = safeProgress(kr.getProgress());
-                            }
+                        if (!kr.getIsActive()) {
+                            if (trace != null) trace.event("KR#" + kr.getId() + " inactive");
+                            continue;
                         }
 
-                        kr.setProgress(krProgress);
-                        krRepository.save(kr);  
+                        Double metricCurrentBefore = kr.getMetricCurrent();
+                        int krProgress = calculateKeyResultProgress(kr, kr.getActionItems());
+
+                        boolean metricChanged = !Objects.equals(metricCurrentBefore, kr.getMetricCurrent());
+                        if (applyProgress(HierarchyLevel.KEY_RESULT, projectId, kr.getId(), kr::getProgress, kr::setProgress, krProgress) || metricChanged) {
+                            changedNodes++;
+                        }
                         objTotal += krProgress; 
                         krCount++;
                     }
 
                     if (krCount > 0) {
                         int newObjProgress = Math.round((float) objTotal / krCount);
-                        obj.setProgress(newObjProgress);
-                        objectiveRepository.save(obj);
+                        if (applyProgress(HierarchyLevel.OBJECTIVE, projectId, obj.getId(), obj::getProgress, obj::setProgress, newObjProgress)) changedNodes++;
+                        if (trace != null) trace.node("OBJ", obj.getId(), "avg " + krCount, newObjProgress);
                         goalTotal += newObjProgress;
                         objCount++;
                     } else {
                         // No active KRs - set objective progress to 0
-                        obj.setProgress(0);
-                        objectiveRepository.save(obj);
+                        if (applyProgress(HierarchyLevel.OBJECTIVE, projectId, obj.getId(), obj::getProgress, obj::setProgress, 0)) changedNodes++;
+                        if (trace != null) trace.node("OBJ", obj.getId(), "none", 0);
                         goalTotal += 0;
                         objCount++;
                     }
@@ -204,14 +359,14 @@ public class CalculationService {
 
                 if (objCount > 0) {
                     int newGoalProgress = Math.round((float) goalTotal / objCount);
-                    goal.setProgress(newGoalProgress);
-                    goalRepository.save(goal);
+                    if (applyProgress(HierarchyLevel.GOAL, projectId, goal.getId(), goal::getProgress, goal::setProgress, newGoalProgress)) changedNodes++;
+                    if (trace != null) trace.node("GOAL", goal.getId(), "avg " + objCount, newGoalProgress);
                     initTotal += newGoalProgress;
                     goalCount++;
                 } else {
                     // No active objectives - set goal progress to 0
-                    goal.setProgress(0);
-                    goalRepository.save(goal);
+                    if (applyProgress(HierarchyLevel.GOAL, projectId, goal.getId(), goal::getProgress, goal::setProgress, 0)) changedNodes++;
+                    if (trace != null) trace.node("GOAL", goal.getId(), "none", 0);
                     initTotal += 0;
                     goalCount++;
                 }
@@ -219,14 +374,14 @@ public class CalculationService {
 
             if (goalCount > 0) {
                 int newInitProgress = Math.round((float) initTotal / goalCount);
-                init.setProgress(newInitProgress);
-                initiativeRepository.save(init);
+                if (applyProgress(HierarchyLevel.INITIATIVE, projectId, init.getId(), init::getProgress, init::setProgress, newInitProgress)) changedNodes++;
+                if (trace != null) trace.node("INIT", init.getId(), "avg " + goalCount, newInitProgress);
                 projTotal += newInitProgress;
                 initCount++;
             } else {
                 // No active goals - set initiative progress to 0
-                init.setProgress(0);
-                initiativeRepository.save(init);
+                if (applyProgress(HierarchyLevel.INITIATIVE, projectId, init.getId(), init::getProgress, init::setProgress, 0)) changedNodes++;
+                if (trace != null) trace.node("INIT", init.getId(), "none", 0);
                 projTotal += 0;
                 initCount++;
             }
@@ -234,10 +389,296 @@ public class CalculationService {
 
         if (initCount > 0) {
             int newProjProgress = Math.round((float) projTotal / initCount);
-            project.setProgress(newProjProgress);
-            projectRepository.save(project);
+            if (applyProgress(HierarchyLevel.PROJECT, projectId, project.getId(), project::getProgress, project::setProgress, newProjProgress)) changedNodes++;
+            if (trace != null) trace.node("PROJ", project.getId(), "avg " + initCount, newProjProgress);
         }
         
-        logger.info("=== RECALCULATE PROJECT END: projectId={} ===", projectId);
+        // Only the changed (dirty) entities are written, sent as JDBC batches (hibernate.jdbc.batch_size)
+        entityManager.flush();
+
+        logger.info("=== RECALCULATE PROJECT END: projectId={}, changedNodes={} ===", projectId, changedNodes);
+        return changedNodes;
+    }
+
+    /**
+     * Set-based variant of recalculateProject: the rollup runs entirely in the database,
+     * so no part of the project graph is loaded into the persistence context.
+     *
+     * @return The number of rows written
+     */
+    private int recalculateProjectWithSql(Long projectId) {
+        logger.debug("=== RECALCULATE PROJECT (SQL) START: projectId={} ===", projectId);
+        RollupTrace trace = RollupTrace.current();
+        if (trace != null) {
+            trace.event("PROJ#" + projectId + " engine=SQL");
+        }
+
+        // Pending entity changes must reach the database before the SQL reads them
+        entityManager.flush();
+        ProgressRollupSqlRepository.Result result = rollupSqlRepository.rollupProject(projectId);
+        for (ProgressChange change : result.changes()) {
+            progressChanges.changed(change.level(), projectId, change.id(), change.progress());
+        }
+        // Managed entities are now stale - drop them so callers re-read the rolled-up values
+        entityManager.clear();
+
+        logger.info("=== RECALCULATE PROJECT (SQL) END: projectId={}, updated={} ===", projectId, result.updatedRows());
+        return result.updatedRows();
+    }
+
+    /**
+     * Snapshot variant of recalculateProject: the project is loaded as primitive arrays
+     * instead of entities, rolled up in place and only the changed rows are written back.
+     *
+     * @return The number of rows written
+     */
+    private int recalculateProjectWithSnapshot(Long projectId) {
+        logger.debug("=== RECALCULATE PROJECT (SNAPSHOT) START: projectId={} ===", projectId);
+
+        entityManager.flush();
+        HierarchySnapshot snapshot = snapshotRepository.load(projectId);
+        if (snapshot == null) {
+            throw new ResourceNotFoundException("Project", projectId);
+        }
+        rollupSnapshot(snapshot);
+        int updated = snapshotRepository.writeChanges(snapshot);
+        recordSnapshotChanges(projectId, snapshot);
+        entityManager.clear();
+
+        RollupTrace trace = RollupTrace.current();
+        if (trace != null) {
+            trace.event("PROJ#" + projectId + " engine=SNAPSHOT nodes=" + snapshot.getSize() + " updated=" + updated);
+        }
+
+        logger.info("=== RECALCULATE PROJECT (SNAPSHOT) END: projectId={}, nodes={}, updated={} ===",
+                projectId, snapshot.getSize(), updated);
+        return updated;
+    }
+
+    private void recordSnapshotChanges(Long projectId, HierarchySnapshot snapshot) {
+        HierarchyLevel[] levels = HierarchyLevel.values();
+        for (int slot = 0; slot < snapshot.getSize(); slot++) {
+            if (snapshot.progressChanged(slot)) {
+                progressChanges.changed(levels[snapshot.getLevels()[slot]], projectId,
+                        snapshot.getIds()[slot], snapshot.getProgress()[slot]);
+            }
+        }
+    }
+
+    /**
+     * Rolls up a snapshot in place with the same rules as recalculateProject.
+     * Slots are ordered children-first, so one forward pass sees every node after all of
+     * its children; per-parent sums and counts live in flat arrays, nothing is allocated per node.
+     * Nodes below an inactive ancestor keep their stored values, the same as the entity loop.
+     */
+    static void rollupSnapshot(HierarchySnapshot snapshot) {
+        int n = snapshot.getSize();
+        byte[] levels = snapshot.getLevels();
+        int[] parents = snapshot.getParents();
+        boolean[] active = snapshot.getActive();
+        int[] progress = snapshot.getProgress();
+
+        // A node takes part in the rollup only if it and all its ancestors are active.
+        // Parents come after their children, so walk backwards. The project itself always counts.
+        boolean[] included = new boolean[n];
+        for (int i = n - 1; i >= 0; i--) {
+            int parent = parents[i];
+            included[i] = parent < 0 || (active[i] && included[parent]);
+        }
+
+        long[] activeSum = new long[n];
+        int[] activeCount = new int[n];
+        int[] totalCount = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            byte level = levels[i];
+            int parent = parents[i];
+
+            if (level == HierarchySnapshot.ACTION_ITEM) {
+                // KRs count all their action items, but only average the active ones
+                if (included[parent]) {
+                    totalCount[parent]++;
+                    if (active[i]) {
+                        activeCount[parent]++;
+                        activeSum[parent] += Math.max(0, progress[i]);
+                    }
+                }
+                continue;
+            }
+            if (!included[i]) {
+                continue;
+            }
+
+            if (level == HierarchySnapshot.KEY_RESULT) {
+                progress[i] = snapshotKeyResultProgress(snapshot, i, activeSum[i], activeCount[i], totalCount[i]);
+            } else if (activeCount[i] > 0) {
+                progress[i] = Math.round((float) activeSum[i] / activeCount[i]);
+            } else if (level != HierarchySnapshot.PROJECT) {
+                // No active children - 0, except a project which keeps its progress
+                progress[i] = 0;
+            }
+
+            if (parent >= 0) {
+                activeSum[parent] += progress[i];
+                activeCount[parent]++;
+            }
+        }
+    }
+
+    // Primitive counterpart of calculateKeyResultProgress; also back-fills metricCurrent
+    private static int snapshotKeyResultProgress(HierarchySnapshot snapshot, int slot,
+                                                 long aiSum, int activeAiCount, int totalAiCount) {
+        boolean manual = snapshot.getManual()[slot];
+        double start = snapshot.getMetricStart()[slot];
+        double target = snapshot.getMetricTarget()[slot];
+        double[] metricCurrent = snapshot.getMetricCurrent();
+
+        int krProgress = keyResultProgress(manual, snapshot.getStoredProgress()[slot], start, target,
+                metricCurrent[slot], aiSum, activeAiCount, totalAiCount);
+        metricCurrent[slot] = keyResultMetricCurrent(manual, start, target, metricCurrent[slot], krProgress,
+                activeAiCount, totalAiCount);
+        return krProgress;
+    }
+
+    /**
+     * The KR rules of calculateKeyResultProgress on primitives: manual lock, then action items,
+     * then metrics, then the stored value. Null values are passed as NaN (metrics) or a negative
+     * number (progress).
+     */
+    static int keyResultProgress(boolean manual, int storedProgress, double metricStart, double metricTarget,
+                                 double metricCurrent, long aiSum, int activeAiCount, int totalAiCount) {
+        int stored = Math.max(0, storedProgress);
+        if (manual) {
+            return stored;
+        }
+
+        double start = Double.isNaN(metricStart) ? 0.0 : metricStart;
+        boolean hasTarget = metricTarget > 0; // false for NaN (no target)
+
+        if (activeAiCount > 0) {
+            return (int) Math.min(100, Math.round((double) aiSum / activeAiCount));
+        }
+        if (totalAiCount > 0) {
+            return 0;
+        }
+        if (hasTarget && !Double.isNaN(metricCurrent)) {
+            double range = metricTarget - start;
+            if (range != 0.0) {
+                double percentage = ((metricCurrent - start) / range) * 100;
+                return (int) Math.min(100, Math.max(0, Math.round(percentage)));
+            }
+            return 0;
+        }
+        return stored;
+    }
+
+    /**
+     * The metricCurrent a KR gets after a rollup: back-filled from the action item progress,
+     * reset to the start when all action items are inactive, otherwise unchanged.
+     */
+    static double keyResultMetricCurrent(boolean manual, double metricStart, double metricTarget,
+                                         double metricCurrent, int krProgress, int activeAiCount, int totalAiCount) {
+        if (manual || !(metricTarget > 0)) {
+            return metricCurrent;
+        }
+        double start = Double.isNaN(metricStart) ? 0.0 : metricStart;
+        if (activeAiCount > 0) {
+            return start + ((metricTarget - start) * krProgress / 100.0);
+        }
+        if (totalAiCount > 0) {
+            return start;
+        }
+        return metricCurrent;
+    }
+
+    /**
+     * Computes a single KR's progress from its action items or metrics.
+     * Also back-fills metricCurrent on the KR when progress is derived from action items.
+     *
+     * @param kr          The KeyResult being recalculated
+     * @param actionItems The KR's action items (active and inactive)
+     * @return The KR progress (0-100)
+     */
+    private int calculateKeyResultProgress(KeyResult kr, List<ActionItem> actionItems) {
+        // KR Logic: Smart calculation based on manual lock flag
+        // 1. If KR was manually set (manualProgressSet=true), use direct value and ignore action items
+        // 2. Otherwise, calculate from action items or metrics
+        int krProgress = 0;
+        String decision; // Recorded in the rollup trace, if one is active
+        
+        boolean manuallySet = kr.getManualProgressSet() != null && kr.getManualProgressSet();
+        
+        if (manuallySet) {
+            // If manually set, use the progress value directly - don't recalculate or sync from metrics
+            // This preserves the user's manual input while allowing rollup to parent entities
+            krProgress = safeProgress(kr.getProgress());
+            decision = "manual";
+        } else {
+            // KR was not manually set, calculate from action items or metrics
+            
+            // Check if action items exist and should be used
+            long totalAiCount = actionItems.stream()
+                    .filter(ai -> ai != null)
+                    .count();
+            long activeAiCount = actionItems.stream()
+                    .filter(ai -> ai != null)
+                    .filter(BaseEntity::getIsActive)
+                    .count();
+
+            if (activeAiCount > 0) {
+                // Calculate KR progress from average of action items
+                double aiSum = actionItems.stream()
+                        .filter(ai -> ai != null)
+                        .filter(BaseEntity::getIsActive)
+                        .mapToInt(ai -> safeProgress(ai.getProgress()))
+                        .sum();
+                krProgress = (int) Math.min(100, Math.round(aiSum / activeAiCount));
+                decision = RollupTrace.isActive() ? "ai " + activeAiCount + "/" + totalAiCount : "ai";
+                
+                // Update metricCurrent to reflect the calculated progress
+                if (kr.getMetricTarget() != null && kr.getMetricTarget() > 0) {
+                    double start = Optional.ofNullable(kr.getMetricStart()).orElse(0.0);
+                    double target = kr.getMetricTarget();
+                    double range = target - start;
+                    double newCurrent = start + (range * krProgress / 100.0);
+                    kr.setMetricCurrent(newCurrent);
+                }
+            } else if (totalAiCount > 0) {
+                // All action items were deleted - reset progress to 0
+                krProgress = 0;
+                decision = "ai deleted";
+                // Also reset metricCurrent if metrics exist
+                if (kr.getMetricTarget() != null && kr.getMetricTarget() > 0) {
+                    double start = Optional.ofNullable(kr.getMetricStart()).orElse(0.0);
+                    kr.setMetricCurrent(start);
+                }
+            } else if (kr.getMetricTarget() != null && kr.getMetricTarget() > 0 && 
+                      kr.getMetricCurrent() != null) {
+                // No action items, calculate from metrics
+                double target = kr.getMetricTarget();
+                double start = Optional.ofNullable(kr.getMetricStart()).orElse(0.0);
+                double current = kr.getMetricCurrent();
+
+                double range = target - start;
+                decision = "metric";
+
+                if (range != 0.0) {
+                    double percentage = ((current - start) / range) * 100;
+                    krProgress = (int) Math.min(100, Math.max(0, Math.round(percentage)));
+                } else if (current == start) {
+                    krProgress = 0;
+                }
+            } else {
+                // No action items and no metrics, use current progress value
+                krProgress = safeProgress(kr.getProgress());
+                decision = "stored";
+            }
+        }
+
+        RollupTrace trace = RollupTrace.current();
+        if (trace != null) {
+            trace.node("KR", kr.getId(), decision, krProgress);
+        }
+        return krProgress;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,202 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.entity.*;
+import com.ccc.okrtracker.repository.ChildAggregateRepository;
+import com.ccc.okrtracker.repository.ChildAggregateRow;
+import com.ccc.okrtracker.repository.HierarchyLevel;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Derives progress from the materialized child aggregates (active child count and progress
+ * sum) of every parent row, in DELTA rollup mode.
+ * The aggregates are kept current by database triggers on every write, in every mode. After
+ * a write, the written node's parent derives its progress from its aggregates, its own change
+ * reaches the grandparent through the triggers, and so on up to the project or until a
+ * node's contribution to its parent does not change. A write therefore costs O(depth) and
+ * never re-reads siblings. Derived values follow the same rules as CalculationService.recalculateProject.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChildAggregateService {
+
+    private final ChildAggregateRepository aggregateRepository;
+    private final ProjectRollupLock rollupLock;
+    private final ProgressChangePublisher progressChanges;
+    private final EntityManager entityManager;
+
+    /**
+     * What a node contributes to its parent's aggregates.
+     *
+     * @param exists   false for a node that did not exist yet
+     * @param active   the node's active flag
+     * @param progress the node's progress
+     */
+    public record Contribution(boolean exists, boolean active, int progress) {
+
+        public static final Contribution ABSENT = new Contribution(false, false, 0);
+
+        /**
+         * Capture a node's contribution, before it is modified.
+         */
+        public static Contribution of(BaseEntity node) {
+            Integer progress = progressOf(node);
+            return new Contribution(true, Boolean.TRUE.equals(node.getIsActive()), progress != null ? progress : 0);
+        }
+
+        int activeCount() {
+            return exists && active ? 1 : 0;
+        }
+
+        long progressSum() {
+            return exists && active ? progress : 0;
+        }
+
+        int totalCount() {
+            return exists ? 1 : 0;
+        }
+
+        // Whether the parent's aggregates are the same with either contribution
+        boolean sameAs(Contribution other) {
+            return activeCount() == other.activeCount() && progressSum() == other.progressSum()
+                    && totalCount() == other.totalCount();
+        }
+    }
+
+    /**
+     * Derive progress up a written node's ancestor chain.
+     * The node must already be saved; pending changes are flushed first, so the triggers
+     * have applied it to its parent's aggregates.
+     *
+     * @param projectId The project of the node
+     * @param node      The added or updated node
+     * @param before    The node's contribution before the write, or Contribution.ABSENT for a new node
+     */
+    @Transactional
+    public void nodeChanged(Long projectId, BaseEntity node, Contribution before) {
+        rollupLock.lockForRollup(projectId);
+        entityManager.flush();
+
+        HierarchyLevel level = HierarchyLevel.of(node);
+        ChildAggregateRow row = aggregateRepository.find(level, node.getId());
+        if (row == null) {
+            return;
+        }
+        List<Written> written = new ArrayList<>();
+
+        // The node itself: derive its progress from its own aggregates (a no-op for action items)
+        deriveAndWrite(projectId, level, row, written);
+        Contribution after = new Contribution(true, row.isActive(), row.getProgress());
+
+        // An action item always re-derives its KR, which may just have been unlocked
+        boolean forceParent = node instanceof ActionItem;
+        while (level != HierarchyLevel.PROJECT && row.getParentId() != null) {
+            if (after.sameAs(before) && !forceParent) {
+                break;
+            }
+            forceParent = false;
+
+            level = level.parent();
+            row = aggregateRepository.find(level, row.getParentId());
+            if (row == null) {
+                break;
+            }
+            before = new Contribution(true, row.isActive(), row.getProgress());
+            deriveAndWrite(projectId, level, row, written);
+            after = new Contribution(true, row.isActive(), row.getProgress());
+        }
+
+        refreshManaged(written);
+    }
+
+    /**
+     * Recompute all aggregates of a project from the stored child progress, to reconcile
+     * them (see ChildAggregateRepository#rebuildProject).
+     */
+    @Transactional
+    public void rebuildProject(Long projectId) {
+        rollupLock.lockForRollup(projectId);
+        entityManager.flush();
+        aggregateRepository.rebuildProject(projectId);
+    }
+
+    private void deriveAndWrite(Long projectId, HierarchyLevel level, ChildAggregateRow row, List<Written> written) {
+        int oldProgress = row.getProgress();
+        if (derive(level, row)) {
+            aggregateRepository.updateProgress(level, row);
+            written.add(new Written(level, row.getId()));
+            if (row.getProgress() != oldProgress) {
+                progressChanges.changed(level, projectId, row.getId(), row.getProgress());
+            }
+        }
+    }
+
+    /**
+     * Derive a row's progress (and a KR's metricCurrent) from its aggregates.
+     * Inactive nodes keep their values, like in the full rollup; a project without active
+     * initiatives keeps its progress.
+     *
+     * @return true if anything changed
+     */
+    private boolean derive(HierarchyLevel level, ChildAggregateRow row) {
+        int oldProgress = row.getProgress();
+        Double oldMetricCurrent = row.getMetricCurrent();
+
+        if (level == HierarchyLevel.ACTION_ITEM || (!row.isActive() && level != HierarchyLevel.PROJECT)) {
+            return false;
+        }
+        if (level == HierarchyLevel.KEY_RESULT) {
+            double start = orNaN(row.getMetricStart());
+            double target = orNaN(row.getMetricTarget());
+            double current = orNaN(row.getMetricCurrent());
+            int progress = CalculationService.keyResultProgress(row.isManual(), row.getProgress(), start, target,
+                    current, row.getChildProgressSum(), row.getActiveChildCount(), row.getChildCount());
+            double newCurrent = CalculationService.keyResultMetricCurrent(row.isManual(), start, target, current,
+                    progress, row.getActiveChildCount(), row.getChildCount());
+            row.setProgress(progress);
+            row.setMetricCurrent(Double.isNaN(newCurrent) ? null : newCurrent);
+        } else if (row.getActiveChildCount() > 0) {
+            row.setProgress(Math.round((float) row.getChildProgressSum() / row.getActiveChildCount()));
+        } else if (level != HierarchyLevel.PROJECT) {
+            row.setProgress(0);
+        }
+        return row.getProgress() != oldProgress || !Objects.equals(row.getMetricCurrent(), oldMetricCurrent);
+    }
+
+    /**
+     * Entities already loaded in this persistence context still hold the old progress;
+     * reload those, so callers re-reading them see the derived values. Not loaded ones are left alone.
+     */
+    private void refreshManaged(List<Written> written) {
+        for (Written entry : written) {
+            Object managed = entityManager.getReference(entry.level().getEntityClass(), entry.id());
+            if (Hibernate.isInitialized(managed)) {
+                entityManager.refresh(managed);
+            }
+        }
+    }
+
+    private record Written(HierarchyLevel level, Long id) {
+    }
+
+    private static Integer progressOf(BaseEntity node) {
+        if (node instanceof Project p) return p.getProgress();
+        if (node instanceof StrategicInitiative init) return init.getProgress();
+        if (node instanceof Goal goal) return goal.getProgress();
+        if (node instanceof Objective obj) return obj.getProgress();
+        if (node instanceof KeyResult kr) return kr.getProgress();
+        if (node instanceof ActionItem ai) return ai.getProgress();
+        return null;
+    }
+
+    private static double orNaN(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+}
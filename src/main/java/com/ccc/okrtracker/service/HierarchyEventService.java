@@ -0,0 +1,329 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.dto.HierarchyEvent;
+import com.ccc.okrtracker.entity.BaseEntity;
+import com.ccc.okrtracker.entity.User;
+import com.ccc.okrtracker.repository.HierarchyLevel;
+import com.ccc.okrtracker.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes hierarchy and progress changes to connected clients as server-sent events
+ * (GET /api/hierarchy/events), so open pages do not have to poll.
+ * - Events are buffered per transaction and fanned out only after commit. Publishing is a
+ *   no-op while nobody is subscribed.
+ * - Fan-out only appends to each subscriber's bounded queue, so a committing writer never waits
+ *   on a client; a small pool of sender threads drains the queues into the connections.
+ * - A subscriber that falls behind loses its queued events and gets a single "resync" event
+ *   instead, telling it to catch up through GET /api/hierarchy/changes. Bulk writes (imports)
+ *   send "resync" right away rather than one event per node.
+ * - Subscribers only get events of the projects they can access; access is re-evaluated
+ *   periodically, so grants and revocations apply to open connections too.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HierarchyEventService implements ProgressChangeListener {
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String ARCHIVED = "archived";
+    public static final String PROGRESS = "progress";
+    public static final String RESYNC = "resync";
+
+    private static final Object PENDING_EVENTS_KEY = HierarchyEventService.class.getName() + ".pendingEvents";
+    private static final String RESYNC_DATA = "{\"event\":\"" + RESYNC + "\"}";
+
+    private final ProjectAccessService projectAccessService;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.events.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.events.max-subscribers:1000}")
+    private int maxSubscribers;
+
+    // Events queued per subscriber before it is switched to "resync"
+    @Value("${app.events.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${app.events.sender-threads:4}")
+    private int senderThreads;
+
+    // Clients reconnect automatically (EventSource) when the connection times out
+    @Value("${app.events.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private ExecutorService executor;
+
+    /**
+     * An event serialized once for all subscribers.
+     */
+    private record Message(Long projectId, String name, String data) {
+    }
+
+    private static class Subscriber {
+        final SseEmitter emitter;
+        final String userEmail;
+        volatile Set<Long> projectIds;
+        final ArrayBlockingQueue<Message> queue;
+        final AtomicBoolean resync = new AtomicBoolean();
+        final AtomicBoolean heartbeat = new AtomicBoolean();
+        // Set while a sender thread owns the connection
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, String userEmail, Set<Long> projectIds, int bufferSize) {
+            this.emitter = emitter;
+            this.userEmail = userEmail;
+            this.projectIds = projectIds;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        boolean hasPending() {
+            return !queue.isEmpty() || resync.get() || heartbeat.get();
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "hierarchy-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Open an event stream for a user.
+     *
+     * @param projectIds The projects the user can access now
+     * @throws IllegalStateException if live events are disabled or the subscriber limit is reached
+     */
+    public SseEmitter subscribe(String userEmail, Set<Long> projectIds) {
+        if (!enabled) {
+            throw new IllegalStateException("Live events are disabled");
+        }
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many open event streams, retry later");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, userEmail, Set.copyOf(projectIds), bufferSize);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Publish a created, updated or archived node.
+     *
+     * @param parentId Only sent with CREATED
+     */
+    public void nodeChanged(String event, Long projectId, BaseEntity node, Long parentId) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        publish(new HierarchyEvent(event, node.getType(), node.getId(), projectId,
+                CREATED.equals(event) ? parentId : null, null));
+    }
+
+    /**
+     * Publish a changed progress value. Called for every progress change a rollup or edit
+     * makes (see ProgressChangePublisher), so it must stay cheap.
+     */
+    @Override
+    public void progressChanged(HierarchyLevel level, Long projectId, Long nodeId, int progress) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        publish(new HierarchyEvent(PROGRESS, level.getEntityClass().getSimpleName(), nodeId, projectId, null, progress));
+    }
+
+    /**
+     * Tell the subscribers of these projects to resync, e.g. after a bulk write.
+     */
+    public void resync(Collection<Long> projectIds) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (Long projectId : projectIds) {
+            publish(new HierarchyEvent(RESYNC, null, null, projectId, null, null));
+        }
+    }
+
+    private void publish(HierarchyEvent event) {
+        if (event.projectId() == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            fanOut(List.of(event));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, HierarchyEvent> pending = (Map<String, HierarchyEvent>) TransactionSynchronizationManager.getResource(PENDING_EVENTS_KEY);
+        if (pending == null) {
+            Map<String, HierarchyEvent> events = new LinkedHashMap<>();
+            pending = events;
+            TransactionSynchronizationManager.bindResource(PENDING_EVENTS_KEY, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fanOut(events.values());
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_EVENTS_KEY);
+                }
+            });
+        }
+        // Coalesced per node and kind: a rollup touching a node twice sends its final value once
+        pending.put(event.event() + ':' + event.type() + ':' + event.id() + ':' + event.projectId(), event);
+    }
+
+    private void fanOut(Collection<HierarchyEvent> events) {
+        List<Message> messages = new ArrayList<>(events.size());
+        for (HierarchyEvent event : events) {
+            messages.add(new Message(event.projectId(), event.event(), RESYNC.equals(event.event()) ? RESYNC_DATA : serialize(event)));
+        }
+        for (Subscriber subscriber : subscribers) {
+            Set<Long> projectIds = subscriber.projectIds;
+            boolean queued = false;
+            for (Message message : messages) {
+                if (!projectIds.contains(message.projectId())) {
+                    continue;
+                }
+                if (RESYNC.equals(message.name()) || !subscriber.queue.offer(message)) {
+                    // Whatever is still queued is superseded by the resync
+                    subscriber.queue.clear();
+                    subscriber.resync.set(true);
+                }
+                queued = true;
+            }
+            if (queued) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    private String serialize(HierarchyEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize event " + event, e);
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            executor.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            do {
+                if (subscriber.resync.getAndSet(false)) {
+                    subscriber.emitter.send(SseEmitter.event().name(RESYNC).data(RESYNC_DATA, MediaType.APPLICATION_JSON));
+                }
+                Message message;
+                while ((message = subscriber.queue.poll()) != null) {
+                    subscriber.emitter.send(SseEmitter.event().name(message.name()).data(message.data(), MediaType.APPLICATION_JSON));
+                }
+                if (subscriber.heartbeat.getAndSet(false)) {
+                    subscriber.emitter.send(SseEmitter.event().comment("keepalive"));
+                }
+                subscriber.draining.set(false);
+                // Re-check: fan-out may have queued more after the last poll but before the flag was cleared
+            } while (subscriber.hasPending() && subscriber.draining.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away (the container completes the emitter) or the emitter already completed
+            log.debug("Dropping event subscriber {}: {}", subscriber.userEmail, e.getMessage());
+            subscribers.remove(subscriber);
+        }
+    }
+
+    /**
+     * Keeps idle connections open through proxies, and detects clients that went away.
+     */
+    @Scheduled(fixedDelayString = "${app.events.heartbeat-ms:30000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeat.set(true);
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Re-evaluate each subscriber's accessible projects. Subscribers whose user was deactivated
+     * are disconnected.
+     */
+    @Scheduled(fixedDelayString = "${app.events.access-refresh-ms:60000}")
+    public void refreshAccess() {
+        Map<String, List<Subscriber>> byUser = new HashMap<>();
+        for (Subscriber subscriber : subscribers) {
+            byUser.computeIfAbsent(subscriber.userEmail, email -> new ArrayList<>()).add(subscriber);
+        }
+        byUser.forEach((email, userSubscribers) -> {
+            try {
+                Set<Long> projectIds = transactionTemplate.execute(status -> userRepository.findByEmail(email)
+                        .filter(User::getIsActive)
+                        .map(user -> Set.copyOf(projectAccessService.getAccessibleProjectIds(user)))
+                        .orElse(null));
+                for (Subscriber subscriber : userSubscribers) {
+                    if (projectIds == null) {
+                        subscriber.emitter.complete();
+                    } else {
+                        subscriber.projectIds = projectIds;
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Failed to refresh project access of event subscriber {}", email, e);
+            }
+        });
+    }
+}
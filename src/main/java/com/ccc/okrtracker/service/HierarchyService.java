@@ -1,8 +1,18 @@
 package com.ccc.okrtracker.service;
 
+import com.ccc.okrtracker.dto.AssignedItem;
+import com.ccc.okrtracker.dto.AssignedItemPage;
+import com.ccc.okrtracker.dto.ChangeSet;
+import com.ccc.okrtracker.dto.HierarchyFilter;
+import com.ccc.okrtracker.dto.ProjectView;
+import com.ccc.okrtracker.dto.SearchHit;
+import com.ccc.okrtracker.dto.TreeNode;
 import com.ccc.okrtracker.entity.*;
 import com.ccc.okrtracker.exception.ResourceNotFoundException;
 import com.ccc.okrtracker.repository.*;
+import com.ccc.okrtracker.service.ChildAggregateService.Contribution;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.hibernate.Hibernate;
 import org.slf4j.Logger;
@@ -12,11 +22,16 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -24,6 +39,9 @@ public class HierarchyService {
 
     private static final Logger logger = LoggerFactory.getLogger(HierarchyService.class);
 
+    private static final int MAX_MY_WORK_PAGE_SIZE = 200;
+    private static final int MAX_SEARCH_HITS = 100;
+
     private final ProjectRepository projectRepo;
     private final StrategicInitiativeRepository initRepo;
     private final GoalRepository goalRepo;
@@ -31,8 +49,21 @@ public class HierarchyService {
     private final KeyResultRepository krRepo;
     private final ActionItemRepository aiRepo;
     private final CalculationService calculationService;
+    private final ProgressRollupQueue rollupQueue;
+    private final ProgressRollupBatch rollupBatch;
+    private final ChildAggregateService childAggregates;
+    private final ProjectRollupLock rollupLock;
+    private final HierarchyTreeRepository hierarchyTreeRepository;
+    private final HierarchyViewRepository hierarchyViewRepository;
+    private final AssignedItemRepository assignedItemRepository;
+    private final HierarchySearchRepository searchRepository;
+    private final ProjectVersionService projectVersions;
+    private final ProjectTreeCache treeCache;
+    private final ProgressChangePublisher progressChanges;
+    private final HierarchyEventService events;
     private final UserRepository userRepository;
     private final ProjectAccessService projectAccessService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Retrieves the currently authenticated user from Spring Security context.
@@ -88,20 +119,230 @@ public class HierarchyService {
     }
 
     /**
-     * Get all projects filtered by user's access permissions.
-     * Uses ProjectAccessService to determine accessible project IDs.
+     * Tree versions of the accessible active projects, ordered by project id.
+     * Only the project table is read.
      */
-    public List<Project> getAllProjects() {
-        User currentUser = getCurrentAuthenticatedUser();
-        Set<Long> accessibleIds = projectAccessService.getAccessibleProjectIds(currentUser);
-        
+    public Map<Long, Long> getAccessibleProjectVersions() {
+        return projectVersions.getVersions(getAccessibleProjectIds());
+    }
+
+    /**
+     * ETag of a read over the given projects, from their versions alone.
+     *
+     * @param variant Identifies the representation, e.g. the endpoint and its parameters
+     */
+    public String getProjectsETag(Map<Long, Long> versions, String variant) {
+        return projectVersions.etag(versions, variant);
+    }
+
+    /**
+     * JSON array of the ProjectView trees of the given projects, assembled from the
+     * per-project fragments of the tree cache.
+     *
+     * @param versions The accessible projects and their versions, see {@link #getAccessibleProjectVersions()}
+     */
+    public byte[] getProjectsJson(Map<Long, Long> versions) {
+        return treeCache.getProjectsJson(versions);
+    }
+
+    /**
+     * ETag of a filtered read over the given projects. "Overdue" depends on the date, so the
+     * ETag of an overdue filter changes daily.
+     *
+     * @param variant Identifies the unfiltered representation, see {@link #getProjectsETag(Map, String)}
+     */
+    public String getProjectsETag(Map<Long, Long> versions, String variant, HierarchyFilter filter) {
+        variant += ":" + filter;
+        if (Boolean.TRUE.equals(filter.getOverdue())) {
+            variant += ":" + LocalDate.now();
+        }
+        return projectVersions.etag(versions, variant);
+    }
+
+    /**
+     * JSON array of the ProjectView trees of the given projects, cut down to the nodes matching
+     * the filter and their ancestors. Filtered in SQL and never cached.
+     */
+    @Transactional(readOnly = true)
+    public byte[] getFilteredProjectsJson(Collection<Long> projectIds, HierarchyFilter filter) {
+        try {
+            return objectMapper.writeValueAsBytes(hierarchyViewRepository.findProjects(projectIds, filter));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize filtered projects", e);
+        }
+    }
+
+    /**
+     * The ProjectView trees of the given projects, optionally filtered, for the binary encodings
+     * of GET /projects. Unlike the JSON, they are not served from the tree cache: its fragments
+     * are JSON, and Smile or CBOR fragments could not be joined without losing the shared strings.
+     */
+    @Transactional(readOnly = true)
+    public List<ProjectView> getProjectViews(Collection<Long> projectIds, HierarchyFilter filter) {
+        return hierarchyViewRepository.findProjects(projectIds, filter);
+    }
+
+    /**
+     * The accessible active projects as tree nodes, expanded down to the given depth.
+     * With depth 0 only the projects and their child counts are returned.
+     */
+    @Transactional(readOnly = true)
+    public List<TreeNode> getProjectTree(int depth) {
+        checkTreeDepth(depth);
+        Set<Long> accessibleIds = getAccessibleProjectIds();
         if (accessibleIds.isEmpty()) {
             return List.of();
         }
-        
-        return projectRepo.findAll().stream()
-            .filter(p -> p.getIsActive() != null && p.getIsActive() && accessibleIds.contains(p.getId()))
-            .collect(Collectors.toList());
+        List<Long> activeIds = projectRepo.findByIdInAndIsActiveTrue(accessibleIds).stream()
+                .map(Project::getId)
+                .toList();
+        return hierarchyTreeRepository.findNodes(HierarchyLevel.PROJECT, activeIds, depth);
+    }
+
+    /**
+     * One node with its children down to the given depth, for expanding a node in the tree.
+     *
+     * @throws ResourceNotFoundException if the node does not exist or its project is not accessible
+     */
+    @Transactional(readOnly = true)
+    public TreeNode getSubtree(HierarchyLevel level, Long id, int depth) {
+        checkTreeDepth(depth);
+        Long projectId = hierarchyTreeRepository.findProjectId(level, id);
+        if (projectId == null || !getAccessibleProjectIds().contains(projectId)) {
+            throw new ResourceNotFoundException(level.getEntityClass().getSimpleName(), id);
+        }
+        return hierarchyTreeRepository.findNodes(level, List.of(id), depth).get(0);
+    }
+
+    /**
+     * Nodes of the accessible projects changed since a cursor returned by a previous call.
+     * Without a cursor no nodes are returned, only the current cursor: load the full hierarchy
+     * after taking it, then poll with it.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public ChangeSet getChangesSince(String cursor) {
+        Long since = cursor == null || cursor.isBlank() ? null : parseCursor(cursor);
+
+        ChangeSet changes = new ChangeSet();
+        // Taken first, in this transaction: whatever the reads below miss is at or after it
+        changes.setCursor(Long.toString(hierarchyTreeRepository.currentCursor()));
+        Set<Long> accessibleIds = getAccessibleProjectIds();
+        changes.setProjectIds(accessibleIds);
+        List<TreeNode> nodes = new ArrayList<>();
+        if (since != null) {
+            for (HierarchyLevel level : HierarchyLevel.values()) {
+                nodes.addAll(hierarchyTreeRepository.findChangedSince(level, since, accessibleIds));
+            }
+        }
+        changes.setNodes(nodes);
+        return changes;
+    }
+
+    /**
+     * The current user's active objectives, key results and action items across the accessible
+     * projects: objectives first, then key results, then action items, each by id.
+     *
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed or the limit out of range
+     */
+    @Transactional(readOnly = true)
+    public AssignedItemPage getMyWork(String cursor, int limit) {
+        if (limit < 1 || limit > MAX_MY_WORK_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_MY_WORK_PAGE_SIZE);
+        }
+        // Cursor "<type>:<id>" of the last item returned, e.g. "KeyResult:42"
+        HierarchyLevel level = HierarchyLevel.OBJECTIVE;
+        long afterId = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = cursor.split(":", 2);
+            level = null;
+            for (HierarchyLevel candidate : List.of(HierarchyLevel.OBJECTIVE, HierarchyLevel.KEY_RESULT, HierarchyLevel.ACTION_ITEM)) {
+                if (candidate.getEntityClass().getSimpleName().equals(parts[0])) {
+                    level = candidate;
+                }
+            }
+            afterId = parts.length == 2 ? parseCursor(parts[1]) : -1;
+            if (level == null || afterId < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+
+        User user = getCurrentAuthenticatedUser();
+        Set<Long> accessibleIds = projectAccessService.getAccessibleProjectIds(user);
+        // One more than the page, to know whether there is a next page
+        List<AssignedItem> items = new ArrayList<>();
+        for (; level != null && items.size() <= limit; level = level.child(), afterId = 0) {
+            items.addAll(assignedItemRepository.findAssigned(level, user.getId(), afterId, accessibleIds, limit + 1 - items.size()));
+        }
+
+        AssignedItemPage page = new AssignedItemPage();
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            AssignedItem last = items.get(limit - 1);
+            page.setNextCursor(last.getType() + ":" + last.getId());
+        }
+        page.setItems(items);
+        return page;
+    }
+
+    /**
+     * Full-text search over the titles and descriptions of the accessible active nodes, all
+     * levels together, best ranked first. Every word must match; the last one may be a prefix.
+     *
+     * @throws IllegalArgumentException if the limit is out of range
+     */
+    @Transactional(readOnly = true)
+    public List<SearchHit> search(String text, int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_HITS) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_SEARCH_HITS);
+        }
+        String tsQuery = text != null ? HierarchySearchRepository.toTsQuery(text) : null;
+        if (tsQuery == null) {
+            return List.of();
+        }
+        Set<Long> accessibleIds = getAccessibleProjectIds();
+        // The best 'limit' of each level, merged: one GIN index lookup per level
+        List<SearchHit> hits = new ArrayList<>();
+        for (HierarchyLevel level : HierarchyLevel.values()) {
+            hits.addAll(searchRepository.search(level, tsQuery, accessibleIds, limit));
+        }
+        hits.sort(Comparator.comparingDouble(SearchHit::getRank).reversed());
+        return hits.size() > limit ? hits.subList(0, limit) : hits;
+    }
+
+    private static long parseCursor(String cursor) {
+        try {
+            long txid = Long.parseLong(cursor);
+            if (txid >= 0) {
+                return txid;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+
+    private static void checkTreeDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth must not be negative");
+        }
+    }
+
+    /**
+     * Open a live event stream for the current user, limited to the projects they can access.
+     */
+    public SseEmitter subscribeToEvents() {
+        User user = getCurrentAuthenticatedUser();
+        return events.subscribe(user.getEmail(), projectAccessService.getAccessibleProjectIds(user));
+    }
+
+    /**
+     * IDs of the projects the current user can access.
+     */
+    public Set<Long> getAccessibleProjectIds() {
+        return projectAccessService.getAccessibleProjectIds(getCurrentAuthenticatedUser());
     }
 
     /**
@@ -115,47 +356,62 @@ public class HierarchyService {
 
     @Transactional
     public Project createProject(Project project) {
-        return projectRepo.save(project);
+        Project saved = projectRepo.save(project);
+        events.nodeChanged(HierarchyEventService.CREATED, saved.getId(), saved, null);
+        return saved;
     }
 
     @Transactional
     public StrategicInitiative addInitiative(Long projectId, StrategicInitiative init) {
+        lockProjectOf(HierarchyLevel.PROJECT, projectId, "Project not found");
         Project p = projectRepo.findById(projectId).orElseThrow(() -> new ResourceNotFoundException("Project not found"));
         init.setProject(p);
         StrategicInitiative saved = initRepo.save(init);
-        calculationService.recalculateProject(projectId);
+        events.nodeChanged(HierarchyEventService.CREATED, projectId, saved, projectId);
+        applyToAggregates(projectId, saved, Contribution.ABSENT);
+        rollup(projectId, saved);
         return saved;
     }
 
     @Transactional
     public Goal addGoal(Long initId, Goal goal) {
+        Long projectId = lockProjectOf(HierarchyLevel.INITIATIVE, initId, "Initiative not found");
         StrategicInitiative init = initRepo.findById(initId).orElseThrow(() -> new ResourceNotFoundException("Initiative not found"));
         goal.setInitiative(init);
         Goal saved = goalRepo.save(goal);
-        calculationService.recalculateProject(init.getProject().getId());
+        events.nodeChanged(HierarchyEventService.CREATED, projectId, saved, initId);
+        applyToAggregates(projectId, saved, Contribution.ABSENT);
+        rollup(projectId, saved);
         return saved;
     }
 
     @Transactional
     public Objective addObjective(Long goalId, Objective obj) {
+        Long projectId = lockProjectOf(HierarchyLevel.GOAL, goalId, "Goal not found");
         Goal g = goalRepo.findById(goalId).orElseThrow(() -> new ResourceNotFoundException("Goal not found"));
         obj.setGoal(g);
         Objective saved = objectiveRepo.save(obj);
-        calculationService.recalculateProject(g.getInitiative().getProject().getId());
+        events.nodeChanged(HierarchyEventService.CREATED, projectId, saved, goalId);
+        applyToAggregates(projectId, saved, Contribution.ABSENT);
+        rollup(projectId, saved);
         return saved;
     }
 
     @Transactional
     public KeyResult addKeyResult(Long objId, KeyResult kr) {
+        Long projectId = lockProjectOf(HierarchyLevel.OBJECTIVE, objId, "Objective not found");
         Objective obj = objectiveRepo.findById(objId).orElseThrow(() -> new ResourceNotFoundException("Objective not found"));
         kr.setObjective(obj);
         KeyResult saved = krRepo.save(kr);
-        calculationService.recalculateProject(obj.getGoal().getInitiative().getProject().getId());
+        events.nodeChanged(HierarchyEventService.CREATED, projectId, saved, objId);
+        applyToAggregates(projectId, saved, Contribution.ABSENT);
+        rollup(projectId, saved);
         return saved;
     }
 
     @Transactional
     public ActionItem addActionItem(Long krId, ActionItem ai) {
+        Long projectId = lockProjectOf(HierarchyLevel.KEY_RESULT, krId, "KR not found");
         KeyResult kr = krRepo.findById(krId).orElseThrow(() -> new ResourceNotFoundException("KR not found"));
         ai.setKeyResult(kr);
 
@@ -167,7 +423,9 @@ public class HierarchyService {
         }
 
         ActionItem saved = aiRepo.save(ai);
-        calculationService.recalculateProject(kr.getObjective().getGoal().getInitiative().getProject().getId());
+        events.nodeChanged(HierarchyEventService.CREATED, projectId, saved, krId);
+        applyToAggregates(projectId, saved, Contribution.ABSENT);
+        rollup(projectId, saved);
         return saved;
     }
 
@@ -175,7 +433,9 @@ public class HierarchyService {
 
     @Transactional
     public Project updateProject(Long id, Project updates) {
+        lockProjectOf(HierarchyLevel.PROJECT, id, "Project not found");
         Project p = projectRepo.findById(id).orElseThrow(() -> new ResourceNotFoundException("Project not found"));
+        Contribution before = Contribution.of(p);
 
         // Apply updates
         Optional.ofNullable(updates.getTitle()).ifPresent(p::setTitle);
@@ -194,13 +454,17 @@ public class HierarchyService {
 
         Project saved = projectRepo.save(p);
         projectRepo.flush();  // Ensure changes are persisted before recalculation
-        calculationService.recalculateProject(id);
+        events.nodeChanged(updateEvent(updates), id, saved, null);
+        applyToAggregates(id, saved, before);
+        rollup(id, saved);
         return projectRepo.findById(id).orElseThrow();  // Re-fetch after recalculation
     }
 
     @Transactional
     public StrategicInitiative updateStrategicInitiative(Long id, StrategicInitiative updates) {
+        Long projectId = lockProjectOf(HierarchyLevel.INITIATIVE, id, "Initiative not found");
         StrategicInitiative init = initRepo.findById(id).orElseThrow(() -> new ResourceNotFoundException("Initiative not found"));
+        Contribution before = Contribution.of(init);
 
         Optional.ofNullable(updates.getTitle()).ifPresent(init::setTitle);
         Optional.ofNullable(updates.getDescription()).ifPresent(init::setDescription);
@@ -216,27 +480,28 @@ public class HierarchyService {
 
         StrategicInitiative saved = initRepo.save(init);
         initRepo.flush();  // Ensure changes are persisted before recalculation
-        Long projectId = saved.getProject().getId();
-        calculationService.recalculateProject(projectId);
+        events.nodeChanged(updateEvent(updates), projectId, saved, null);
+        applyToAggregates(projectId, saved, before);
+        rollup(projectId, saved);
         return initRepo.findById(id).orElseThrow();  // Re-fetch after recalculation
     }
 
     @Transactional
     public Goal updateGoal(Long id, Goal updates) {
+        Long projectId = lockProjectOf(HierarchyLevel.GOAL, id, "Goal not found");
         Goal g = goalRepo.findById(id).orElseThrow(() -> new ResourceNotFoundException("Goal not found"));
+        Contribution before = Contribution.of(g);
 
-        logger.info("=== UPDATE GOAL START: id={}, isActive={} ===", id, updates.getIsActive());
+        logger.debug("=== UPDATE GOAL START: id={}, isActive={} ===", id, updates.getIsActive());
 
         Optional.ofNullable(updates.getTitle()).ifPresent(g::setTitle);
         Optional.ofNullable(updates.getDescription()).ifPresent(g::setDescription);
         Optional.ofNullable(updates.getProgress()).ifPresent(g::setProgress);
 
-        // Get projectId BEFORE soft delete to avoid detached entity issues
-        Long projectId = g.getInitiative().getProject().getId();
-        logger.info("Goal id={} belongs to project id={}", id, projectId);
+        logger.debug("Goal id={} belongs to project id={}", id, projectId);
 
         if (updates.getIsActive() != null && !updates.getIsActive()) {
-            logger.info("Soft-deleting Goal id={}", id);
+            logger.debug("Soft-deleting Goal id={}", id);
             g.softDelete(getCurrentUserLogin());
             // FIX: Cascade soft delete to children of Goal
             cascadeSoftDelete(g, false);
@@ -246,17 +511,21 @@ public class HierarchyService {
 
         Goal saved = goalRepo.save(g);
         goalRepo.flush();  // Ensure changes are persisted before recalculation
-        logger.info("Goal id={} saved and flushed, isActive={}", id, saved.getIsActive());
-        logger.info("Triggering recalculation for project id={}", projectId);
-        calculationService.recalculateProject(projectId);
+        events.nodeChanged(updateEvent(updates), projectId, saved, null);
+        logger.debug("Goal id={} saved and flushed, isActive={}", id, saved.getIsActive());
+        logger.debug("Triggering recalculation for project id={}", projectId);
+        applyToAggregates(projectId, saved, before);
+        rollup(projectId, saved);
         return goalRepo.findById(id).orElseThrow();  // Re-fetch after recalculation
     }
 
     @Transactional
     public Objective updateObjective(Long id, Objective updates) {
+        Long projectId = lockProjectOf(HierarchyLevel.OBJECTIVE, id, "Objective not found");
         Objective obj = objectiveRepo.findById(id).orElseThrow(() -> new ResourceNotFoundException("Objective not found"));
+        Contribution before = Contribution.of(obj);
 
-        logger.info("=== UPDATE OBJECTIVE START: id={}, isActive={} ===", id, updates.getIsActive());
+        logger.debug("=== UPDATE OBJECTIVE START: id={}, isActive={} ===", id, updates.getIsActive());
 
         Optional.ofNullable(updates.getTitle()).ifPresent(obj::setTitle);
         Optional.ofNullable(updates.getDescription()).ifPresent(obj::setDescription);
@@ -266,12 +535,10 @@ public class HierarchyService {
         Optional.ofNullable(updates.getDueDate()).ifPresent(obj::setDueDate);
         Optional.ofNullable(updates.getProgress()).ifPresent(obj::setProgress);
 
-        // Get projectId BEFORE soft delete to avoid detached entity issues
-        Long projectId = obj.getGoal().getInitiative().getProject().getId();
-        logger.info("Objective id={} belongs to project id={}", id, projectId);
+        logger.debug("Objective id={} belongs to project id={}", id, projectId);
 
         if (updates.getIsActive() != null && !updates.getIsActive()) {
-            logger.info("Soft-deleting Objective id={}", id);
+            logger.debug("Soft-deleting Objective id={}", id);
             obj.softDelete(getCurrentUserLogin());
             // FIX: Cascade soft delete to children of Objective
             cascadeSoftDelete(obj, false);
@@ -281,17 +548,21 @@ public class HierarchyService {
 
         Objective saved = objectiveRepo.save(obj);
         objectiveRepo.flush();  // Ensure changes are persisted before recalculation
-        logger.info("Objective id={} saved and flushed, isActive={}", id, saved.getIsActive());
-        logger.info("Triggering recalculation for project id={}", projectId);
-        calculationService.recalculateProject(projectId);
+        events.nodeChanged(updateEvent(updates), projectId, saved, null);
+        logger.debug("Objective id={} saved and flushed, isActive={}", id, saved.getIsActive());
+        logger.debug("Triggering recalculation for project id={}", projectId);
+        applyToAggregates(projectId, saved, before);
+        rollup(projectId, saved);
         return objectiveRepo.findById(id).orElseThrow();  // Re-fetch after recalculation
     }
 
     @Transactional
     public KeyResult updateKeyResult(Long id, KeyResult updates) {
+        Long projectId = lockProjectOf(HierarchyLevel.KEY_RESULT, id, "Key Result not found");
         KeyResult kr = krRepo.findById(id).orElseThrow(() -> new ResourceNotFoundException("Key Result not found"));
+        Contribution before = Contribution.of(kr);
 
-        logger.info("=== UPDATE KEY RESULT START: id={}, isActive={} ===", id, updates.getIsActive());
+        logger.debug("=== UPDATE KEY RESULT START: id={}, isActive={} ===", id, updates.getIsActive());
 
         // Store original values before updates
         Integer originalProgress = kr.getProgress();
@@ -322,21 +593,25 @@ public class HierarchyService {
             // Only progress was changed directly - lock it as manually set
             kr.setManualProgressSet(true);
             needsRecalculation = true;
-            logger.info("KeyResult id={}: progress manually changed from {} to {}", id, originalProgress, kr.getProgress());
+            logger.debug("KeyResult id={}: progress manually changed from {} to {}", id, originalProgress, kr.getProgress());
+            traceEvent("KR#" + id + " locked manual");
         } else if (metricsChanged) {
             // Metrics were updated - unlock it so it recalculates from metrics
             kr.setManualProgressSet(false);
             needsRecalculation = true;
-            logger.info("KeyResult id={}: metrics updated, unlocking for recalculation", id);
+            logger.debug("KeyResult id={}: metrics updated, unlocking for recalculation", id);
+            traceEvent("KR#" + id + " unlocked metrics");
         }
 
-        // Get projectId BEFORE soft delete to avoid detached entity issues
-        Long projectId = kr.getObjective().getGoal().getInitiative().getProject().getId();
         Long krId = kr.getId();
-        logger.info("KeyResult id={} belongs to project id={}", krId, projectId);
+        logger.debug("KeyResult id={} belongs to project id={}", krId, projectId);
+        if (progressChanged && !metricsChanged) {
+            // Manual progress is kept as-is by the rollups, so it is recorded here
+            progressChanges.changed(HierarchyLevel.KEY_RESULT, projectId, krId, kr.getProgress());
+        }
 
         if (updates.getIsActive() != null && !updates.getIsActive()) {
-            logger.info("Soft-deleting KeyResult id={}", krId);
+            logger.debug("Soft-deleting KeyResult id={}", krId);
             kr.softDelete(getCurrentUserLogin());
             // FIX: Cascade soft delete to children of Key Result
             cascadeSoftDelete(kr, false);
@@ -348,11 +623,15 @@ public class HierarchyService {
 
         KeyResult saved = krRepo.save(kr);
         krRepo.flush();  // Ensure KR update is persisted before recalculation
-        logger.info("KeyResult id={} saved and flushed, isActive={}, needsRecalculation={}", krId, saved.getIsActive(), needsRecalculation);
+        events.nodeChanged(updateEvent(updates), projectId, saved, null);
+        logger.debug("KeyResult id={} saved and flushed, isActive={}, needsRecalculation={}", krId, saved.getIsActive(), needsRecalculation);
         
         if (needsRecalculation) {
-            logger.info("Triggering recalculation for project id={}", projectId);
-            calculationService.recalculateProject(projectId);
+            logger.debug("Triggering recalculation for project id={}", projectId);
+            applyToAggregates(projectId, saved, before);
+            rollup(projectId, saved);
+        } else {
+            projectVersions.markChanged(projectId);
         }
         
         // Re-fetch KR after recalculation to ensure it has latest calculated progress
@@ -361,11 +640,17 @@ public class HierarchyService {
 
     @Transactional
     public ActionItem updateActionItem(Long id, ActionItem updates) {
+        // Null for an action item outside the hierarchy, which no rollup writes
+        Long projectId = hierarchyTreeRepository.findProjectId(HierarchyLevel.ACTION_ITEM, id);
+        if (projectId != null) {
+            rollupLock.lockForRollup(projectId);
+        }
         ActionItem ai = aiRepo.findById(id).orElseThrow(() -> new ResourceNotFoundException("Action Item not found"));
+        Contribution before = Contribution.of(ai);
 
-        logger.info("Updating ActionItem id={}, incoming isCompleted={}, incoming progress={}", 
+        logger.debug("Updating ActionItem id={}, incoming isCompleted={}, incoming progress={}", 
                     id, updates.getIsCompleted(), updates.getProgress());
-        logger.info("Current state: isCompleted={}, progress={}", ai.getIsCompleted(), ai.getProgress());
+        logger.debug("Current state: isCompleted={}, progress={}", ai.getIsCompleted(), ai.getProgress());
         
         Optional.ofNullable(updates.getTitle()).ifPresent(ai::setTitle);
         Optional.ofNullable(updates.getDescription()).ifPresent(ai::setDescription);
@@ -384,15 +669,17 @@ public class HierarchyService {
             ai.setProgress(incomingProgress);
             // Sync isCompleted based on progress (100 = completed)
             ai.setIsCompleted(incomingProgress >= 100);
-            logger.info("Edit dialog mode: using explicit progress={}, setting isCompleted={}", incomingProgress, ai.getIsCompleted());
+            logger.debug("Edit dialog mode: using explicit progress={}, setting isCompleted={}", incomingProgress, ai.getIsCompleted());
+            traceEvent("AI#" + id + " edit progress=" + incomingProgress);
         } else if (incomingIsCompleted != null) {
             // Mark as Done scenario: isCompleted is source of truth, auto-set progress
             ai.setIsCompleted(incomingIsCompleted);
             ai.setProgress(incomingIsCompleted ? 100 : 0);
-            logger.info("Mark as Done mode: setting isCompleted={}, progress={}", incomingIsCompleted, ai.getProgress());
+            logger.debug("Mark as Done mode: setting isCompleted={}, progress={}", incomingIsCompleted, ai.getProgress());
+            traceEvent("AI#" + id + " done=" + incomingIsCompleted);
         }
         
-        logger.info("After update: isCompleted={}, progress={}", ai.getIsCompleted(), ai.getProgress());
+        logger.debug("After update: isCompleted={}, progress={}", ai.getIsCompleted(), ai.getProgress());
 
         if (updates.getIsActive() != null && !updates.getIsActive()) {
             ai.softDelete(getCurrentUserLogin());
@@ -402,39 +689,104 @@ public class HierarchyService {
 
         // Save the KeyResult ID BEFORE saving the ActionItem (in case relationship gets detached)
         Long krId = ai.getKeyResult() != null ? ai.getKeyResult().getId() : null;
-        logger.info("KeyResult ID before save: {}", krId);
+        logger.debug("KeyResult ID before save: {}", krId);
 
         ActionItem savedAi = aiRepo.save(ai);
         aiRepo.flush();  // Ensure action item is persisted before recalculation
-        logger.info("Saved ActionItem id={}, isCompleted={}, progress={}, isActive={}", 
+        logger.debug("Saved ActionItem id={}, isCompleted={}, progress={}, isActive={}", 
                     savedAi.getId(), savedAi.getIsCompleted(), savedAi.getProgress(), savedAi.getIsActive());
         
         // When action item is updated (including soft-delete), recalculate the project
         if (krId != null) {
             // Re-fetch KR to ensure we have a fresh instance
             KeyResult kr = krRepo.findById(krId).orElse(null);
-            logger.info("KeyResult after re-fetch: {}", kr != null ? "found kr.id=" + kr.getId() : "NULL");
+            logger.debug("KeyResult after re-fetch: {}", kr != null ? "found kr.id=" + kr.getId() : "NULL");
             
             if (kr != null) {
                 // UNLOCK the KR so it recalculates from action items
                 kr.setManualProgressSet(false);
+                traceEvent("KR#" + krId + " unlocked ai");
                 krRepo.save(kr);
                 krRepo.flush(); 
                 
-                // Navigate to Project ID
-                Long projectId = kr.getObjective().getGoal().getInitiative().getProject().getId();
-                logger.info("Triggering recalculation for project id={}", projectId);
-                calculationService.recalculateProject(projectId);
+                logger.debug("Triggering recalculation for project id={}", projectId);
+                events.nodeChanged(updateEvent(updates), projectId, savedAi, null);
+                if (savedAi.getProgress() != null && savedAi.getProgress() != before.progress()) {
+                    progressChanges.changed(HierarchyLevel.ACTION_ITEM, projectId, savedAi.getId(), savedAi.getProgress());
+                }
+                applyToAggregates(projectId, savedAi, before);
+                rollup(projectId, kr);
                 
                 // Re-fetch action item after recalculation to ensure it's attached and has latest data
                 savedAi = aiRepo.findById(savedAi.getId()).orElseThrow();
-                logger.info("Final ActionItem after recalc: id={}, isCompleted={}, progress={}", savedAi.getId(), savedAi.getIsCompleted(), savedAi.getProgress());
+                logger.debug("Final ActionItem after recalc: id={}, isCompleted={}, progress={}", savedAi.getId(), savedAi.getIsCompleted(), savedAi.getProgress());
             }
         }
         
         return savedAi;
     }
 
+    /**
+     * Lock a node's project before the node or its ancestors are loaded. Entities loaded before
+     * the lock could predate a concurrent rollup's commit, and saving them would write their
+     * stale progress back (Hibernate updates every column of a changed row).
+     *
+     * @return The node's project id
+     * @throws ResourceNotFoundException if the node does not exist
+     */
+    private Long lockProjectOf(HierarchyLevel level, Long id, String notFoundMessage) {
+        Long projectId = hierarchyTreeRepository.findProjectId(level, id);
+        if (projectId == null) {
+            throw new ResourceNotFoundException(notFoundMessage);
+        }
+        rollupLock.lockForRollup(projectId);
+        return projectId;
+    }
+
+    // The live event for an update: archiving is told apart so clients can drop the subtree
+    private static String updateEvent(BaseEntity updates) {
+        return Boolean.FALSE.equals(updates.getIsActive()) ? HierarchyEventService.ARCHIVED : HierarchyEventService.UPDATED;
+    }
+
+    private void traceEvent(String message) {
+        RollupTrace trace = RollupTrace.current();
+        if (trace != null) {
+            trace.event(message);
+        }
+    }
+
+    /**
+     * In DELTA mode, derives the progress of a written node's ancestors from the materialized
+     * child aggregates. The aggregates themselves are kept current by database triggers in
+     * every mode, cascading soft deletes included, so nothing is done in the other modes.
+     */
+    private void applyToAggregates(Long projectId, BaseEntity saved, Contribution before) {
+        if (calculationService.getRollupMode() == RollupMode.DELTA) {
+            childAggregates.nodeChanged(projectId, saved, before);
+        }
+    }
+
+    /**
+     * Rolls up progress after a write in the given project, and bumps the project's version.
+     * Every write method ends here, except for KR edits that need no recalculation.
+     * With async rollup enabled the project is only marked dirty and recalculated in the
+     * background after commit, so the request does not wait for the rollup.
+     * With commit batching enabled it is recalculated once, right before this transaction commits.
+     */
+    private void rollup(Long projectId, BaseEntity changed) {
+        projectVersions.markChanged(projectId);
+        if (calculationService.getRollupMode() == RollupMode.DELTA) {
+            return; // Progress was already derived from the child aggregates
+        }
+        if (rollupQueue.isEnabled()) {
+            rollupQueue.markDirty(projectId);
+        } else if (rollupBatch.isEnabled()) {
+            rollupBatch.markDirty(projectId);
+        } else {
+            calculationService.recalculateAfterChange(projectId, changed);
+        }
+    }
+
     // --- New Recursive Helper for Soft Delete/Restore ---
 
     /**
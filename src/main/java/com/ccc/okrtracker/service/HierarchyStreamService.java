@@ -0,0 +1,139 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.repository.HierarchyStreamRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+
+/**
+ * Writes project trees as JSON straight from a database cursor, without loading entities.
+ * The output has the same shape as the projects of GET /api/hierarchy (nested
+ * initiatives, goals, objectives, keyResults and actionItems arrays, plus the "type" field),
+ * but only the current path from the project down to the current row is held in memory.
+ * Projects are read one query each, in ID order, so the first one is written as soon as it
+ * is read.
+ */
+@Service
+@RequiredArgsConstructor
+public class HierarchyStreamService {
+
+    // Indexed by HierarchyLevel ordinal
+    private static final String[] TYPES = {
+            "Project", "StrategicInitiative", "Goal", "Objective", "KeyResult", "ActionItem"};
+    private static final String[] CHILD_FIELDS = {
+            "initiatives", "goals", "objectives", "keyResults", "actionItems", null};
+
+    private final HierarchyStreamRepository streamRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Write the active projects among the given IDs as a JSON array.
+     * The caller must have checked access to the projects already; this runs on the
+     * response thread, outside the request's security context.
+     */
+    @Transactional(readOnly = true)
+    public void writeProjects(Collection<Long> projectIds, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            TreeWriter writer = new TreeWriter(generator);
+            generator.writeStartArray();
+            try {
+                for (Long projectId : projectIds.stream().sorted().distinct().toList()) {
+                    streamRepository.streamProject(projectId, writer::writeRow);
+                    writer.closeTo(0);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Turns depth-first ordered rows into nested JSON: a row first closes every open node at
+     * its own level or deeper, then opens itself. Nodes with children are left open with their
+     * children array started.
+     */
+    private static class TreeWriter {
+
+        private final JsonGenerator generator;
+        private int openLevels; // Levels 0..openLevels-1 are open
+
+        TreeWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        void writeRow(ResultSet rs) throws SQLException {
+            int level = rs.getInt("node_level");
+            try {
+                closeTo(level);
+                writeNode(level, rs);
+                if (level == 0) {
+                    // Let the client start parsing while the rest of the tree is read
+                    generator.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void closeTo(int level) throws IOException {
+            while (openLevels > level) {
+                openLevels--;
+                if (CHILD_FIELDS[openLevels] != null) {
+                    generator.writeEndArray();
+                }
+                generator.writeEndObject();
+            }
+        }
+
+        private void writeNode(int level, ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getLong("id"));
+            generator.writeStringField("title", rs.getString("title"));
+            generator.writeStringField("description", rs.getString("description"));
+            generator.writeObjectField("progress", rs.getObject("progress", Integer.class));
+            generator.writeObjectField("isActive", rs.getBoolean("is_active"));
+
+            if (level == 3) {
+                generator.writeStringField("assignee", rs.getString("assignee"));
+                generator.writeObjectField("year", rs.getObject("year", Integer.class));
+                generator.writeStringField("quarter", rs.getString("quarter"));
+                writeDate("dueDate", rs.getDate("due_date"));
+            } else if (level == 4) {
+                generator.writeStringField("assignee", rs.getString("assignee"));
+                generator.writeObjectField("metricStart", rs.getObject("metric_start", Double.class));
+                generator.writeObjectField("metricTarget", rs.getObject("metric_target", Double.class));
+                generator.writeObjectField("metricCurrent", rs.getObject("metric_current", Double.class));
+                generator.writeStringField("unit", rs.getString("unit"));
+                generator.writeObjectField("manualProgressSet", rs.getObject("manual_progress_set", Boolean.class));
+            } else if (level == 5) {
+                writeDate("dueDate", rs.getDate("due_date"));
+                generator.writeStringField("assignee", rs.getString("assignee"));
+                generator.writeObjectField("isCompleted", rs.getObject("is_completed", Boolean.class));
+            }
+            generator.writeStringField("type", TYPES[level]);
+
+            if (CHILD_FIELDS[level] != null) {
+                generator.writeArrayFieldStart(CHILD_FIELDS[level]);
+                openLevels = level + 1;
+            } else {
+                generator.writeEndObject(); // Action items are leaves, never left open
+            }
+        }
+
+        // Through the ObjectMapper, so dates are formatted exactly like in the read model
+        private void writeDate(String field, Date value) throws IOException {
+            generator.writeObjectField(field, value != null ? value.toLocalDate() : null);
+        }
+    }
+}
@@ -9,8 +9,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList; // Added for explicit List initialization
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -22,7 +24,10 @@ public class ImportService {
     private final ObjectiveRepository objectiveRepo;
     private final KeyResultRepository krRepo;
     private final ActionItemRepository aiRepo;
-    private final CalculationService calculationService;
+    private final ProgressRollupBatch rollupBatch;
+    private final ProjectVersionService projectVersions;
+    private final ProjectRollupLock rollupLock;
+    private final HierarchyEventService events;
 
     // Placeholder cache to hold entities during batch processing and avoid redundant DB lookups.
     private Project currentProject;
@@ -39,7 +44,8 @@ public class ImportService {
         currentObjective = null;
         currentKeyResult = null;
 
-        Project topLevelProject = null;
+        // Every project touched by the import, rolled up once when the import commits
+        Set<Long> touchedProjectIds = new LinkedHashSet<>();
 
         for (HierarchyImportRow row : rows) {
 
@@ -68,7 +74,10 @@ public class ImportService {
                     currentObjective = null;
                     currentKeyResult = null;
                 }
-                topLevelProject = currentProject;
+                if (touchedProjectIds.add(currentProject.getId())) {
+                    // Before anything is written below the project (see ProjectRollupLock)
+                    rollupLock.lockForRollup(currentProject.getId());
+                }
             }
 
             // Must have a project to continue
@@ -245,9 +254,11 @@ public class ImportService {
             }
         }
 
-        // After processing, recalculate the top-level project's progress
-        if (topLevelProject != null) {
-            calculationService.recalculateProject(topLevelProject.getId());
-        }
+        // After processing, recalculate every imported project exactly once before commit
+        // (the row triggers already keep the child aggregates of the imported rows current)
+        touchedProjectIds.forEach(rollupBatch::markDirty);
+        touchedProjectIds.stream().sorted().forEach(projectVersions::markChanged);
+        // Too many nodes for one event each: live clients reload the imported projects instead
+        events.resync(touchedProjectIds);
     }
 }
\ No newline at end of file
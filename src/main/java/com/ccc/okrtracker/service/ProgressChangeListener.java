@@ -0,0 +1,12 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.repository.HierarchyLevel;
+
+/**
+ * Notified of every progress value a rollup or edit changes, through ProgressChangePublisher.
+ * Called on the writing thread inside its transaction, so implementations must stay cheap.
+ */
+public interface ProgressChangeListener {
+
+    void progressChanged(HierarchyLevel level, Long projectId, Long nodeId, int progress);
+}
@@ -0,0 +1,25 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.repository.HierarchyLevel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * The single hook rollups and edits call for each progress value they change.
+ * Fans the change out to every ProgressChangeListener bean (the progress history, the live
+ * events), so each consumer can be switched off on its own without affecting the others.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProgressChangePublisher {
+
+    private final List<ProgressChangeListener> listeners;
+
+    public void changed(HierarchyLevel level, Long projectId, Long nodeId, int progress) {
+        for (ProgressChangeListener listener : listeners) {
+            listener.progressChanged(level, projectId, nodeId, progress);
+        }
+    }
+}
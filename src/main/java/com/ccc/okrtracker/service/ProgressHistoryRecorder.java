@@ -0,0 +1,139 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.repository.HierarchyLevel;
+import com.ccc.okrtracker.repository.ProgressHistoryRepository;
+import com.ccc.okrtracker.repository.ProgressHistoryRepository.Point;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects progress changes emitted by rollups and appends them to the progress history
+ * off the request thread.
+ * Rollups publish only values that actually changed (see ProgressChangePublisher). Points are buffered per
+ * transaction and queued only after commit, so rolled-back values never reach the history.
+ * A scheduled task drains the queue in JDBC batches. The queue is bounded: if the writer
+ * falls behind, new points are dropped (and counted) rather than slowing down rollups.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProgressHistoryRecorder implements ProgressChangeListener {
+
+    private static final Object PENDING_POINTS_KEY = ProgressHistoryRecorder.class.getName() + ".pendingPoints";
+
+    private final ProgressHistoryRepository historyRepository;
+
+    @Value("${app.history.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.history.levels:PROJECT,OBJECTIVE,KEY_RESULT}")
+    private Set<HierarchyLevel> levels = EnumSet.noneOf(HierarchyLevel.class);
+
+    @Value("${app.history.max-queued:100000}")
+    private int maxQueued;
+
+    @Value("${app.history.batch-size:1000}")
+    private int batchSize;
+
+    private final ConcurrentLinkedQueue<Point> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Record a changed progress value. Cheap: no I/O on the caller's thread.
+     */
+    @Override
+    public void progressChanged(HierarchyLevel level, Long projectId, Long nodeId, int progress) {
+        if (!enabled || !levels.contains(level) || projectId == null || nodeId == null) {
+            return;
+        }
+        Point point = new Point(level, projectId, nodeId, progress, LocalDateTime.now());
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(List.of(point));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Point> pending = (List<Point>) TransactionSynchronizationManager.getResource(PENDING_POINTS_KEY);
+        if (pending == null) {
+            List<Point> points = new ArrayList<>();
+            pending = points;
+            TransactionSynchronizationManager.bindResource(PENDING_POINTS_KEY, points);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(points);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_POINTS_KEY);
+                }
+            });
+        }
+        pending.add(point);
+    }
+
+    private void enqueue(List<Point> points) {
+        for (Point point : points) {
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                if (dropped.incrementAndGet() % 10_000 == 1) {
+                    log.warn("Progress history queue is full ({} points), {} points dropped so far", maxQueued, dropped.get());
+                }
+                continue;
+            }
+            queue.add(point);
+        }
+    }
+
+    /**
+     * Append the queued points in batches.
+     */
+    @Scheduled(fixedDelayString = "${app.history.flush-interval-ms:1000}")
+    public void flush() {
+        List<Point> batch = new ArrayList<>(Math.min(batchSize, Math.max(queued.get(), 1)));
+        Point point;
+        while ((point = queue.poll()) != null) {
+            queued.decrementAndGet();
+            batch.add(point);
+            if (batch.size() >= batchSize) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        write(batch);
+    }
+
+    @PreDestroy
+    void drainOnShutdown() {
+        flush();
+    }
+
+    private void write(List<Point> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            historyRepository.append(batch);
+        } catch (Exception e) {
+            // History is best-effort; never let it affect rollups
+            log.error("Failed to append {} progress history points", batch.size(), e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.dto.ProgressHistoryPoint;
+import com.ccc.okrtracker.exception.ResourceNotFoundException;
+import com.ccc.okrtracker.repository.HierarchyLevel;
+import com.ccc.okrtracker.repository.HierarchyTreeRepository;
+import com.ccc.okrtracker.repository.ProgressHistoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the progress history of single nodes, for the projects the current user can access.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProgressHistoryService {
+
+    public enum Bucket {
+        DAY, WEEK
+    }
+
+    private final ProgressHistoryRepository historyRepository;
+    private final HierarchyTreeRepository hierarchyTreeRepository;
+    private final HierarchyService hierarchyService;
+
+    /**
+     * Progress of one node between two days (both inclusive), downsampled to the given bucket.
+     *
+     * @throws ResourceNotFoundException if the node does not exist or its project is not accessible
+     */
+    @Transactional(readOnly = true)
+    public List<ProgressHistoryPoint> getHistory(HierarchyLevel level, Long id, LocalDate from, LocalDate to, Bucket bucket) {
+        Set<Long> accessibleIds = hierarchyService.getAccessibleProjectIds();
+        Long projectId = hierarchyTreeRepository.findProjectId(level, id);
+        if (projectId == null || !accessibleIds.contains(projectId)) {
+            throw new ResourceNotFoundException(level.getEntityClass().getSimpleName(), id);
+        }
+        return historyRepository.findBuckets(level, id, accessibleIds, from.atStartOfDay(),
+                to.plusDays(1).atStartOfDay(), bucket.name().toLowerCase());
+    }
+}
@@ -0,0 +1,83 @@
+package com.ccc.okrtracker.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Commit-time batched rollup.
+ * Collects the IDs of projects written in the current transaction and recalculates each
+ * of them exactly once in a before-commit hook, no matter how many mutations happened.
+ * The rollup still runs inside the writing transaction, so it commits or rolls back with it.
+ * HierarchyService uses it when app.rollup.commit-batch.enabled is set; ImportService always does.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProgressRollupBatch {
+
+    private static final Object DIRTY_PROJECTS_KEY = ProgressRollupBatch.class.getName() + ".dirtyProjects";
+
+    private final CalculationService calculationService;
+
+    @Value("${app.rollup.commit-batch.enabled:false}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Mark a project as needing a rollup before the current transaction commits.
+     * Outside a transaction the project is recalculated immediately.
+     */
+    public void markDirty(Long projectId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            calculationService.recalculateProject(projectId);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<Long> dirtyProjects = (Set<Long>) TransactionSynchronizationManager.getResource(DIRTY_PROJECTS_KEY);
+        if (dirtyProjects == null) {
+            dirtyProjects = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(DIRTY_PROJECTS_KEY, dirtyProjects);
+            TransactionSynchronizationManager.registerSynchronization(new DirtyProjectsSynchronization(dirtyProjects));
+        }
+        dirtyProjects.add(projectId);
+    }
+
+    private class DirtyProjectsSynchronization implements TransactionSynchronization {
+
+        private final Set<Long> dirtyProjects;
+
+        DirtyProjectsSynchronization(Set<Long> dirtyProjects) {
+            this.dirtyProjects = dirtyProjects;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            List<Long> projectIds = new ArrayList<>(dirtyProjects);
+            dirtyProjects.clear();
+            // The writes already locked these projects (see ProjectRollupLock); roll up in a stable order
+            projectIds.sort(null);
+            log.debug("Rolling up {} dirty project(s) before commit: {}", projectIds.size(), projectIds);
+            for (Long projectId : projectIds) {
+                calculationService.recalculateProject(projectId);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(DIRTY_PROJECTS_KEY);
+        }
+    }
+}
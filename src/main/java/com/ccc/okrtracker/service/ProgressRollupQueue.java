@@ -0,0 +1,131 @@
+package com.ccc.okrtracker.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous, coalescing progress rollup.
+ * Writes only mark their project dirty; a background worker recalculates the project once
+ * per burst of writes, after a short debounce window. At most one rollup per project is
+ * queued or running at a time, so rollups of the same project stay ordered, while
+ * different projects are recalculated concurrently on the worker pool.
+ * Enabled via app.rollup.async.enabled.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProgressRollupQueue {
+
+    /**
+     * Per-project state. A project without an entry is idle.
+     */
+    private enum SlotState {
+        SCHEDULED,
+        RUNNING,
+        // Marked dirty again while a rollup was running - run once more afterwards
+        RUNNING_DIRTY
+    }
+
+    private final CalculationService calculationService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.rollup.async.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.rollup.async.debounce-ms:250}")
+    private long debounceMs;
+
+    @Value("${app.rollup.async.worker-threads:4}")
+    private int workerThreads;
+
+    private final ConcurrentHashMap<Long, SlotState> slots = new ConcurrentHashMap<>();
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "progress-rollup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Async progress rollup enabled: debounce={}ms, workers={}", debounceMs, workerThreads);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Mark a project as needing a rollup.
+     * Inside a transaction the signal is only raised after commit, so the worker never
+     * reads data the writer might still roll back.
+     */
+    public void markDirty(Long projectId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    signal(projectId);
+                }
+            });
+        } else {
+            signal(projectId);
+        }
+    }
+
+    private void signal(Long projectId) {
+        slots.compute(projectId, (id, state) -> {
+            if (state == null) {
+                schedule(id);
+                return SlotState.SCHEDULED;
+            }
+            // Already scheduled: coalesced into the pending run
+            return state == SlotState.RUNNING ? SlotState.RUNNING_DIRTY : state;
+        });
+    }
+
+    private void schedule(Long projectId) {
+        executor.schedule(() -> run(projectId), debounceMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(Long projectId) {
+        slots.put(projectId, SlotState.RUNNING);
+        try {
+            transactionTemplate.executeWithoutResult(status -> calculationService.recalculateProject(projectId));
+        } catch (Exception e) {
+            log.error("Async rollup failed for project {}", projectId, e);
+        } finally {
+            slots.compute(projectId, (id, state) -> {
+                if (state == SlotState.RUNNING_DIRTY) {
+                    schedule(id);
+                    return SlotState.SCHEDULED;
+                }
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.dto.RecalculationStatus;
+import com.ccc.okrtracker.entity.Project;
+import com.ccc.okrtracker.repository.ProjectRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Recalculates the progress of every project, e.g. after data fixes or formula changes.
+ * Projects are fanned out over a bounded worker pool that lives as long as this bean; each one
+ * is rolled up in its own short transaction so a failure only affects that project, and the
+ * concurrency limit keeps the run from exhausting the connection pool. Only one run can be
+ * active at a time.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectRecalculationService {
+
+    private final ProjectRepository projectRepo;
+    private final CalculationService calculationService;
+    private final ChildAggregateService childAggregates;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.rollup.recalculate-all.concurrency:4}")
+    private int concurrency;
+
+    private final AtomicReference<Run> currentRun = new AtomicReference<>();
+    private ExecutorService pool;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "project-recalculation-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        pool.shutdown();
+    }
+
+    /**
+     * Start recalculating all projects in the background.
+     * If a run is already in progress, no new one is started.
+     *
+     * @return The initial status of the new run, or the current status of the active one
+     */
+    public RecalculationStatus startRecalculateAll() {
+        Run previous = currentRun.get();
+        if (previous != null && previous.isRunning()) {
+            return previous.toStatus();
+        }
+        List<Long> projectIds = projectRepo.findAll().stream().map(Project::getId).toList();
+        Run run = new Run(projectIds.size(), concurrency);
+        if (!currentRun.compareAndSet(previous, run)) {
+            // Another caller started a run in the meantime
+            return currentRun.get().toStatus();
+        }
+
+        log.info("Recalculating {} projects with concurrency {}", projectIds.size(), concurrency);
+        CompletableFuture<?>[] tasks = projectIds.stream()
+                .map(projectId -> CompletableFuture.runAsync(() -> recalculate(run, projectId), pool))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tasks).whenComplete((result, error) -> {
+            run.finish();
+            log.info("Recalculated {} projects in {} ms, {} failed",
+                    run.completed.get(), run.elapsedMillis(), run.failures.size());
+        });
+
+        return run.toStatus();
+    }
+
+    /**
+     * Status of the current or last run, or null if none was started.
+     */
+    public RecalculationStatus getStatus() {
+        Run run = currentRun.get();
+        return run != null ? run.toStatus() : null;
+    }
+
+    private void recalculate(Run run, Long projectId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                calculationService.recalculateProject(projectId);
+                // Also reconciles the child aggregates, which the rollups themselves never rebuild
+                childAggregates.rebuildProject(projectId);
+            });
+        } catch (Exception e) {
+            log.warn("Recalculation failed for project {}: {}", projectId, e.getMessage());
+            run.failures.put(projectId, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            run.completed.incrementAndGet();
+        }
+    }
+
+    private static class Run {
+        private final int total;
+        private final int concurrency;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startNanos = System.nanoTime();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final Map<Long, String> failures = new ConcurrentHashMap<>();
+        private volatile long finishNanos;
+        private volatile LocalDateTime finishedAt;
+
+        Run(int total, int concurrency) {
+            this.total = total;
+            this.concurrency = concurrency;
+        }
+
+        boolean isRunning() {
+            return finishedAt == null;
+        }
+
+        void finish() {
+            finishNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+        }
+
+        long elapsedMillis() {
+            long end = isRunning() ? System.nanoTime() : finishNanos;
+            return (end - startNanos) / 1_000_000;
+        }
+
+        RecalculationStatus toStatus() {
+            RecalculationStatus status = new RecalculationStatus();
+            long elapsed = elapsedMillis();
+            status.setRunning(isRunning());
+            status.setConcurrency(concurrency);
+            status.setTotalProjects(total);
+            status.setCompletedProjects(completed.get());
+            status.setFailedProjects(failures.size());
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(finishedAt);
+            status.setElapsedMillis(elapsed);
+            status.setProjectsPerSecond(elapsed > 0 ? completed.get() * 1000.0 / elapsed : 0.0);
+            status.setFailures(new TreeMap<>(failures));
+            return status;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.ccc.okrtracker.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes writes per project, so two transactions never read and rewrite the same
+ * ancestors concurrently (lost updates, row-lock contention across the project).
+ * - In-process: one lock per project ID, created on demand and dropped once unused.
+ * - Across nodes: a transaction-scoped Postgres advisory lock (pg_advisory_xact_lock).
+ * Both are held until the transaction completes, so the next rollup of the project reads
+ * the committed result. Plain reads take neither lock and are never blocked, and writes to
+ * different projects proceed fully in parallel.
+ * Write transactions must take the lock before their first write: a transaction holding a
+ * row lock while waiting here could deadlock with the holder, and Postgres cannot see a JVM lock.
+ * The in-process wait is bounded (app.rollup.lock.timeout-ms), which also breaks deadlocks
+ * between transactions that lock several projects in a different order.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectRollupLock {
+
+    private static final Object LOCKED_PROJECTS_KEY = ProjectRollupLock.class.getName() + ".lockedProjects";
+
+    // First key of the two-key advisory lock, keeps our locks apart from other advisory lock users
+    private static final int ADVISORY_LOCK_NAMESPACE = 0x4f4b5231; // "OKR1"
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.rollup.lock.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.rollup.lock.advisory:true}")
+    private boolean advisory;
+
+    @Value("${app.rollup.lock.timeout-ms:30000}")
+    private long timeoutMs;
+
+    // The lock of each project currently held or waited for; entries are counted and removed when unused
+    private final ConcurrentHashMap<Long, ProjectLock> locks = new ConcurrentHashMap<>();
+
+    private static class ProjectLock {
+        final ReentrantLock lock = new ReentrantLock();
+        int users; // Guarded by the map's compute
+    }
+
+    /**
+     * Lock a project until the current transaction completes. Call before the transaction's
+     * first write to the project. Locking the same project again in the same transaction is a no-op.
+     *
+     * @throws IllegalStateException if no transaction is active, or the lock is not obtained in time
+     */
+    public void lockForRollup(Long projectId) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Project rollup lock requires an active transaction");
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<Long> lockedProjects = (Set<Long>) TransactionSynchronizationManager.getResource(LOCKED_PROJECTS_KEY);
+        if (lockedProjects == null) {
+            lockedProjects = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(LOCKED_PROJECTS_KEY, lockedProjects);
+            TransactionSynchronizationManager.registerSynchronization(new UnbindSynchronization());
+        }
+        if (lockedProjects.contains(projectId)) {
+            return;
+        }
+
+        ProjectLock projectLock = acquire(projectId);
+        lockedProjects.add(projectId);
+        // Released on the thread that completes the transaction, which is the one that locked it
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                projectLock.lock.unlock();
+                release(projectId);
+            }
+        });
+
+        if (advisory) {
+            // Released by Postgres itself at commit or rollback
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?, ?)", rs -> { },
+                    ADVISORY_LOCK_NAMESPACE, (int) (projectId ^ (projectId >>> 32)));
+        }
+    }
+
+    private ProjectLock acquire(Long projectId) {
+        ProjectLock projectLock = locks.compute(projectId, (id, existing) -> {
+            ProjectLock entry = existing != null ? existing : new ProjectLock();
+            entry.users++;
+            return entry;
+        });
+        boolean locked = false;
+        try {
+            locked = projectLock.lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS);
+            if (!locked) {
+                log.warn("Timed out after {}ms waiting for the rollup lock of project {}", timeoutMs, projectId);
+                throw new IllegalStateException("Project " + projectId + " is being recalculated, please retry");
+            }
+            return projectLock;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the rollup lock of project " + projectId);
+        } finally {
+            if (!locked) {
+                release(projectId);
+            }
+        }
+    }
+
+    private void release(Long projectId) {
+        locks.computeIfPresent(projectId, (id, entry) -> --entry.users == 0 ? null : entry);
+    }
+
+    private static class UnbindSynchronization implements TransactionSynchronization {
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(LOCKED_PROJECTS_KEY);
+        }
+    }
+}
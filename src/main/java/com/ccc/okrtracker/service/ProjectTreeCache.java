@@ -0,0 +1,167 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.dto.ProjectView;
+import com.ccc.okrtracker.dto.TreeCacheStats;
+import com.ccc.okrtracker.repository.HierarchyViewRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-process cache of serialized project trees (the JSON of one ProjectView each).
+ * A response over several projects is assembled from the cached per-project fragments of the
+ * projects the user can access; only missing or stale fragments are loaded and serialized.
+ * - Entries are tagged with the project's tree version, so a fragment is never served after a
+ *   write, even one made by another instance.
+ * - Writes evict their project's entry after commit (ProjectVersionService), to free memory early.
+ * - The cache is an access-ordered LRU bounded by the total size of the fragments (app.tree-cache.max-bytes).
+ */
+@Service
+@RequiredArgsConstructor
+public class ProjectTreeCache {
+
+    private record Entry(long version, byte[] json) {
+    }
+
+    private final HierarchyViewRepository hierarchyViewRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.tree-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.tree-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    // Guarded by this
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * JSON array of the trees of the given projects, in the map's order.
+     *
+     * @param versions Current tree version of each project to include (see ProjectVersionService)
+     */
+    @Transactional(readOnly = true)
+    public byte[] getProjectsJson(Map<Long, Long> versions) {
+        Map<Long, byte[]> fragments = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Map.Entry<Long, Long> project : versions.entrySet()) {
+            byte[] json = enabled ? lookup(project.getKey(), project.getValue()) : null;
+            if (json != null) {
+                fragments.put(project.getKey(), json);
+            } else {
+                missing.add(project.getKey());
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            // The tree is read after its version, so it is at least as new as the version it is stored under
+            for (ProjectView project : hierarchyViewRepository.findProjects(missing)) {
+                byte[] json = serialize(project);
+                fragments.put(project.id(), json);
+                if (enabled) {
+                    store(project.id(), versions.get(project.id()), json);
+                }
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                fragments.values().stream().mapToInt(json -> json.length + 1).sum() + 2);
+        out.write('[');
+        boolean first = true;
+        for (Long projectId : versions.keySet()) {
+            byte[] json = fragments.get(projectId);
+            if (json == null) {
+                continue; // Deactivated between reading its version and its tree
+            }
+            if (!first) {
+                out.write(',');
+            }
+            out.writeBytes(json);
+            first = false;
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    /**
+     * Drop a project's fragment, called once a write to the project has committed.
+     */
+    public synchronized void evict(Long projectId) {
+        Entry removed = entries.remove(projectId);
+        if (removed != null) {
+            totalBytes -= removed.json().length;
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public synchronized TreeCacheStats getStats() {
+        TreeCacheStats stats = new TreeCacheStats();
+        stats.setEnabled(enabled);
+        stats.setEntries(entries.size());
+        stats.setBytes(totalBytes);
+        stats.setMaxBytes(maxBytes);
+        stats.setHits(hits.get());
+        stats.setMisses(misses.get());
+        stats.setEvictions(evictions.get());
+        stats.setInvalidations(invalidations.get());
+        return stats;
+    }
+
+    private synchronized byte[] lookup(Long projectId, long version) {
+        Entry entry = entries.get(projectId);
+        if (entry != null && entry.version() == version) {
+            hits.incrementAndGet();
+            return entry.json();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private synchronized void store(Long projectId, long version, byte[] json) {
+        if (json.length > maxBytes) {
+            return;
+        }
+        Entry previous = entries.get(projectId);
+        if (previous != null) {
+            if (previous.version() > version) {
+                return; // A concurrent reader already stored a newer tree
+            }
+            totalBytes -= previous.json().length;
+        }
+        entries.put(projectId, new Entry(version, json));
+        totalBytes += json.length;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().json().length;
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private byte[] serialize(ProjectView project) {
+        try {
+            return objectMapper.writeValueAsBytes(project);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize project " + project.id(), e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.repository.ProjectVersionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-project tree versions, used to answer conditional GETs without reading the hierarchy.
+ * Every write to a project's hierarchy (HierarchyService, ImportService, rollups) calls
+ * {@link #markChanged(Long)}, which increments the project's version once per transaction.
+ * The increment commits with the write, so a version never runs ahead of the data.
+ * After commit the project's cached tree is evicted (ProjectTreeCache).
+ */
+@Service
+@RequiredArgsConstructor
+public class ProjectVersionService {
+
+    private static final Object CHANGED_PROJECTS_KEY = ProjectVersionService.class.getName() + ".changedProjects";
+
+    private final ProjectVersionRepository versionRepository;
+    private final ProjectRollupLock rollupLock;
+    private final ProjectTreeCache treeCache;
+
+    /**
+     * Record that the project's hierarchy changes in the current transaction.
+     * The project's rollup lock is taken first, so the row lock of the version update is
+     * always acquired in the same order as by the rollups (no lock-order deadlocks).
+     */
+    public void markChanged(Long projectId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            versionRepository.increment(projectId);
+            treeCache.evict(projectId);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Long> changed = (Set<Long>) TransactionSynchronizationManager.getResource(CHANGED_PROJECTS_KEY);
+        if (changed == null) {
+            changed = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(CHANGED_PROJECTS_KEY, changed);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CHANGED_PROJECTS_KEY);
+                }
+            });
+        }
+        if (changed.add(projectId)) {
+            rollupLock.lockForRollup(projectId);
+            versionRepository.increment(projectId);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    treeCache.evict(projectId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Current versions of the active projects among the given IDs, ordered by project id.
+     */
+    public Map<Long, Long> getVersions(Collection<Long> projectIds) {
+        return versionRepository.findActiveVersions(projectIds);
+    }
+
+    /**
+     * Weak ETag of everything derived from the given projects' trees: a hash of the IDs and
+     * versions of the active ones, so it also changes when a project becomes visible or not.
+     * Weak, because the gzipped and plain bodies are equivalent but not byte-identical; Tomcat
+     * never compresses a response carrying a strong ETag (server.compression).
+     *
+     * @param versions The versions of the projects, see {@link #getVersions(Collection)}
+     * @param variant  Distinguishes representations of the same projects (e.g. "projects", "tree:1")
+     */
+    public String etag(Map<Long, Long> versions, String variant) {
+        StringBuilder key = new StringBuilder(variant);
+        versions.forEach((id, version) -> key.append(';').append(id).append(':').append(version));
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            return "W/\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.dto.DriftReport;
+import com.ccc.okrtracker.repository.HierarchyLevel;
+import com.ccc.okrtracker.repository.HierarchySnapshot;
+import com.ccc.okrtracker.repository.HierarchySnapshotRepository;
+import com.ccc.okrtracker.repository.ProjectRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background verifier for denormalized progress values.
+ * Progress is stored at every level, so it can drift from what the rollup would compute,
+ * e.g. after manual SQL or an interrupted import. On a schedule, each project is streamed
+ * into a HierarchySnapshot inside a read-only, repeatable-read transaction (plain reads, no row locks),
+ * rolled up off-line and compared with the stored values. Drift is reported and,
+ * if app.drift.repair is set, repaired by a regular rollup of the affected project, which
+ * also reconciles its materialized child aggregates.
+ * A pause between projects keeps the load low enough to run continuously in production.
+ */
+@Service
+@Slf4j
+public class RollupDriftVerifier {
+
+    private final ProjectRepository projectRepo;
+    private final HierarchySnapshotRepository snapshotRepository;
+    private final CalculationService calculationService;
+    private final ChildAggregateService childAggregates;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+
+    @Value("${app.drift.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.drift.repair:false}")
+    private boolean repair;
+
+    @Value("${app.drift.pause-ms:200}")
+    private long pauseMs;
+
+    private final AtomicLong totalDriftedNodes = new AtomicLong();
+    private volatile DriftReport lastReport;
+    private volatile boolean running;
+
+    public RollupDriftVerifier(ProjectRepository projectRepo,
+                               HierarchySnapshotRepository snapshotRepository,
+                               CalculationService calculationService,
+                               ChildAggregateService childAggregates,
+                               PlatformTransactionManager transactionManager) {
+        this.projectRepo = projectRepo;
+        this.snapshotRepository = snapshotRepository;
+        this.calculationService = calculationService;
+        this.childAggregates = childAggregates;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // The snapshot is loaded with several queries, which must all see the same committed state
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${app.drift.initial-delay-ms:60000}", fixedDelayString = "${app.drift.interval-ms:3600000}")
+    public void scheduledVerify() {
+        if (enabled) {
+            verifyAll();
+        }
+    }
+
+    /**
+     * Verify every project once, one project at a time.
+     */
+    public DriftReport verifyAll() {
+        running = true;
+        DriftReport report = new DriftReport();
+        report.setRepairEnabled(repair);
+        report.setStartedAt(LocalDateTime.now());
+        Map<Long, Integer> driftByProject = new TreeMap<>();
+
+        try {
+            List<Long> projectIds = readOnlyTransaction.execute(status -> projectRepo.findAll().stream()
+                    .map(p -> p.getId())
+                    .toList());
+
+            for (Long projectId : projectIds) {
+                int drifted = verifyProject(projectId);
+                report.setProjectsChecked(report.getProjectsChecked() + 1);
+                if (drifted > 0) {
+                    driftByProject.put(projectId, drifted);
+                    report.setDriftedNodes(report.getDriftedNodes() + drifted);
+                    if (repair && repairProject(projectId)) {
+                        report.setProjectsRepaired(report.getProjectsRepaired() + 1);
+                    }
+                }
+                pause();
+            }
+        } finally {
+            running = false;
+        }
+
+        totalDriftedNodes.addAndGet(report.getDriftedNodes());
+        report.setProjectsWithDrift(driftByProject.size());
+        report.setDriftByProject(driftByProject);
+        report.setFinishedAt(LocalDateTime.now());
+        report.setTotalDriftedNodesSinceStartup(totalDriftedNodes.get());
+        lastReport = report;
+
+        log.info("Drift verification finished: {} projects checked, {} with drift, {} drifted nodes, {} repaired",
+                report.getProjectsChecked(), report.getProjectsWithDrift(), report.getDriftedNodes(), report.getProjectsRepaired());
+        return report;
+    }
+
+    /**
+     * A copy of the last completed report, or an empty one if none was completed yet,
+     * flagged with whether a pass is running now. The stored report itself is never changed.
+     */
+    public DriftReport getLastReport() {
+        DriftReport last = lastReport;
+        DriftReport report = new DriftReport();
+        if (last == null) {
+            report.setRepairEnabled(repair);
+            report.setTotalDriftedNodesSinceStartup(totalDriftedNodes.get());
+        } else {
+            report.setRepairEnabled(last.isRepairEnabled());
+            report.setStartedAt(last.getStartedAt());
+            report.setFinishedAt(last.getFinishedAt());
+            report.setProjectsChecked(last.getProjectsChecked());
+            report.setProjectsWithDrift(last.getProjectsWithDrift());
+            report.setDriftedNodes(last.getDriftedNodes());
+            report.setProjectsRepaired(last.getProjectsRepaired());
+            report.setTotalDriftedNodesSinceStartup(last.getTotalDriftedNodesSinceStartup());
+            report.setDriftByProject(Collections.unmodifiableMap(last.getDriftByProject()));
+        }
+        report.setRunning(running);
+        return report;
+    }
+
+    /**
+     * @return The number of nodes whose stored progress or metricCurrent differs from the expected value
+     */
+    private int verifyProject(Long projectId) {
+        try {
+            Integer drifted = readOnlyTransaction.execute(status -> {
+                HierarchySnapshot snapshot = snapshotRepository.load(projectId);
+                if (snapshot == null) {
+                    return 0;
+                }
+                CalculationService.rollupSnapshot(snapshot);
+                int count = 0;
+                for (int slot = 0; slot < snapshot.getSize(); slot++) {
+                    if (snapshot.progressChanged(slot) || snapshot.metricCurrentChanged(slot)) {
+                        if (count == 0) {
+                            log.warn("Progress drift in project {}: {} id={} stored={} expected={}", projectId,
+                                    HierarchyLevel.values()[snapshot.getLevels()[slot]], snapshot.getIds()[slot],
+                                    snapshot.getStoredProgress()[slot], snapshot.getProgress()[slot]);
+                        }
+                        count++;
+                    }
+                }
+                return count;
+            });
+            return drifted != null ? drifted : 0;
+        } catch (Exception e) {
+            log.error("Drift verification failed for project {}", projectId, e);
+            return 0;
+        }
+    }
+
+    private boolean repairProject(Long projectId) {
+        try {
+            writeTransaction.executeWithoutResult(status -> {
+                calculationService.recalculateProject(projectId);
+                childAggregates.rebuildProject(projectId);
+            });
+            return true;
+        } catch (Exception e) {
+            log.error("Drift repair failed for project {}", projectId, e);
+            return false;
+        }
+    }
+
+    private void pause() {
+        if (pauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.ccc.okrtracker.service;
+
+/**
+ * Selects the implementation CalculationService uses for a whole-project rollup.
+ * Configured via the app.rollup.engine property so both can be compared side by side.
+ */
+public enum RollupEngine {
+    /**
+     * Load the project graph through JPA and recalculate it in a Java loop.
+     */
+    JAVA,
+
+    /**
+     * Recalculate the project with set-based SQL (see ProgressRollupSqlRepository).
+     */
+    SQL,
+
+    /**
+     * Load a primitive-array snapshot of the project (see HierarchySnapshot), recalculate it
+     * in memory and write back only the changed values.
+     */
+    SNAPSHOT
+}
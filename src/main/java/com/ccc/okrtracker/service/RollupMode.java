@@ -0,0 +1,24 @@
+package com.ccc.okrtracker.service;
+
+/**
+ * Selects how CalculationService rolls up progress after a hierarchy write.
+ * Configured via the app.rollup.mode property.
+ */
+public enum RollupMode {
+    /**
+     * Reload and recalculate the whole project tree on every write.
+     */
+    FULL,
+
+    /**
+     * Recalculate only the changed node and its ancestors, using the stored
+     * progress of their siblings.
+     */
+    PATH,
+
+    /**
+     * Derive progress from the materialized child aggregates only (kept current by database
+     * triggers): ChildAggregateService re-derives the changed node's ancestors and no further rollup runs.
+     */
+    DELTA
+}
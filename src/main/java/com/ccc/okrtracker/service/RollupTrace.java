@@ -0,0 +1,111 @@
+package com.ccc.okrtracker.service;
+
+/**
+ * Compact, in-memory trace of the decisions a rollup made, one short entry per node
+ * (e.g. "KR#42 ai 3/4=75"). Replaces per-node INFO logging: tracing is off unless a trace
+ * was started for the current thread, so untraced rollups only pay a null check per node.
+ * A trace is started per request (X-Rollup-Trace header, see RollupTraceFilter) or per
+ * project (app.rollup.trace.project-ids) and ends up as a single log event or response header.
+ */
+public final class RollupTrace {
+
+    // Bounds memory and header size on very large projects
+    private static final int MAX_ENTRIES = 500;
+
+    private static final ThreadLocal<RollupTrace> CURRENT = new ThreadLocal<>();
+
+    private final StringBuilder entries = new StringBuilder(256);
+    private final long startNanos = System.nanoTime();
+    private int count;
+    private int dropped;
+
+    private RollupTrace() {
+    }
+
+    /**
+     * Start tracing on the current thread, unless a trace is already active.
+     *
+     * @return The new trace, or null if one was already active (the caller must then not end it)
+     */
+    public static RollupTrace start() {
+        if (CURRENT.get() != null) {
+            return null;
+        }
+        RollupTrace trace = new RollupTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * @return The active trace of the current thread, or null if tracing is off
+     */
+    public static RollupTrace current() {
+        return CURRENT.get();
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Stop tracing on the current thread.
+     */
+    public void end() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Record the progress decided for one node.
+     *
+     * @param node     Short node type, e.g. "KR", "OBJ"
+     * @param id       The node ID
+     * @param decision How the value was derived, e.g. "manual", "ai 3/4", "metric", "avg 2"
+     * @param progress The resulting progress
+     */
+    public void node(String node, Long id, String decision, int progress) {
+        if (reserve()) {
+            entries.append(node).append('#').append(id).append(' ').append(decision).append('=').append(progress);
+        }
+    }
+
+    /**
+     * Record a free-form event, e.g. "engine=SQL" or "KR#42 unlocked".
+     */
+    public void event(String message) {
+        if (reserve()) {
+            entries.append(message);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    private boolean reserve() {
+        if (count >= MAX_ENTRIES) {
+            dropped++;
+            return false;
+        }
+        if (count > 0) {
+            entries.append("; ");
+        }
+        count++;
+        return true;
+    }
+
+    /**
+     * @return The whole trace on one line, prefixed with its duration
+     */
+    @Override
+    public String toString() {
+        long micros = (System.nanoTime() - startNanos) / 1_000;
+        StringBuilder sb = new StringBuilder(entries.length() + 32);
+        sb.append(micros).append("us: ").append(entries);
+        if (dropped > 0) {
+            sb.append("; ... ").append(dropped).append(" more");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,161 @@
+package com.ccc.okrtracker;
+
+import com.ccc.okrtracker.entity.*;
+import com.ccc.okrtracker.repository.RoleRepository;
+import com.ccc.okrtracker.repository.UserProjectRepository;
+import com.ccc.okrtracker.repository.UserRepository;
+import com.ccc.okrtracker.service.HierarchyService;
+import com.ccc.okrtracker.service.ProgressHistoryRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Integration test for response compression, against the embedded Tomcat: MockMvc bypasses the
+ * container's compression. Requests carry a bearer token accepted by a mocked JwtDecoder.
+ * Not transactional (the server runs on its own threads), so the rows created are deleted after each test.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("dev")
+public class HierarchyCompressionIntegrationTest {
+
+    private static final String EMAIL = "gzip_user";
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private HierarchyService hierarchyService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private UserProjectRepository userProjectRepository;
+
+    @Autowired
+    private ProgressHistoryRecorder historyRecorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private Role role;
+    private User user;
+    private Project project;
+
+    @BeforeEach
+    public void setUp() {
+        when(jwtDecoder.decode(anyString())).thenReturn(Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .claim("email", EMAIL)
+                .build());
+
+        role = new Role();
+        role.setName("Compression Test Viewer");
+        role.setPermissions(Set.of("VIEW_STRATEGY"));
+        role = roleRepository.save(role);
+        user = new User();
+        user.setEmail(EMAIL);
+        user.setLogin(EMAIL);
+        user.setRoles(Set.of(role));
+        user = userRepository.save(user);
+
+        project = new Project();
+        project.setTitle("Compressed Project");
+        project = hierarchyService.createProject(project);
+        userProjectRepository.assignUserToProject(user.getId(), project.getId(), AccessLevel.VIEWER, "test");
+        // Well above server.compression.min-response-size
+        for (int i = 1; i <= 10; i++) {
+            StrategicInitiative initiative = new StrategicInitiative();
+            initiative.setTitle("Initiative " + i);
+            initiative.setDescription("A long description of the initiative. ".repeat(20));
+            hierarchyService.addInitiative(project.getId(), initiative);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        historyRecorder.flush();
+        jdbcTemplate.update("DELETE FROM strategic_initiative WHERE project_id = ?", project.getId());
+        jdbcTemplate.update("DELETE FROM user_projects WHERE project_id = ?", project.getId());
+        jdbcTemplate.update("DELETE FROM progress_history WHERE project_id = ?", project.getId());
+        jdbcTemplate.update("DELETE FROM project WHERE id = ?", project.getId());
+        userRepository.delete(user);
+        roleRepository.delete(role);
+    }
+
+    @Test
+    public void testProjectsAreGzipped() throws Exception {
+        HttpResponse<byte[]> response = get("/api/hierarchy/projects", "gzip", null);
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+        String json = gunzip(response.body());
+        assertTrue(json.startsWith("[{") && json.contains("Compressed Project"), json);
+        assertTrue(response.body().length < json.length() / 4, "Compressed " + json.length() + " to " + response.body().length);
+
+        String etag = response.headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+        assertTrue(etag.startsWith("W/"), "Weak, the gzipped body is not the byte-identical representation");
+        assertEquals(304, get("/api/hierarchy/projects", "gzip", etag).statusCode());
+        assertEquals(304, get("/api/hierarchy/projects", null, etag).statusCode(),
+                "The plain and gzipped bodies share the ETag");
+    }
+
+    @Test
+    public void testTreeIsGzippedAndPlainWithoutAcceptEncoding() throws Exception {
+        HttpResponse<byte[]> gzipped = get("/api/hierarchy/tree?depth=1", "gzip", null);
+        HttpResponse<byte[]> plain = get("/api/hierarchy/tree?depth=1", null, null);
+
+        assertEquals("gzip", gzipped.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+        assertTrue(plain.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isEmpty());
+        assertEquals(new String(plain.body(), StandardCharsets.UTF_8), gunzip(gzipped.body()));
+    }
+
+    private HttpResponse<byte[]> get(String path, String acceptEncoding, String ifNoneMatch) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header(HttpHeaders.AUTHORIZATION, "Bearer token");
+        if (acceptEncoding != null) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static String gunzip(byte[] body) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.ccc.okrtracker;
+
+import com.ccc.okrtracker.entity.*;
+import com.ccc.okrtracker.service.CalculationService;
+import com.ccc.okrtracker.service.HierarchyService;
+import com.ccc.okrtracker.service.ProgressHistoryRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for writes racing a rollup of the same project. Not transactional: the
+ * racing transactions must commit, so the rows created are deleted after each test.
+ */
+@SpringBootTest
+@ActiveProfiles("dev")
+@WithMockUser(username = "admin_user", authorities = {"VIEW_STRATEGY", "MANAGE_STRATEGY"})
+public class HierarchyConcurrentWriteIntegrationTest {
+
+    @Autowired
+    private HierarchyService hierarchyService;
+
+    @Autowired
+    private CalculationService calculationService;
+
+    @Autowired
+    private ProgressHistoryRecorder historyRecorder;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Project project;
+    private KeyResult keyResult;
+    private ActionItem actionItem;
+
+    @BeforeEach
+    public void setUp() {
+        project = hierarchyService.createProject(project("Concurrent Project"));
+        StrategicInitiative initiative = hierarchyService.addInitiative(project.getId(), initiative("Initiative"));
+        Goal goal = hierarchyService.addGoal(initiative.getId(), goal("Goal"));
+        Objective objective = hierarchyService.addObjective(goal.getId(), objective("Objective"));
+        keyResult = hierarchyService.addKeyResult(objective.getId(), keyResult("Key Result"));
+        actionItem = hierarchyService.addActionItem(keyResult.getId(), actionItem("Action Item"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        historyRecorder.flush();
+        Long projectId = project.getId();
+        jdbcTemplate.update("""
+                DELETE FROM action_item WHERE key_result_id IN (SELECT k.id FROM key_result k
+                JOIN objective o ON o.id = k.objective_id JOIN goal g ON g.id = o.goal_id
+                JOIN strategic_initiative i ON i.id = g.initiative_id WHERE i.project_id = ?)""", projectId);
+        jdbcTemplate.update("""
+                DELETE FROM key_result WHERE objective_id IN (SELECT o.id FROM objective o
+                JOIN goal g ON g.id = o.goal_id JOIN strategic_initiative i ON i.id = g.initiative_id
+                WHERE i.project_id = ?)""", projectId);
+        jdbcTemplate.update("""
+                DELETE FROM objective WHERE goal_id IN (SELECT g.id FROM goal g
+                JOIN strategic_initiative i ON i.id = g.initiative_id WHERE i.project_id = ?)""", projectId);
+        jdbcTemplate.update("DELETE FROM goal WHERE initiative_id IN (SELECT id FROM strategic_initiative WHERE project_id = ?)", projectId);
+        jdbcTemplate.update("DELETE FROM strategic_initiative WHERE project_id = ?", projectId);
+        jdbcTemplate.update("DELETE FROM progress_history WHERE project_id = ?", projectId);
+        jdbcTemplate.update("DELETE FROM project WHERE id = ?", projectId);
+    }
+
+    @Test
+    public void testEditWaitingForRollupKeepsRolledUpProgress() throws Exception {
+        // Completed behind the services' back, so only the rollup below moves the key result to 100
+        jdbcTemplate.update("UPDATE action_item SET is_completed = TRUE, progress = 100 WHERE id = ?", actionItem.getId());
+        AtomicReference<Thread> editor = new AtomicReference<>();
+        CompletableFuture<KeyResult> edit = new CompletableFuture<>();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            calculationService.recalculateProject(project.getId());
+            // A title-only edit of the key result, started while the rollup holds the project
+            Thread thread = new Thread(() -> {
+                try {
+                    KeyResult updates = new KeyResult();
+                    updates.setProgress(null);
+                    updates.setIsActive(null);
+                    updates.setTitle("Renamed Key Result");
+                    edit.complete(hierarchyService.updateKeyResult(keyResult.getId(), updates));
+                } catch (RuntimeException e) {
+                    edit.completeExceptionally(e);
+                }
+            });
+            editor.set(thread);
+            thread.start();
+            awaitBlocked(thread);
+        });
+
+        KeyResult edited = edit.get(10, TimeUnit.SECONDS);
+        editor.get().join(5000);
+        assertEquals("Renamed Key Result", edited.getTitle());
+        assertEquals(100, edited.getProgress(), "The edit read the key result after the rollup committed");
+        assertEquals(100, jdbcTemplate.queryForObject("SELECT progress FROM key_result WHERE id = ?",
+                Integer.class, keyResult.getId()), "The rolled-up progress is not overwritten by the edit");
+    }
+
+    // Waits until the thread is parked, i.e. waiting for the project lock held by this transaction
+    private static void awaitBlocked(Thread thread) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.TIMED_WAITING && thread.getState() != Thread.State.WAITING) {
+            assertTrue(System.currentTimeMillis() < deadline, "The edit never waited for the project lock");
+            Thread.onSpinWait();
+        }
+    }
+
+    // --- Nodes ---
+
+    private static Project project(String title) {
+        Project project = new Project();
+        project.setTitle(title);
+        return project;
+    }
+
+    private static StrategicInitiative initiative(String title) {
+        StrategicInitiative initiative = new StrategicInitiative();
+        initiative.setTitle(title);
+        return initiative;
+    }
+
+    private static Goal goal(String title) {
+        Goal goal = new Goal();
+        goal.setTitle(title);
+        return goal;
+    }
+
+    private static Objective objective(String title) {
+        Objective objective = new Objective();
+        objective.setTitle(title);
+        return objective;
+    }
+
+    private static KeyResult keyResult(String title) {
+        KeyResult keyResult = new KeyResult();
+        keyResult.setTitle(title);
+        return keyResult;
+    }
+
+    private static ActionItem actionItem(String title) {
+        ActionItem actionItem = new ActionItem();
+        actionItem.setTitle(title);
+        return actionItem;
+    }
+}
@@ -0,0 +1,257 @@
+package com.ccc.okrtracker;
+
+import com.ccc.okrtracker.entity.AccessLevel;
+import com.ccc.okrtracker.entity.Goal;
+import com.ccc.okrtracker.entity.Project;
+import com.ccc.okrtracker.entity.User;
+import com.ccc.okrtracker.repository.HierarchyLevel;
+import com.ccc.okrtracker.repository.UserProjectRepository;
+import com.ccc.okrtracker.repository.UserRepository;
+import com.ccc.okrtracker.service.HierarchyEventService;
+import com.ccc.okrtracker.service.HierarchyService;
+import com.ccc.okrtracker.service.ProgressHistoryRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Integration test for the live event stream (GET /api/hierarchy/events): events are published
+ * through HierarchyEventService in committed or rolled-back transactions and read back from the
+ * streamed response. Each test ends with a committed "marker" event; events are delivered in order,
+ * so anything not in the stream before the marker was never queued. Not transactional, so the
+ * rows created are deleted after each test.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("dev")
+@TestPropertySource(properties = {"app.events.buffer-size=4", "app.events.heartbeat-ms=3600000",
+        "app.events.access-refresh-ms=3600000"})
+@WithMockUser(username = "admin_user", authorities = {"VIEW_STRATEGY", "MANAGE_STRATEGY"})
+public class HierarchyEventsIntegrationTest {
+
+    private static final long MARKER_ID = 999_999L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HierarchyEventService eventService;
+
+    @Autowired
+    private HierarchyService hierarchyService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserProjectRepository userProjectRepository;
+
+    @Autowired
+    private ProgressHistoryRecorder historyRecorder;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> projectIds = new ArrayList<>();
+    private User user;
+    private Project project;
+    private Project hiddenProject;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        user = new User();
+        user.setEmail("admin_user");
+        user.setLogin("admin_user");
+        user = userRepository.save(user);
+
+        project = hierarchyService.createProject(project("Streamed Project"));
+        projectIds.add(project.getId());
+        userProjectRepository.assignUserToProject(user.getId(), project.getId(), AccessLevel.VIEWER, "test");
+        hiddenProject = hierarchyService.createProject(project("Hidden Project"));
+        projectIds.add(hiddenProject.getId());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        historyRecorder.flush();
+        for (Long projectId : projectIds) {
+            jdbcTemplate.update("DELETE FROM user_projects WHERE project_id = ?", projectId);
+            jdbcTemplate.update("DELETE FROM progress_history WHERE project_id = ?", projectId);
+            jdbcTemplate.update("DELETE FROM project WHERE id = ?", projectId);
+        }
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    public void testEventsSentAfterCommitOnly() throws Exception {
+        MvcResult stream = subscribe();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            eventService.nodeChanged(HierarchyEventService.UPDATED, project.getId(), goal(101L), null);
+            assertFalse(events(stream).contains("\"id\":101"), "Nothing is sent before the commit");
+        });
+        awaitEvent(stream, "\"id\":101");
+        transactionTemplate.executeWithoutResult(status -> {
+            eventService.nodeChanged(HierarchyEventService.UPDATED, project.getId(), goal(102L), null);
+            status.setRollbackOnly();
+        });
+        sendMarker(stream);
+
+        String events = events(stream);
+        assertTrue(events.contains("event:updated\ndata:{\"event\":\"updated\",\"type\":\"Goal\",\"id\":101,\"projectId\":"
+                + project.getId()), events);
+        assertFalse(events.contains("\"id\":102"), "A rolled-back transaction sends nothing");
+    }
+
+    @Test
+    public void testEventsCoalescedPerTransaction() throws Exception {
+        MvcResult stream = subscribe();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            eventService.progressChanged(HierarchyLevel.KEY_RESULT, project.getId(), 201L, 10);
+            eventService.progressChanged(HierarchyLevel.KEY_RESULT, project.getId(), 201L, 50);
+            eventService.progressChanged(HierarchyLevel.KEY_RESULT, project.getId(), 201L, 80);
+        });
+        sendMarker(stream);
+
+        String events = events(stream);
+        assertEquals(1, count(events, "\"id\":201"), events);
+        assertTrue(events.contains("\"id\":201,\"projectId\":" + project.getId() + ",\"progress\":80"),
+                "The node's final value is sent: " + events);
+    }
+
+    @Test
+    public void testOverflowSendsSingleResync() throws Exception {
+        MvcResult stream = subscribe();
+
+        // More than the 4 queued events a subscriber may have, all fanned out at the same commit
+        transactionTemplate.executeWithoutResult(status -> {
+            for (long id = 301; id <= 310; id++) {
+                eventService.nodeChanged(HierarchyEventService.UPDATED, project.getId(), goal(id), null);
+            }
+        });
+        sendMarker(stream);
+
+        String events = events(stream);
+        assertEquals(1, count(events, "event:resync\n"), events);
+        assertTrue(events.contains("data:{\"event\":\"resync\"}"), events);
+        assertFalse(events.contains("\"id\":30"), "The queued events are superseded by the resync: " + events);
+    }
+
+    @Test
+    public void testInaccessibleProjectEventsNeverQueued() throws Exception {
+        MvcResult stream = subscribe();
+
+        // Enough to overflow the queue, had they been queued
+        transactionTemplate.executeWithoutResult(status -> {
+            for (long id = 401; id <= 410; id++) {
+                eventService.nodeChanged(HierarchyEventService.UPDATED, hiddenProject.getId(), goal(id), null);
+            }
+            eventService.resync(List.of(hiddenProject.getId()));
+        });
+        sendMarker(stream);
+
+        String events = events(stream);
+        assertFalse(events.contains("\"id\":4"), events);
+        assertFalse(events.contains("resync"), events);
+    }
+
+    @Test
+    public void testRefreshAccessAppliesGrants() throws Exception {
+        MvcResult stream = subscribe();
+        userProjectRepository.assignUserToProject(user.getId(), hiddenProject.getId(), AccessLevel.VIEWER, "test");
+
+        eventService.refreshAccess();
+        transactionTemplate.executeWithoutResult(status ->
+                eventService.nodeChanged(HierarchyEventService.UPDATED, hiddenProject.getId(), goal(501L), null));
+        sendMarker(stream);
+
+        assertTrue(events(stream).contains("\"id\":501"), "Granted projects are streamed to open connections");
+    }
+
+    @Test
+    public void testRefreshAccessDisconnectsDeactivatedUser() throws Exception {
+        MvcResult stream = subscribe();
+        jdbcTemplate.update("UPDATE app_users SET is_active = FALSE WHERE id = ?", user.getId());
+
+        eventService.refreshAccess();
+
+        // Completing the emitter ends the async request
+        stream.getAsyncResult(5000);
+        eventService.nodeChanged(HierarchyEventService.UPDATED, project.getId(), goal(601L), null);
+        Thread.sleep(200);
+        assertFalse(events(stream).contains("\"id\":601"), "Nothing is sent after the disconnect");
+    }
+
+    private MvcResult subscribe() throws Exception {
+        return mockMvc.perform(get("/api/hierarchy/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    // Returns once the marker was sent, i.e. after every event published before it
+    private void sendMarker(MvcResult stream) throws Exception {
+        transactionTemplate.executeWithoutResult(status ->
+                eventService.nodeChanged(HierarchyEventService.UPDATED, project.getId(), goal(MARKER_ID), null));
+        awaitEvent(stream, "\"id\":" + MARKER_ID);
+    }
+
+    private static String events(MvcResult stream) {
+        return new String(stream.getResponse().getContentAsByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void awaitEvent(MvcResult stream, String text) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!events(stream).contains(text)) {
+            assertTrue(System.currentTimeMillis() < deadline, "Never received " + text + ": " + events(stream));
+            Thread.sleep(10);
+        }
+    }
+
+    private static int count(String events, String text) {
+        Matcher matcher = Pattern.compile(Pattern.quote(text)).matcher(events);
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static Goal goal(Long id) {
+        Goal goal = new Goal();
+        goal.setId(id);
+        return goal;
+    }
+
+    private static Project project(String title) {
+        Project project = new Project();
+        project.setTitle(title);
+        return project;
+    }
+}
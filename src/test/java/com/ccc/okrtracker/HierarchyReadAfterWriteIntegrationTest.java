@@ -0,0 +1,326 @@
+package com.ccc.okrtracker;
+
+import com.ccc.okrtracker.entity.*;
+import com.ccc.okrtracker.repository.UserProjectRepository;
+import com.ccc.okrtracker.repository.UserRepository;
+import com.ccc.okrtracker.dto.ChangeSet;
+import com.ccc.okrtracker.dto.TreeCacheStats;
+import com.ccc.okrtracker.dto.TreeNode;
+import com.ccc.okrtracker.service.CalculationService;
+import com.ccc.okrtracker.service.HierarchyService;
+import com.ccc.okrtracker.service.ProgressHistoryRecorder;
+import com.ccc.okrtracker.service.ProjectTreeCache;
+import com.ccc.okrtracker.service.RollupEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration test for reads that depend on earlier writes having committed: every service
+ * call and every request here runs in its own transaction, like in production. Not
+ * transactional itself, so the rows it creates are deleted after each test.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("dev")
+@WithMockUser(username = "admin_user", authorities = {"VIEW_STRATEGY", "MANAGE_STRATEGY"})
+public class HierarchyReadAfterWriteIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HierarchyService hierarchyService;
+
+    @Autowired
+    private CalculationService calculationService;
+
+    @Autowired
+    private ProjectTreeCache treeCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserProjectRepository userProjectRepository;
+
+    @Autowired
+    private ProgressHistoryRecorder historyRecorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Long> projectIds = new ArrayList<>();
+    private User user;
+    private Project project;
+    private StrategicInitiative initiative;
+    private Goal goal;
+    private Objective objective;
+
+    @BeforeEach
+    public void setUp() {
+        user = new User();
+        user.setEmail("admin_user");
+        user.setLogin("admin_user");
+        user = userRepository.save(user);
+
+        project = hierarchyService.createProject(project("Committed Project"));
+        projectIds.add(project.getId());
+        userProjectRepository.assignUserToProject(user.getId(), project.getId(), AccessLevel.VIEWER, "test");
+
+        initiative = hierarchyService.addInitiative(project.getId(), initiative("Initiative"));
+        goal = hierarchyService.addGoal(initiative.getId(), goal("Goal"));
+        objective = hierarchyService.addObjective(goal.getId(), objective("Objective"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        // Write out the queued history points first, so none arrive after the cleanup
+        historyRecorder.flush();
+        for (Long projectId : projectIds) {
+            jdbcTemplate.update("""
+                    DELETE FROM action_item WHERE key_result_id IN (SELECT k.id FROM key_result k
+                    JOIN objective o ON o.id = k.objective_id JOIN goal g ON g.id = o.goal_id
+                    JOIN strategic_initiative i ON i.id = g.initiative_id WHERE i.project_id = ?)""", projectId);
+            jdbcTemplate.update("""
+                    DELETE FROM key_result WHERE objective_id IN (SELECT o.id FROM objective o
+                    JOIN goal g ON g.id = o.goal_id JOIN strategic_initiative i ON i.id = g.initiative_id
+                    WHERE i.project_id = ?)""", projectId);
+            jdbcTemplate.update("""
+                    DELETE FROM objective WHERE goal_id IN (SELECT g.id FROM goal g
+                    JOIN strategic_initiative i ON i.id = g.initiative_id WHERE i.project_id = ?)""", projectId);
+            jdbcTemplate.update("DELETE FROM goal WHERE initiative_id IN (SELECT id FROM strategic_initiative WHERE project_id = ?)", projectId);
+            jdbcTemplate.update("DELETE FROM strategic_initiative WHERE project_id = ?", projectId);
+            jdbcTemplate.update("DELETE FROM user_projects WHERE project_id = ?", projectId);
+            jdbcTemplate.update("DELETE FROM progress_history WHERE project_id = ?", projectId);
+            jdbcTemplate.update("DELETE FROM project WHERE id = ?", projectId);
+        }
+        userRepository.deleteById(user.getId());
+    }
+
+    // --- ETag (conditional GET) ---
+
+    @Test
+    public void testWriteChangesETag() throws Exception {
+        String etag = getETag("/api/hierarchy/projects");
+        String treeETag = getETag("/api/hierarchy/tree?depth=3");
+
+        Objective updates = new Objective();
+        updates.setProgress(null);
+        updates.setTitle("Renamed Objective");
+        hierarchyService.updateObjective(objective.getId(), updates);
+
+        String newETag = mockMvc.perform(get("/api/hierarchy/projects").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].initiatives[0].goals[0].objectives[0].title").value("Renamed Objective"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, newETag, "A committed write changes the ETag");
+        mockMvc.perform(get("/api/hierarchy/projects").header(HttpHeaders.IF_NONE_MATCH, newETag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/hierarchy/tree?depth=3").header(HttpHeaders.IF_NONE_MATCH, treeETag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].children[0].children[0].children[0].title").value("Renamed Objective"));
+    }
+
+    // --- Tree cache ---
+
+    @Test
+    public void testRollupEvictsCachedTree() throws Exception {
+        String etag = getETag("/api/hierarchy/projects");
+        // Behind the services' back: no version bump, so the cached tree is still served.
+        // The objective has no key results, so the rollup resets its progress to 0.
+        jdbcTemplate.update("UPDATE objective SET title = 'Changed Behind Cache', progress = 40 WHERE id = ?", objective.getId());
+        mockMvc.perform(get("/api/hierarchy/projects"))
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(jsonPath("$[0].initiatives[0].goals[0].objectives[0].title").value("Objective"));
+        long invalidations = treeCache.getStats().getInvalidations();
+
+        calculationService.recalculateProject(project.getId());
+
+        assertEquals(invalidations + 1, treeCache.getStats().getInvalidations(), "The rollup evicts the project once");
+        mockMvc.perform(get("/api/hierarchy/projects").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].initiatives[0].goals[0].objectives[0].title").value("Changed Behind Cache"));
+    }
+
+    @ParameterizedTest(name = "{0} engine")
+    @EnumSource(RollupEngine.class)
+    public void testRollupWithoutChangesKeepsCachedTree(RollupEngine engine) throws Exception {
+        String etag = getETag("/api/hierarchy/projects");
+        long invalidations = treeCache.getStats().getInvalidations();
+
+        CalculationService target = AopTestUtils.getTargetObject(calculationService);
+        Object originalEngine = ReflectionTestUtils.getField(target, "rollupEngine");
+        ReflectionTestUtils.setField(target, "rollupEngine", engine);
+        try {
+            calculationService.recalculateProject(project.getId());
+        } finally {
+            ReflectionTestUtils.setField(target, "rollupEngine", originalEngine);
+        }
+
+        assertEquals(invalidations, treeCache.getStats().getInvalidations(), "Nothing was written, so nothing is evicted");
+        mockMvc.perform(get("/api/hierarchy/projects").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void testWriteEvictsCachedTreeAfterCommit() throws Exception {
+        getETag("/api/hierarchy/projects");
+        TreeCacheStats before = treeCache.getStats();
+
+        Objective updates = new Objective();
+        updates.setProgress(null);
+        updates.setTitle("Renamed Objective");
+        hierarchyService.updateObjective(objective.getId(), updates);
+
+        TreeCacheStats after = treeCache.getStats();
+        assertEquals(before.getInvalidations() + 1, after.getInvalidations());
+        assertEquals(before.getEntries() - 1, after.getEntries());
+        assertTrue(after.getBytes() <= after.getMaxBytes());
+    }
+
+    // --- Changes since a cursor ---
+
+    @Test
+    public void testChangesSinceCursor() throws Exception {
+        Objective untouched = hierarchyService.addObjective(goal.getId(), objective("Untouched Objective"));
+        Goal archived = hierarchyService.addGoal(initiative.getId(), goal("Archived Goal"));
+        KeyResult keyResult = hierarchyService.addKeyResult(objective.getId(), keyResult("Key Result"));
+        ActionItem actionItem = hierarchyService.addActionItem(keyResult.getId(), actionItem("Action Item"));
+        String cursor = getChanges(null).getCursor();
+
+        Goal archive = new Goal();
+        archive.setProgress(null);
+        archive.setIsActive(false);
+        hierarchyService.updateGoal(archived.getId(), archive);
+        // Completing the action item changes its key result's progress and nothing else about it
+        ActionItem complete = new ActionItem();
+        complete.setProgress(null);
+        complete.setIsActive(null);
+        complete.setIsCompleted(true);
+        hierarchyService.updateActionItem(actionItem.getId(), complete);
+
+        ChangeSet changes = getChanges(cursor);
+        Map<String, TreeNode> nodes = changes.getNodes().stream()
+                .collect(Collectors.toMap(node -> node.getType() + ":" + node.getId(), Function.identity()));
+
+        assertEquals(Set.of(project.getId()), changes.getProjectIds());
+        assertNotEquals(cursor, changes.getCursor(), "The cursor moves past the writes");
+        TreeNode archivedNode = nodes.get("Goal:" + archived.getId());
+        assertNotNull(archivedNode, "Archived nodes are returned");
+        assertFalse(archivedNode.getIsActive());
+        assertEquals(initiative.getId(), archivedNode.getParentId());
+        TreeNode keyResultNode = nodes.get("KeyResult:" + keyResult.getId());
+        assertNotNull(keyResultNode, "Nodes whose only change is their rolled-up progress are returned");
+        assertEquals(100, keyResultNode.getProgress());
+        assertEquals(objective.getId(), keyResultNode.getParentId());
+        assertTrue(nodes.containsKey("ActionItem:" + actionItem.getId()));
+        assertTrue(nodes.containsKey("Objective:" + objective.getId()));
+        assertFalse(nodes.containsKey("Objective:" + untouched.getId()), "Nodes not written since the cursor are not returned");
+    }
+
+    @Test
+    public void testChildAggregatesDoNotMarkParentChanged() throws Exception {
+        KeyResult keyResult = hierarchyService.addKeyResult(objective.getId(), keyResult("Key Result"));
+        hierarchyService.addActionItem(keyResult.getId(), actionItem("First Action Item"));
+        String cursor = getChanges(null).getCursor();
+
+        // The triggers update the KR's active_child_count, child_progress_sum and child_count; its progress stays 0
+        ActionItem added = hierarchyService.addActionItem(keyResult.getId(), actionItem("Second Action Item"));
+
+        Set<String> nodes = getChanges(cursor).getNodes().stream()
+                .map(node -> node.getType() + ":" + node.getId())
+                .collect(Collectors.toSet());
+        assertTrue(nodes.contains("ActionItem:" + added.getId()));
+        assertFalse(nodes.contains("KeyResult:" + keyResult.getId()), "Materialized aggregates are bookkeeping, not changes");
+    }
+
+    @Test
+    public void testChangesWithoutCursorReturnsOnlyCursor() throws Exception {
+        ChangeSet changes = getChanges(null);
+
+        assertNotNull(changes.getCursor());
+        assertTrue(changes.getNodes().isEmpty());
+        assertEquals(Set.of(project.getId()), changes.getProjectIds());
+    }
+
+    private ChangeSet getChanges(String cursor) throws Exception {
+        String json = mockMvc.perform(get("/api/hierarchy/changes" + (cursor != null ? "?cursor=" + cursor : "")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(json, ChangeSet.class);
+    }
+
+    private String getETag(String url) throws Exception {
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag, "GET " + url + " returns an ETag");
+        return etag;
+    }
+
+    // --- Nodes ---
+
+    private static Project project(String title) {
+        Project project = new Project();
+        project.setTitle(title);
+        return project;
+    }
+
+    private static StrategicInitiative initiative(String title) {
+        StrategicInitiative initiative = new StrategicInitiative();
+        initiative.setTitle(title);
+        return initiative;
+    }
+
+    private static Goal goal(String title) {
+        Goal goal = new Goal();
+        goal.setTitle(title);
+        return goal;
+    }
+
+    private static Objective objective(String title) {
+        Objective objective = new Objective();
+        objective.setTitle(title);
+        return objective;
+    }
+
+    private static KeyResult keyResult(String title) {
+        KeyResult keyResult = new KeyResult();
+        keyResult.setTitle(title);
+        return keyResult;
+    }
+
+    private static ActionItem actionItem(String title) {
+        ActionItem actionItem = new ActionItem();
+        actionItem.setTitle(title);
+        return actionItem;
+    }
+}
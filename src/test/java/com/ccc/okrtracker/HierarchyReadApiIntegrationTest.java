@@ -0,0 +1,507 @@
+package com.ccc.okrtracker;
+
+import com.ccc.okrtracker.dto.AssignedItem;
+import com.ccc.okrtracker.dto.AssignedItemPage;
+import com.ccc.okrtracker.dto.Breadcrumb;
+import com.ccc.okrtracker.config.WireFormatConfig;
+import com.ccc.okrtracker.entity.*;
+import com.ccc.okrtracker.repository.UserProjectRepository;
+import com.ccc.okrtracker.repository.UserRepository;
+import com.ccc.okrtracker.service.HierarchyService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration test for the read endpoints of /api/hierarchy, through MockMvc.
+ * The caller can access one project; a second project exists but is not assigned to them.
+ * Everything runs in one rolled-back transaction, so a project's version is bumped only once
+ * here; reads after separate committed writes are covered by HierarchyReadAfterWriteIntegrationTest.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("dev")
+@Transactional
+@WithMockUser(username = "admin_user", authorities = {"VIEW_STRATEGY", "MANAGE_STRATEGY"})
+public class HierarchyReadApiIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HierarchyService hierarchyService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserProjectRepository userProjectRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User user;
+    private Project project;
+    private Project hiddenProject;
+    private Goal goal;
+
+    @BeforeEach
+    public void setUp() {
+        user = new User();
+        user.setFirstName("Admin");
+        user.setLastName("User");
+        user.setEmail("admin_user");
+        user.setLogin("admin_user");
+        user = userRepository.save(user);
+
+        project = hierarchyService.createProject(project("Visible Project"));
+        hiddenProject = hierarchyService.createProject(project("Hidden Project"));
+        userProjectRepository.assignUserToProject(user.getId(), project.getId(), AccessLevel.VIEWER, "test");
+
+        StrategicInitiative initiative = hierarchyService.addInitiative(project.getId(), initiative("Initiative"));
+        goal = hierarchyService.addGoal(initiative.getId(), goal("Goal"));
+        hierarchyService.addObjective(goal.getId(), objective("Objective"));
+    }
+
+    // --- ETag (conditional GET) ---
+
+    @Test
+    public void testUnchangedProjectsAnswerNotModified() throws Exception {
+        String etag = getETag("/api/hierarchy/projects");
+
+        mockMvc.perform(get("/api/hierarchy/projects").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/hierarchy/projects"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    public void testWriteToInaccessibleProjectKeepsETag() throws Exception {
+        String etag = getETag("/api/hierarchy/projects");
+
+        hierarchyService.addInitiative(hiddenProject.getId(), initiative("Hidden Initiative"));
+
+        mockMvc.perform(get("/api/hierarchy/projects").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    // --- Changes since a cursor ---
+
+    @Test
+    public void testInvalidChangesCursorIsRejected() throws Exception {
+        mockMvc.perform(get("/api/hierarchy/changes?cursor=abc"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/hierarchy/changes?cursor=-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // --- Filters ---
+
+    @Test
+    public void testFilterKeepsMatchesAndTheirAncestors() throws Exception {
+        createFilterTree();
+        String objectives = "$[0].initiatives[0].goals[0].objectives";
+
+        mockMvc.perform(get("/api/hierarchy/projects?assignee=bob"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("Visible Project")))
+                .andExpect(jsonPath(objectives + "[*].title", contains("Q3 Objective")))
+                .andExpect(jsonPath(objectives + "[0].keyResults[*].title", contains("Bob KR")))
+                .andExpect(jsonPath(objectives + "[0].keyResults[0].actionItems", empty()));
+        // Nothing matches: projects without a match are left out, the inaccessible one is never read
+        mockMvc.perform(get("/api/hierarchy/projects?assignee=nobody"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", empty()));
+    }
+
+    @Test
+    public void testYearAndQuarterSelectEverythingBelowObjective() throws Exception {
+        createFilterTree();
+        String objectives = "$[0].initiatives[0].goals[0].objectives";
+
+        mockMvc.perform(get("/api/hierarchy/projects?year=2025&quarter=Q3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(objectives + "[*].title", contains("Q3 Objective")))
+                .andExpect(jsonPath(objectives + "[0].keyResults[0].actionItems[*].title", contains("Done Past AI", "Open Past AI")));
+        mockMvc.perform(get("/api/hierarchy/projects?year=2025&quarter=Q1"))
+                .andExpect(jsonPath("$", empty()));
+    }
+
+    @Test
+    public void testDueBeforeFilter() throws Exception {
+        createFilterTree();
+        String objectives = "$[0].initiatives[0].goals[0].objectives";
+
+        mockMvc.perform(get("/api/hierarchy/projects?dueBefore=2021-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(objectives + "[*].title", contains("Q3 Objective")))
+                .andExpect(jsonPath(objectives + "[0].keyResults[0].actionItems[*].title", contains("Done Past AI", "Open Past AI")));
+        // Key results have no due date: the one without action items is never matched
+        mockMvc.perform(get("/api/hierarchy/projects?dueBefore=3000-01-01"))
+                .andExpect(jsonPath(objectives + "[*].title", contains("Q3 Objective", "Future Objective")))
+                .andExpect(jsonPath(objectives + "[1].keyResults", empty()));
+    }
+
+    @Test
+    public void testOverdueFilterSkipsDoneItems() throws Exception {
+        createFilterTree();
+        String objectives = "$[0].initiatives[0].goals[0].objectives";
+
+        mockMvc.perform(get("/api/hierarchy/projects?overdue=true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(objectives + "[*].title", contains("Q3 Objective")))
+                .andExpect(jsonPath(objectives + "[0].keyResults[0].actionItems[*].title", contains("Open Past AI")));
+    }
+
+    @Test
+    public void testFilteredETagDiffersFromUnfiltered() throws Exception {
+        createFilterTree();
+
+        String etag = getETag("/api/hierarchy/projects");
+        String filteredETag = getETag("/api/hierarchy/projects?overdue=true");
+
+        assertNotEquals(etag, filteredETag);
+        mockMvc.perform(get("/api/hierarchy/projects?overdue=true").header(HttpHeaders.IF_NONE_MATCH, filteredETag))
+                .andExpect(status().isNotModified());
+    }
+
+    /*
+     * Under the visible project's goal, next to "Objective" (no assignee, dates or due date):
+     * - "Q3 Objective", 2025 Q3, assignee alice, overdue
+     *   - "Bob KR", assignee bob, with "Done Past AI" (completed) and "Open Past AI", both overdue
+     * - "Future Objective", 2026 Q1, due in 2999, with "Empty KR" (no action items)
+     * And in the hidden project an objective and action item matching every filter.
+     */
+    private void createFilterTree() {
+        Objective past = objective("Q3 Objective");
+        past.setAssignee("alice");
+        past.setYear(2025);
+        past.setQuarter("Q3");
+        past.setDueDate(LocalDate.of(2020, 1, 1));
+        past = hierarchyService.addObjective(goal.getId(), past);
+        KeyResult bobKeyResult = keyResult("Bob KR");
+        bobKeyResult.setAssignee("bob");
+        bobKeyResult = hierarchyService.addKeyResult(past.getId(), bobKeyResult);
+        ActionItem done = actionItem("Done Past AI", LocalDate.of(2020, 1, 1));
+        done.setIsCompleted(true);
+        hierarchyService.addActionItem(bobKeyResult.getId(), done);
+        hierarchyService.addActionItem(bobKeyResult.getId(), actionItem("Open Past AI", LocalDate.of(2020, 1, 1)));
+
+        Objective future = objective("Future Objective");
+        future.setYear(2026);
+        future.setQuarter("Q1");
+        future.setDueDate(LocalDate.of(2999, 1, 1));
+        future = hierarchyService.addObjective(goal.getId(), future);
+        hierarchyService.addKeyResult(future.getId(), keyResult("Empty KR"));
+
+        StrategicInitiative hiddenInitiative = hierarchyService.addInitiative(hiddenProject.getId(), initiative("Hidden Initiative"));
+        Goal hiddenGoal = hierarchyService.addGoal(hiddenInitiative.getId(), goal("Hidden Goal"));
+        Objective hidden = objective("Hidden Objective");
+        hidden.setAssignee("bob");
+        hidden.setYear(2025);
+        hidden.setQuarter("Q3");
+        hidden.setDueDate(LocalDate.of(2020, 1, 1));
+        hidden = hierarchyService.addObjective(hiddenGoal.getId(), hidden);
+        KeyResult hiddenKeyResult = hierarchyService.addKeyResult(hidden.getId(), keyResult("Hidden KR"));
+        hierarchyService.addActionItem(hiddenKeyResult.getId(), actionItem("Hidden AI", LocalDate.of(2020, 1, 1)));
+    }
+
+    // --- My work ---
+
+    @Test
+    public void testMyWorkPagesAcrossLevels() throws Exception {
+        List<String> expected = createAssignedItems("admin_user");
+
+        assertEquals(expected, getAllMyWork(2), "Pages end exactly at the level boundaries");
+        assertEquals(expected, getAllMyWork(3), "Pages span level boundaries");
+        assertEquals(expected, getAllMyWork(50));
+
+        AssignedItemPage first = getMyWork(null, 2);
+        assertEquals(first.getItems().get(1).getType() + ":" + first.getItems().get(1).getId(), first.getNextCursor());
+        AssignedItem objective = first.getItems().get(0);
+        assertEquals(project.getId(), objective.getProjectId());
+        assertEquals(List.of("Visible Project", "Initiative", "Goal"),
+                objective.getBreadcrumbs().stream().map(Breadcrumb::title).toList());
+    }
+
+    @Test
+    public void testMyWorkRejectsInvalidPaging() throws Exception {
+        mockMvc.perform(get("/api/hierarchy/my-work?cursor=Goal:1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/hierarchy/my-work?cursor=KeyResult"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/hierarchy/my-work?limit=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "later_user", authorities = {"VIEW_STRATEGY"})
+    public void testItemsAssignedBeforeUserExistsAreLinkedOnCreation() throws Exception {
+        List<String> expected = createAssignedItems("later_user");
+
+        User later = new User();
+        later.setEmail("later_user");
+        later.setLogin("later_user");
+        later = userRepository.save(later);
+        userProjectRepository.assignUserToProject(later.getId(), project.getId(), AccessLevel.VIEWER, "test");
+
+        assertEquals(expected, getAllMyWork(50));
+    }
+
+    @Test
+    @WithMockUser(username = "renamed_user", authorities = {"VIEW_STRATEGY"})
+    public void testItemsAreLinkedWhenUserLoginChanges() throws Exception {
+        User renamed = new User();
+        renamed.setEmail("renamed_user");
+        renamed.setLogin("old_login");
+        renamed = userRepository.saveAndFlush(renamed);
+        userProjectRepository.assignUserToProject(renamed.getId(), project.getId(), AccessLevel.VIEWER, "test");
+        List<String> expected = createAssignedItems("new_login");
+        assertEquals(List.of(), getAllMyWork(50));
+
+        renamed.setLogin("new_login");
+        userRepository.saveAndFlush(renamed);
+
+        assertEquals(expected, getAllMyWork(50));
+    }
+
+    /*
+     * Two objectives, two key results and two action items assigned to the login in the visible
+     * project, plus an archived and an inaccessible one that are never returned.
+     * Returns the "Type:id" of the visible ones, in the my-work order.
+     */
+    private List<String> createAssignedItems(String assignee) {
+        List<String> items = new ArrayList<>();
+        List<KeyResult> keyResults = new ArrayList<>();
+        for (int i = 1; i <= 2; i++) {
+            Objective objective = objective("Assigned Objective " + i);
+            objective.setAssignee(assignee);
+            objective = hierarchyService.addObjective(goal.getId(), objective);
+            items.add("Objective:" + objective.getId());
+            KeyResult keyResult = keyResult("Assigned KR " + i);
+            keyResult.setAssignee(assignee);
+            keyResults.add(hierarchyService.addKeyResult(objective.getId(), keyResult));
+        }
+        keyResults.forEach(keyResult -> items.add("KeyResult:" + keyResult.getId()));
+        for (KeyResult keyResult : keyResults) {
+            ActionItem actionItem = actionItem("Assigned AI", null);
+            actionItem.setAssignee(assignee);
+            items.add("ActionItem:" + hierarchyService.addActionItem(keyResult.getId(), actionItem).getId());
+        }
+
+        ActionItem archived = actionItem("Archived AI", null);
+        archived.setAssignee(assignee);
+        archived.setIsActive(false);
+        hierarchyService.addActionItem(keyResults.get(0).getId(), archived);
+        StrategicInitiative hiddenInitiative = hierarchyService.addInitiative(hiddenProject.getId(), initiative("Hidden Initiative"));
+        Goal hiddenGoal = hierarchyService.addGoal(hiddenInitiative.getId(), goal("Hidden Goal"));
+        Objective hidden = objective("Hidden Objective");
+        hidden.setAssignee(assignee);
+        hierarchyService.addObjective(hiddenGoal.getId(), hidden);
+        return items;
+    }
+
+    // Follows nextCursor to the last page, returning the "Type:id" of every item
+    private List<String> getAllMyWork(int limit) throws Exception {
+        List<String> items = new ArrayList<>();
+        String cursor = null;
+        do {
+            AssignedItemPage page = getMyWork(cursor, limit);
+            assertTrue(page.getItems().size() <= limit);
+            page.getItems().forEach(item -> items.add(item.getType() + ":" + item.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return items;
+    }
+
+    private AssignedItemPage getMyWork(String cursor, int limit) throws Exception {
+        String json = mockMvc.perform(get("/api/hierarchy/my-work?limit=" + limit + (cursor != null ? "&cursor=" + cursor : "")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(json, AssignedItemPage.class);
+    }
+
+    // --- Search ---
+
+    @Test
+    public void testSearchRanksTitleMatchesFirst() throws Exception {
+        createSearchTree();
+
+        mockMvc.perform(get("/api/hierarchy/search?q=zephyrine"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("Zephyrine Revenue Growth", "Plain Key Result")))
+                .andExpect(jsonPath("$[*].type", contains("Goal", "KeyResult")))
+                .andExpect(jsonPath("$[0].projectId").value(project.getId()))
+                .andExpect(jsonPath("$[0].breadcrumbs[*].title", contains("Visible Project", "Initiative")));
+        mockMvc.perform(get("/api/hierarchy/search?q=zephyrine&limit=1"))
+                .andExpect(jsonPath("$[*].title", contains("Zephyrine Revenue Growth")));
+    }
+
+    @Test
+    public void testSearchMatchesEveryWordAndLastAsPrefix() throws Exception {
+        createSearchTree();
+
+        mockMvc.perform(get("/api/hierarchy/search?q=revenue zephy"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("Zephyrine Revenue Growth")));
+        // Only the last word is a prefix
+        mockMvc.perform(get("/api/hierarchy/search?q=zephy revenue"))
+                .andExpect(jsonPath("$", empty()));
+        // Operators are dropped, not passed to the tsquery
+        mockMvc.perform(get("/api/hierarchy/search").param("q", "zephy & | !"))
+                .andExpect(jsonPath("$[*].title", contains("Zephyrine Revenue Growth", "Plain Key Result")));
+        mockMvc.perform(get("/api/hierarchy/search?q=!!!"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", empty()));
+        mockMvc.perform(get("/api/hierarchy/search?q=zephyrine&limit=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /*
+     * "zephyrine" in the title of a goal and the description of a key result of the visible
+     * project, and in the titles of an archived objective and of a goal of the hidden project.
+     */
+    private void createSearchTree() {
+        StrategicInitiative initiative = hierarchyService.addInitiative(project.getId(), initiative("Initiative"));
+        hierarchyService.addGoal(initiative.getId(), goal("Zephyrine Revenue Growth"));
+        Objective objective = hierarchyService.addObjective(goal.getId(), objective("Plain Objective"));
+        KeyResult keyResult = keyResult("Plain Key Result");
+        keyResult.setDescription("Mentions zephyrine only here");
+        hierarchyService.addKeyResult(objective.getId(), keyResult);
+        Objective archived = objective("Zephyrine Archived");
+        archived.setIsActive(false);
+        hierarchyService.addObjective(goal.getId(), archived);
+
+        StrategicInitiative hiddenInitiative = hierarchyService.addInitiative(hiddenProject.getId(), initiative("Hidden Initiative"));
+        hierarchyService.addGoal(hiddenInitiative.getId(), goal("Zephyrine Hidden"));
+    }
+
+    // --- Wire formats ---
+
+    @Test
+    public void testJsonUnlessBinaryFormatRequested() throws Exception {
+        for (String accept : List.of("*/*", "application/json",
+                "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8", "application/*",
+                "application/cbor;q=0")) {
+            mockMvc.perform(get("/api/hierarchy/projects").header(HttpHeaders.ACCEPT, accept))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$[*].title", contains("Visible Project")));
+        }
+        mockMvc.perform(get("/api/hierarchy/projects"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void testSmileAndCborCarrySameTreeAsJson() throws Exception {
+        MockHttpServletResponse json = getProjects("application/json");
+        MockHttpServletResponse smile = getProjects(WireFormatConfig.SMILE + ", application/json;q=0.5");
+        MockHttpServletResponse cbor = getProjects(WireFormatConfig.CBOR.toString());
+
+        assertTrue(WireFormatConfig.SMILE.isCompatibleWith(MediaType.parseMediaType(smile.getContentType())));
+        assertTrue(WireFormatConfig.CBOR.isCompatibleWith(MediaType.parseMediaType(cbor.getContentType())));
+        JsonNode tree = objectMapper.readTree(json.getContentAsByteArray());
+        assertEquals(tree, new ObjectMapper(WireFormatConfig.smileFactory()).readTree(smile.getContentAsByteArray()));
+        assertEquals(tree, new ObjectMapper(WireFormatConfig.cborFactory()).readTree(cbor.getContentAsByteArray()));
+
+        // Each encoding is its own representation: distinct ETags, all varying by Accept
+        assertEquals(3, List.of(json.getHeader(HttpHeaders.ETAG), smile.getHeader(HttpHeaders.ETAG),
+                cbor.getHeader(HttpHeaders.ETAG)).stream().distinct().count());
+        assertTrue(cbor.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT));
+        mockMvc.perform(get("/api/hierarchy/projects").header(HttpHeaders.ACCEPT, WireFormatConfig.CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, json.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/hierarchy/projects").header(HttpHeaders.ACCEPT, WireFormatConfig.CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, cbor.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void testTreeInCbor() throws Exception {
+        MockHttpServletResponse cbor = mockMvc.perform(get("/api/hierarchy/tree?depth=1")
+                        .header(HttpHeaders.ACCEPT, WireFormatConfig.CBOR))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        assertTrue(WireFormatConfig.CBOR.isCompatibleWith(MediaType.parseMediaType(cbor.getContentType())));
+        JsonNode tree = new ObjectMapper(WireFormatConfig.cborFactory()).readTree(cbor.getContentAsByteArray());
+        assertEquals("Visible Project", tree.get(0).get("title").asText());
+        assertEquals("Initiative", tree.get(0).get("children").get(0).get("title").asText());
+    }
+
+    private MockHttpServletResponse getProjects(String accept) throws Exception {
+        return mockMvc.perform(get("/api/hierarchy/projects").header(HttpHeaders.ACCEPT, accept))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+    }
+
+    private String getETag(String url) throws Exception {
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag, "GET " + url + " returns an ETag");
+        return etag;
+    }
+
+    // --- Nodes ---
+
+    private static Project project(String title) {
+        Project project = new Project();
+        project.setTitle(title);
+        return project;
+    }
+
+    private static StrategicInitiative initiative(String title) {
+        StrategicInitiative initiative = new StrategicInitiative();
+        initiative.setTitle(title);
+        return initiative;
+    }
+
+    private static Goal goal(String title) {
+        Goal goal = new Goal();
+        goal.setTitle(title);
+        return goal;
+    }
+
+    private static Objective objective(String title) {
+        Objective objective = new Objective();
+        objective.setTitle(title);
+        return objective;
+    }
+
+    private static KeyResult keyResult(String title) {
+        KeyResult keyResult = new KeyResult();
+        keyResult.setTitle(title);
+        return keyResult;
+    }
+
+    private static ActionItem actionItem(String title, LocalDate dueDate) {
+        ActionItem actionItem = new ActionItem();
+        actionItem.setTitle(title);
+        actionItem.setDueDate(dueDate);
+        return actionItem;
+    }
+}
@@ -0,0 +1,257 @@
+package com.ccc.okrtracker;
+
+import com.ccc.okrtracker.entity.*;
+import com.ccc.okrtracker.repository.HierarchyLevel;
+import com.ccc.okrtracker.repository.UserProjectRepository;
+import com.ccc.okrtracker.repository.UserRepository;
+import com.ccc.okrtracker.service.HierarchyService;
+import com.ccc.okrtracker.service.ProgressHistoryRecorder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration test for the progress history: progress changes made through the services are
+ * recorded after commit by ProgressHistoryRecorder and read back, bucketed, through
+ * GET /api/history. Not transactional (points are only recorded after commit), so the rows
+ * created are deleted after each test.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("dev")
+@WithMockUser(username = "admin_user", authorities = {"VIEW_STRATEGY", "MANAGE_STRATEGY"})
+public class ProgressHistoryIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HierarchyService hierarchyService;
+
+    @Autowired
+    private ProgressHistoryRecorder historyRecorder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserProjectRepository userProjectRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> projectIds = new ArrayList<>();
+    private User user;
+    private Project project;
+    private Objective objective;
+    private KeyResult keyResult;
+    private ActionItem first;
+    private ActionItem second;
+    private LocalDateTime since;
+
+    @BeforeEach
+    public void setUp() {
+        user = new User();
+        user.setEmail("admin_user");
+        user.setLogin("admin_user");
+        user = userRepository.save(user);
+
+        project = hierarchyService.createProject(project("History Project"));
+        projectIds.add(project.getId());
+        userProjectRepository.assignUserToProject(user.getId(), project.getId(), AccessLevel.VIEWER, "test");
+        StrategicInitiative initiative = hierarchyService.addInitiative(project.getId(), initiative("Initiative"));
+        Goal goal = hierarchyService.addGoal(initiative.getId(), goal("Goal"));
+        objective = hierarchyService.addObjective(goal.getId(), objective("Objective"));
+        keyResult = hierarchyService.addKeyResult(objective.getId(), keyResult("Key Result"));
+        first = hierarchyService.addActionItem(keyResult.getId(), actionItem("First"));
+        second = hierarchyService.addActionItem(keyResult.getId(), actionItem("Second"));
+        // Only the changes made by the tests count
+        since = LocalDateTime.now();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        historyRecorder.flush();
+        for (Long projectId : projectIds) {
+            jdbcTemplate.update("""
+                    DELETE FROM action_item WHERE key_result_id IN (SELECT k.id FROM key_result k
+                    JOIN objective o ON o.id = k.objective_id JOIN goal g ON g.id = o.goal_id
+                    JOIN strategic_initiative i ON i.id = g.initiative_id WHERE i.project_id = ?)""", projectId);
+            jdbcTemplate.update("""
+                    DELETE FROM key_result WHERE objective_id IN (SELECT o.id FROM objective o
+                    JOIN goal g ON g.id = o.goal_id JOIN strategic_initiative i ON i.id = g.initiative_id
+                    WHERE i.project_id = ?)""", projectId);
+            jdbcTemplate.update("""
+                    DELETE FROM objective WHERE goal_id IN (SELECT g.id FROM goal g
+                    JOIN strategic_initiative i ON i.id = g.initiative_id WHERE i.project_id = ?)""", projectId);
+            jdbcTemplate.update("DELETE FROM goal WHERE initiative_id IN (SELECT id FROM strategic_initiative WHERE project_id = ?)", projectId);
+            jdbcTemplate.update("DELETE FROM strategic_initiative WHERE project_id = ?", projectId);
+            jdbcTemplate.update("DELETE FROM user_projects WHERE project_id = ?", projectId);
+            jdbcTemplate.update("DELETE FROM progress_history WHERE project_id = ?", projectId);
+            jdbcTemplate.update("DELETE FROM project WHERE id = ?", projectId);
+        }
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    public void testProgressChangesAreRecordedAfterCommit() {
+        complete(first, true);
+        complete(second, true);
+        complete(second, false);
+        historyRecorder.flush();
+
+        assertEquals(List.of(50, 100, 50), recorded(HierarchyLevel.KEY_RESULT, keyResult.getId()));
+        assertEquals(List.of(50, 100, 50), recorded(HierarchyLevel.OBJECTIVE, objective.getId()));
+        assertTrue(recorded(HierarchyLevel.ACTION_ITEM, first.getId()).isEmpty(), "Action items are not a recorded level");
+    }
+
+    @Test
+    public void testUnchangedProgressIsNotRecorded() {
+        complete(first, true);
+        // Renaming leaves the progress as it is
+        KeyResult updates = new KeyResult();
+        updates.setProgress(null);
+        updates.setIsActive(null);
+        updates.setTitle("Renamed Key Result");
+        hierarchyService.updateKeyResult(keyResult.getId(), updates);
+        historyRecorder.flush();
+
+        assertEquals(List.of(50), recorded(HierarchyLevel.KEY_RESULT, keyResult.getId()));
+    }
+
+    @Test
+    public void testHistoryBucketedByDayAndWeek() throws Exception {
+        complete(first, true);
+        complete(second, true);
+        complete(second, false);
+        complete(second, true);
+        historyRecorder.flush();
+        // Monday 2 March (twice), Wednesday 4 March and Tuesday 10 March 2026
+        redate(HierarchyLevel.KEY_RESULT, keyResult.getId(), LocalDateTime.of(2026, 3, 2, 9, 0),
+                LocalDateTime.of(2026, 3, 2, 17, 0), LocalDateTime.of(2026, 3, 4, 10, 0), LocalDateTime.of(2026, 3, 10, 10, 0));
+        String url = "/api/history/key-results/" + keyResult.getId();
+
+        mockMvc.perform(get(url).param("from", "2026-03-01").param("to", "2026-03-31").param("bucket", "DAY"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].bucketStart").value("2026-03-02T00:00:00"))
+                .andExpect(jsonPath("$[0].progress").value(100))
+                .andExpect(jsonPath("$[0].minProgress").value(50))
+                .andExpect(jsonPath("$[0].maxProgress").value(100))
+                .andExpect(jsonPath("$[0].samples").value(2))
+                .andExpect(jsonPath("$[1].bucketStart").value("2026-03-04T00:00:00"))
+                .andExpect(jsonPath("$[1].progress").value(50))
+                .andExpect(jsonPath("$[2].bucketStart").value("2026-03-10T00:00:00"))
+                .andExpect(jsonPath("$[2].progress").value(100))
+                .andExpect(jsonPath("$[2].samples").value(1));
+
+        mockMvc.perform(get(url).param("from", "2026-03-01").param("to", "2026-03-31").param("bucket", "WEEK"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].bucketStart").value("2026-03-02T00:00:00"))
+                .andExpect(jsonPath("$[0].progress").value(50))
+                .andExpect(jsonPath("$[0].minProgress").value(50))
+                .andExpect(jsonPath("$[0].maxProgress").value(100))
+                .andExpect(jsonPath("$[0].samples").value(3))
+                .andExpect(jsonPath("$[1].bucketStart").value("2026-03-09T00:00:00"))
+                .andExpect(jsonPath("$[1].progress").value(100))
+                .andExpect(jsonPath("$[1].samples").value(1));
+
+        // Both days are inclusive
+        mockMvc.perform(get(url).param("from", "2026-03-03").param("to", "2026-03-04"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].bucketStart").value("2026-03-04T00:00:00"));
+    }
+
+    @Test
+    public void testInaccessibleNodeNotFound() throws Exception {
+        Project hidden = hierarchyService.createProject(project("Hidden Project"));
+        projectIds.add(hidden.getId());
+
+        mockMvc.perform(get("/api/history/projects/" + hidden.getId()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/history/projects/" + project.getId()))
+                .andExpect(status().isOk());
+    }
+
+    private void complete(ActionItem actionItem, boolean completed) {
+        ActionItem updates = new ActionItem();
+        updates.setProgress(null);
+        updates.setIsActive(null);
+        updates.setIsCompleted(completed);
+        hierarchyService.updateActionItem(actionItem.getId(), updates);
+    }
+
+    private List<Integer> recorded(HierarchyLevel level, Long nodeId) {
+        return jdbcTemplate.queryForList("""
+                SELECT progress FROM progress_history WHERE node_level = ? AND node_id = ? AND recorded_at >= ?
+                ORDER BY recorded_at""", Integer.class, (short) level.ordinal(), nodeId, Timestamp.valueOf(since));
+    }
+
+    // Moves the points recorded by the test, oldest first, to the given times
+    private void redate(HierarchyLevel level, Long nodeId, LocalDateTime... times) {
+        List<String> rows = jdbcTemplate.queryForList("""
+                SELECT ctid::text FROM progress_history WHERE node_level = ? AND node_id = ? AND recorded_at >= ?
+                ORDER BY recorded_at""", String.class, (short) level.ordinal(), nodeId, Timestamp.valueOf(since));
+        assertEquals(times.length, rows.size());
+        for (int i = 0; i < times.length; i++) {
+            jdbcTemplate.update("UPDATE progress_history SET recorded_at = ? WHERE ctid = ?::tid",
+                    Timestamp.valueOf(times[i]), rows.get(i));
+        }
+    }
+
+    // --- Nodes ---
+
+    private static Project project(String title) {
+        Project project = new Project();
+        project.setTitle(title);
+        return project;
+    }
+
+    private static StrategicInitiative initiative(String title) {
+        StrategicInitiative initiative = new StrategicInitiative();
+        initiative.setTitle(title);
+        return initiative;
+    }
+
+    private static Goal goal(String title) {
+        Goal goal = new Goal();
+        goal.setTitle(title);
+        return goal;
+    }
+
+    private static Objective objective(String title) {
+        Objective objective = new Objective();
+        objective.setTitle(title);
+        return objective;
+    }
+
+    private static KeyResult keyResult(String title) {
+        KeyResult keyResult = new KeyResult();
+        keyResult.setTitle(title);
+        return keyResult;
+    }
+
+    private static ActionItem actionItem(String title) {
+        ActionItem actionItem = new ActionItem();
+        actionItem.setTitle(title);
+        return actionItem;
+    }
+}
@@ -0,0 +1,396 @@
+package com.ccc.okrtracker;
+
+import com.ccc.okrtracker.entity.*;
+import com.ccc.okrtracker.service.CalculationService;
+import com.ccc.okrtracker.service.ChildAggregateService;
+import com.ccc.okrtracker.service.HierarchyService;
+import com.ccc.okrtracker.service.RollupEngine;
+import com.ccc.okrtracker.service.RollupMode;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test comparing the incremental rollups with the full JAVA rollup.
+ * The same tree is built and edited in each mode/engine; after every step the stored values
+ * must be exactly what a full recalculation of the project produces, and the child aggregates
+ * kept by the database triggers must be exactly what rebuilding them produces.
+ */
+@SpringBootTest
+@ActiveProfiles("dev")
+@Transactional
+@WithMockUser(username = "admin_user")
+public class RollupEquivalenceIntegrationTest {
+
+    @Autowired
+    private HierarchyService hierarchyService;
+
+    @Autowired
+    private CalculationService calculationService;
+
+    @Autowired
+    private ChildAggregateService childAggregates;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Object calculationTarget;
+    private Object originalMode;
+    private Object originalEngine;
+
+    @BeforeEach
+    public void setUp() {
+        calculationTarget = AopTestUtils.getTargetObject(calculationService);
+        originalMode = ReflectionTestUtils.getField(calculationTarget, "rollupMode");
+        originalEngine = ReflectionTestUtils.getField(calculationTarget, "rollupEngine");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReflectionTestUtils.setField(calculationTarget, "rollupMode", originalMode);
+        ReflectionTestUtils.setField(calculationTarget, "rollupEngine", originalEngine);
+    }
+
+    /**
+     * Builds a tree with action-item, metric and manual KRs, then edits it step by step:
+     * completions, metric and manual progress, archive/restore cascades and new nodes.
+     */
+    @ParameterizedTest(name = "{0} mode, {1} engine")
+    @CsvSource({"FULL, JAVA", "PATH, JAVA", "FULL, SQL", "DELTA, JAVA"})
+    public void testMatchesFullRollup(RollupMode mode, RollupEngine engine) {
+        ReflectionTestUtils.setField(calculationTarget, "rollupMode", mode);
+        ReflectionTestUtils.setField(calculationTarget, "rollupEngine", engine);
+
+        Project project = hierarchyService.createProject(project("Equivalence Project"));
+        Long projectId = project.getId();
+        StrategicInitiative i1 = hierarchyService.addInitiative(projectId, initiative("Initiative 1"));
+        StrategicInitiative i2 = hierarchyService.addInitiative(projectId, initiative("Initiative 2"));
+        Goal g1 = hierarchyService.addGoal(i1.getId(), goal("Goal 1"));
+        Goal g2 = hierarchyService.addGoal(i1.getId(), goal("Goal 2"));
+        Goal g3 = hierarchyService.addGoal(i2.getId(), goal("Goal 3"));
+        Objective o1 = hierarchyService.addObjective(g1.getId(), objective("Objective 1"));
+        Objective o2 = hierarchyService.addObjective(g1.getId(), objective("Objective 2"));
+        Objective o3 = hierarchyService.addObjective(g2.getId(), objective("Objective 3"));
+        Objective o4 = hierarchyService.addObjective(g3.getId(), objective("Objective 4"));
+        KeyResult k1 = hierarchyService.addKeyResult(o1.getId(), keyResult("Action item KR 1"));
+        KeyResult k2 = hierarchyService.addKeyResult(o1.getId(), metricKeyResult("Metric KR", 0.0, 200.0, 50.0));
+        KeyResult k3 = hierarchyService.addKeyResult(o2.getId(), keyResult("Manual KR"));
+        KeyResult k4 = hierarchyService.addKeyResult(o3.getId(), keyResult("Action item KR 2"));
+        KeyResult k5 = hierarchyService.addKeyResult(o4.getId(), metricKeyResult("Metric KR with items", 10.0, 20.0, 12.0));
+        ActionItem a1 = hierarchyService.addActionItem(k1.getId(), actionItem("AI 1"));
+        ActionItem a2 = hierarchyService.addActionItem(k1.getId(), actionItem("AI 2"));
+        ActionItem a3 = hierarchyService.addActionItem(k1.getId(), actionItem("AI 3"));
+        ActionItem a4 = hierarchyService.addActionItem(k4.getId(), actionItem("AI 4"));
+        hierarchyService.addActionItem(k4.getId(), actionItem("AI 5"));
+        ActionItem a6 = hierarchyService.addActionItem(k5.getId(), actionItem("AI 6"));
+        assertMatchesFullRollup(projectId, "after building the tree");
+
+        hierarchyService.updateActionItem(a1.getId(), completion(true));
+        hierarchyService.updateActionItem(a2.getId(), completion(true));
+        hierarchyService.updateActionItem(a4.getId(), actionItemProgress(40));
+        hierarchyService.updateActionItem(a6.getId(), completion(true));
+        assertMatchesFullRollup(projectId, "after completing action items");
+
+        KeyResult metricUpdate = keyResultUpdate();
+        metricUpdate.setMetricCurrent(150.0);
+        hierarchyService.updateKeyResult(k2.getId(), metricUpdate);
+        assertMatchesFullRollup(projectId, "after a metric update");
+
+        KeyResult manualUpdate = keyResultUpdate();
+        manualUpdate.setProgress(70);
+        hierarchyService.updateKeyResult(k3.getId(), manualUpdate);
+        hierarchyService.updateKeyResult(k5.getId(), manualUpdate);
+        assertMatchesFullRollup(projectId, "after manual KR progress");
+
+        hierarchyService.updateObjective(o2.getId(), activation(objectiveUpdate(), false));
+        assertMatchesFullRollup(projectId, "after archiving an objective");
+
+        hierarchyService.updateObjective(o2.getId(), activation(objectiveUpdate(), true));
+        hierarchyService.updateKeyResult(k3.getId(), activation(keyResultUpdate(), true));
+        assertMatchesFullRollup(projectId, "after restoring the objective and its KR");
+
+        hierarchyService.updateActionItem(a3.getId(), activation(actionItemUpdate(), false));
+        assertMatchesFullRollup(projectId, "after archiving an action item");
+
+        hierarchyService.updateStrategicInitiative(i2.getId(), activation(initiativeUpdate(), false));
+        assertMatchesFullRollup(projectId, "after archiving an initiative");
+
+        hierarchyService.updateStrategicInitiative(i2.getId(), activation(initiativeUpdate(), true));
+        hierarchyService.updateGoal(g3.getId(), activation(goalUpdate(), true));
+        hierarchyService.updateObjective(o4.getId(), activation(objectiveUpdate(), true));
+        hierarchyService.updateKeyResult(k5.getId(), activation(keyResultUpdate(), true));
+        assertMatchesFullRollup(projectId, "after restoring the initiative and its subtree");
+
+        hierarchyService.addActionItem(k3.getId(), actionItem("AI 7"));
+        hierarchyService.addKeyResult(o3.getId(), keyResult("Empty KR"));
+        assertMatchesFullRollup(projectId, "after adding nodes to a manual KR and an objective");
+    }
+
+    /**
+     * Edits below an inactive ancestor: the full rollup never touches the nodes under it, so
+     * neither may the incremental rollups. A KR restored on its own under an archived objective
+     * keeps its stored progress when its action items change.
+     * DELTA mode is not covered: it derives each written node from its own aggregates.
+     */
+    @ParameterizedTest(name = "{0} mode, {1} engine")
+    @CsvSource({"FULL, JAVA", "PATH, JAVA", "FULL, SQL"})
+    public void testEditBelowInactiveAncestor(RollupMode mode, RollupEngine engine) {
+        ReflectionTestUtils.setField(calculationTarget, "rollupMode", mode);
+        ReflectionTestUtils.setField(calculationTarget, "rollupEngine", engine);
+
+        Project project = hierarchyService.createProject(project("Inactive Ancestor Project"));
+        Long projectId = project.getId();
+        StrategicInitiative initiative = hierarchyService.addInitiative(projectId, initiative("Initiative"));
+        Goal goal = hierarchyService.addGoal(initiative.getId(), goal("Goal"));
+        Objective archived = hierarchyService.addObjective(goal.getId(), objective("Archived Objective"));
+        Objective active = hierarchyService.addObjective(goal.getId(), objective("Active Objective"));
+        KeyResult restored = hierarchyService.addKeyResult(archived.getId(), keyResult("Restored KR"));
+        KeyResult sibling = hierarchyService.addKeyResult(active.getId(), keyResult("Sibling KR"));
+        ActionItem a1 = hierarchyService.addActionItem(restored.getId(), actionItem("AI 1"));
+        hierarchyService.addActionItem(restored.getId(), actionItem("AI 2"));
+        ActionItem a3 = hierarchyService.addActionItem(sibling.getId(), actionItem("AI 3"));
+        hierarchyService.updateActionItem(a3.getId(), completion(true));
+
+        hierarchyService.updateObjective(archived.getId(), activation(objectiveUpdate(), false));
+        hierarchyService.updateKeyResult(restored.getId(), activation(keyResultUpdate(), true));
+        assertMatchesFullRollup(projectId, "after restoring a KR under an archived objective");
+        Map<String, String> before = readProgress(projectId);
+
+        hierarchyService.updateActionItem(a1.getId(), completion(true));
+
+        assertEquals(before, readProgress(projectId), "Nothing changes below an inactive ancestor");
+        assertMatchesFullRollup(projectId, "after completing an action item below an inactive ancestor");
+    }
+
+    /**
+     * Moving nodes to another parent (done in SQL, there is no API for it) keeps the
+     * aggregates of both the old and the new parent exact.
+     */
+    @Test
+    public void testAggregatesFollowReparenting() {
+        Project project = hierarchyService.createProject(project("Reparenting Project"));
+        Long projectId = project.getId();
+        StrategicInitiative i1 = hierarchyService.addInitiative(projectId, initiative("Initiative 1"));
+        StrategicInitiative i2 = hierarchyService.addInitiative(projectId, initiative("Initiative 2"));
+        Goal g1 = hierarchyService.addGoal(i1.getId(), goal("Goal 1"));
+        Goal g2 = hierarchyService.addGoal(i2.getId(), goal("Goal 2"));
+        Objective o1 = hierarchyService.addObjective(g1.getId(), objective("Objective 1"));
+        Objective o2 = hierarchyService.addObjective(g2.getId(), objective("Objective 2"));
+        KeyResult k1 = hierarchyService.addKeyResult(o1.getId(), keyResult("KR 1"));
+        KeyResult k2 = hierarchyService.addKeyResult(o1.getId(), keyResult("KR 2"));
+        KeyResult k3 = hierarchyService.addKeyResult(o2.getId(), keyResult("KR 3"));
+        ActionItem a1 = hierarchyService.addActionItem(k1.getId(), actionItem("AI 1"));
+        hierarchyService.addActionItem(k1.getId(), actionItem("AI 2"));
+        hierarchyService.addActionItem(k3.getId(), actionItem("AI 3"));
+        hierarchyService.updateActionItem(a1.getId(), completion(true));
+        hierarchyService.updateKeyResult(k2.getId(), activation(keyResultUpdate(), false));
+        assertAggregatesMatchRebuild(projectId, "before moving");
+
+        jdbcTemplate.update("UPDATE action_item SET key_result_id = ? WHERE id = ?", k3.getId(), a1.getId());
+        assertAggregatesMatchRebuild(projectId, "after moving a completed action item");
+
+        jdbcTemplate.update("UPDATE key_result SET objective_id = ? WHERE id IN (?, ?)", o2.getId(), k1.getId(), k2.getId());
+        assertAggregatesMatchRebuild(projectId, "after moving an active and an archived KR");
+
+        jdbcTemplate.update("UPDATE objective SET goal_id = ? WHERE id = ?", g1.getId(), o2.getId());
+        jdbcTemplate.update("UPDATE goal SET initiative_id = ? WHERE id = ?", i1.getId(), g2.getId());
+        assertAggregatesMatchRebuild(projectId, "after moving an objective and a goal across initiatives");
+    }
+
+    // Compares the stored values with a full JAVA rollup of the same data
+    private void assertMatchesFullRollup(Long projectId, String step) {
+        assertAggregatesMatchRebuild(projectId, step);
+        Map<String, String> stored = readProgress(projectId);
+        Object engine = ReflectionTestUtils.getField(calculationTarget, "rollupEngine");
+        ReflectionTestUtils.setField(calculationTarget, "rollupEngine", RollupEngine.JAVA);
+        try {
+            calculationService.recalculateProject(projectId);
+        } finally {
+            ReflectionTestUtils.setField(calculationTarget, "rollupEngine", engine);
+        }
+        assertEquals(readProgress(projectId), stored, "Stored progress differs from a full rollup " + step);
+    }
+
+    // Compares the trigger-maintained aggregates with a rebuild from the stored child progress
+    private void assertAggregatesMatchRebuild(Long projectId, String step) {
+        Map<String, String> stored = readAggregates(projectId);
+        childAggregates.rebuildProject(projectId);
+        assertEquals(readAggregates(projectId), stored, "Stored child aggregates differ from a rebuild " + step);
+    }
+
+    // Child aggregates of every parent node of the project, keyed by level and ID
+    private Map<String, String> readAggregates(Long projectId) {
+        entityManager.flush();
+        Map<String, String> values = new TreeMap<>();
+        jdbcTemplate.query("""
+                SELECT 'PROJ#' || p.id AS node, p.active_child_count || '/' || p.child_progress_sum AS value
+                FROM project p WHERE p.id = ?
+                UNION ALL
+                SELECT 'INIT#' || i.id, i.active_child_count || '/' || i.child_progress_sum
+                FROM strategic_initiative i WHERE i.project_id = ?
+                UNION ALL
+                SELECT 'GOAL#' || g.id, g.active_child_count || '/' || g.child_progress_sum FROM goal g
+                JOIN strategic_initiative i ON i.id = g.initiative_id WHERE i.project_id = ?
+                UNION ALL
+                SELECT 'OBJ#' || o.id, o.active_child_count || '/' || o.child_progress_sum FROM objective o
+                JOIN goal g ON g.id = o.goal_id
+                JOIN strategic_initiative i ON i.id = g.initiative_id WHERE i.project_id = ?
+                UNION ALL
+                SELECT 'KR#' || k.id, k.active_child_count || '/' || k.child_progress_sum || '/' || k.child_count
+                FROM key_result k
+                JOIN objective o ON o.id = k.objective_id
+                JOIN goal g ON g.id = o.goal_id
+                JOIN strategic_initiative i ON i.id = g.initiative_id WHERE i.project_id = ?
+                """, rs -> {
+            values.put(rs.getString("node"), rs.getString("value"));
+        }, projectId, projectId, projectId, projectId, projectId);
+        return values;
+    }
+
+    // Progress of every node of the project (and metricCurrent of KRs), keyed by level and ID
+    private Map<String, String> readProgress(Long projectId) {
+        entityManager.flush();
+        Map<String, String> values = new TreeMap<>();
+        jdbcTemplate.query("""
+                SELECT 'PROJ#' || p.id AS node, p.progress::text AS value FROM project p WHERE p.id = ?
+                UNION ALL
+                SELECT 'INIT#' || i.id, i.progress::text FROM strategic_initiative i WHERE i.project_id = ?
+                UNION ALL
+                SELECT 'GOAL#' || g.id, g.progress::text FROM goal g
+                JOIN strategic_initiative i ON i.id = g.initiative_id WHERE i.project_id = ?
+                UNION ALL
+                SELECT 'OBJ#' || o.id, o.progress::text FROM objective o
+                JOIN goal g ON g.id = o.goal_id
+                JOIN strategic_initiative i ON i.id = g.initiative_id WHERE i.project_id = ?
+                UNION ALL
+                SELECT 'KR#' || k.id, k.progress || ' metric=' || COALESCE(k.metric_current::text, '-') FROM key_result k
+                JOIN objective o ON o.id = k.objective_id
+                JOIN goal g ON g.id = o.goal_id
+                JOIN strategic_initiative i ON i.id = g.initiative_id WHERE i.project_id = ?
+                """, rs -> {
+            values.put(rs.getString("node"), rs.getString("value"));
+        }, projectId, projectId, projectId, projectId, projectId);
+        return values;
+    }
+
+    // --- Nodes and partial updates (only the non-null fields of an update are applied) ---
+
+    private static Project project(String title) {
+        Project project = new Project();
+        project.setTitle(title);
+        project.setProgress(0);
+        return project;
+    }
+
+    private static StrategicInitiative initiative(String title) {
+        StrategicInitiative initiative = new StrategicInitiative();
+        initiative.setTitle(title);
+        initiative.setProgress(0);
+        return initiative;
+    }
+
+    private static Goal goal(String title) {
+        Goal goal = new Goal();
+        goal.setTitle(title);
+        goal.setProgress(0);
+        return goal;
+    }
+
+    private static Objective objective(String title) {
+        Objective objective = new Objective();
+        objective.setTitle(title);
+        objective.setProgress(0);
+        return objective;
+    }
+
+    private static KeyResult keyResult(String title) {
+        KeyResult keyResult = new KeyResult();
+        keyResult.setTitle(title);
+        keyResult.setProgress(0);
+        return keyResult;
+    }
+
+    private static KeyResult metricKeyResult(String title, double start, double target, double current) {
+        KeyResult keyResult = keyResult(title);
+        keyResult.setMetricStart(start);
+        keyResult.setMetricTarget(target);
+        keyResult.setMetricCurrent(current);
+        return keyResult;
+    }
+
+    private static ActionItem actionItem(String title) {
+        ActionItem actionItem = new ActionItem();
+        actionItem.setTitle(title);
+        actionItem.setIsCompleted(false);
+        return actionItem;
+    }
+
+    private static StrategicInitiative initiativeUpdate() {
+        StrategicInitiative updates = new StrategicInitiative();
+        updates.setProgress(null);
+        return updates;
+    }
+
+    private static Goal goalUpdate() {
+        Goal updates = new Goal();
+        updates.setProgress(null);
+        return updates;
+    }
+
+    private static Objective objectiveUpdate() {
+        Objective updates = new Objective();
+        updates.setProgress(null);
+        return updates;
+    }
+
+    private static KeyResult keyResultUpdate() {
+        KeyResult updates = new KeyResult();
+        updates.setProgress(null);
+        updates.setIsActive(null);
+        return updates;
+    }
+
+    private static ActionItem actionItemUpdate() {
+        ActionItem updates = new ActionItem();
+        updates.setProgress(null);
+        updates.setIsCompleted(null);
+        updates.setIsActive(null);
+        return updates;
+    }
+
+    private static ActionItem completion(boolean completed) {
+        ActionItem updates = actionItemUpdate();
+        updates.setIsCompleted(completed);
+        return updates;
+    }
+
+    private static ActionItem actionItemProgress(int progress) {
+        ActionItem updates = actionItemUpdate();
+        updates.setProgress(progress);
+        return updates;
+    }
+
+    private static <T extends BaseEntity> T activation(T updates, boolean active) {
+        updates.setIsActive(active);
+        return updates;
+    }
+}
@@ -0,0 +1,98 @@
+package com.ccc.okrtracker.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for the commit-time rollup batch, with a mocked CalculationService.
+ * A transaction is simulated with a bare transaction synchronization.
+ */
+public class ProgressRollupBatchTest {
+
+    private CalculationService calculationService;
+    private ProgressRollupBatch batch;
+
+    @BeforeEach
+    public void setUp() {
+        calculationService = mock(CalculationService.class);
+        batch = new ProgressRollupBatch(calculationService);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testEachProjectRolledUpOnceBeforeCommitInSortedOrder() {
+        TransactionSynchronizationManager.initSynchronization();
+        for (long projectId : new long[]{3, 1, 3, 2, 1, 3}) {
+            batch.markDirty(projectId);
+        }
+        verify(calculationService, never()).recalculateProject(anyLong());
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size(),
+                "One synchronization per transaction, however many projects are marked");
+
+        complete(true);
+
+        InOrder inOrder = inOrder(calculationService);
+        inOrder.verify(calculationService).recalculateProject(1L);
+        inOrder.verify(calculationService).recalculateProject(2L);
+        inOrder.verify(calculationService).recalculateProject(3L);
+        verifyNoMoreInteractions(calculationService);
+    }
+
+    @Test
+    public void testNothingRolledUpOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        batch.markDirty(1L);
+
+        complete(false);
+
+        verify(calculationService, never()).recalculateProject(anyLong());
+    }
+
+    @Test
+    public void testNextTransactionStartsEmpty() {
+        TransactionSynchronizationManager.initSynchronization();
+        batch.markDirty(1L);
+        complete(true);
+
+        TransactionSynchronizationManager.initSynchronization();
+        batch.markDirty(2L);
+        complete(true);
+
+        verify(calculationService, times(1)).recalculateProject(1L);
+        verify(calculationService, times(1)).recalculateProject(2L);
+    }
+
+    @Test
+    public void testOutsideTransactionRollsUpImmediately() {
+        batch.markDirty(5L);
+
+        verify(calculationService).recalculateProject(5L);
+    }
+
+    // Runs the hooks a transaction manager would run at commit or rollback, then ends the transaction
+    private static void complete(boolean commit) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (commit) {
+            synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(commit
+                ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
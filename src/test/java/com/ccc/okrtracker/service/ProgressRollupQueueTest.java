@@ -0,0 +1,161 @@
+package com.ccc.okrtracker.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit test for the coalescing async rollup queue, with a mocked CalculationService.
+ */
+public class ProgressRollupQueueTest {
+
+    private static final long DEBOUNCE_MS = 50;
+
+    private final List<Long> rollups = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<Long, AtomicInteger> running = new ConcurrentHashMap<>();
+    private final AtomicInteger maxRunningPerProject = new AtomicInteger();
+
+    private CalculationService calculationService;
+    private ProgressRollupQueue queue;
+
+    @BeforeEach
+    public void setUp() {
+        calculationService = mock(CalculationService.class);
+        onRollup(projectId -> {
+        });
+        queue = new ProgressRollupQueue(calculationService, new DirectTransactionTemplate());
+        ReflectionTestUtils.setField(queue, "enabled", true);
+        ReflectionTestUtils.setField(queue, "debounceMs", DEBOUNCE_MS);
+        ReflectionTestUtils.setField(queue, "workerThreads", 4);
+        queue.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        queue.stop();
+    }
+
+    @Test
+    public void testBurstIsMergedIntoOneRollup() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            queue.markDirty(1L);
+        }
+        queue.markDirty(2L);
+        queue.markDirty(2L);
+
+        awaitRollups(2);
+        Thread.sleep(DEBOUNCE_MS * 4);
+        assertEquals(1, count(1L), "20 marks within the debounce window cause one rollup");
+        assertEquals(1, count(2L), "Each project is rolled up on its own");
+    }
+
+    @Test
+    public void testMarkedWhileRunningRunsOnceMoreAfterwards() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        onRollup(projectId -> {
+            if (projectId == 1L && started.getCount() > 0) {
+                started.countDown();
+                await(release);
+            }
+        });
+
+        queue.markDirty(1L);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            queue.markDirty(1L);
+        }
+        // Another project is not held up by the running rollup
+        queue.markDirty(2L);
+        awaitRollups(1);
+        assertEquals(List.of(2L), rollups, "Project 2 rolled up while project 1 was still running");
+
+        release.countDown();
+        awaitRollups(3);
+        Thread.sleep(DEBOUNCE_MS * 4);
+        assertEquals(2, count(1L), "The marks made while running are merged into one follow-up rollup");
+        assertEquals(1, maxRunningPerProject.get(), "Rollups of one project never overlap");
+    }
+
+    @Test
+    public void testSignalledOnlyAfterCommit() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            queue.markDirty(1L);
+            Thread.sleep(DEBOUNCE_MS * 4);
+            assertTrue(rollups.isEmpty(), "Nothing is rolled up before the transaction commits");
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        awaitRollups(1);
+        assertEquals(List.of(1L), rollups);
+    }
+
+    // Records each finished rollup after running the body, tracking overlapping rollups per project
+    private void onRollup(RollupBody body) {
+        doAnswer(invocation -> {
+            Long projectId = invocation.getArgument(0);
+            AtomicInteger active = running.computeIfAbsent(projectId, id -> new AtomicInteger());
+            maxRunningPerProject.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                body.run(projectId);
+            } finally {
+                active.decrementAndGet();
+            }
+            rollups.add(projectId);
+            return null;
+        }).when(calculationService).recalculateProject(anyLong());
+    }
+
+    private long count(Long projectId) {
+        return rollups.stream().filter(projectId::equals).count();
+    }
+
+    private void awaitRollups(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (rollups.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(rollups.size() >= expected, "Expected " + expected + " rollups, got " + rollups);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private interface RollupBody {
+        void run(Long projectId);
+    }
+
+    // Runs the callback directly, there is no database
+    private static class DirectTransactionTemplate extends TransactionTemplate {
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            return action.doInTransaction(null);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ccc.okrtracker.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the per-project lock, without a database (advisory locks off).
+ * A "transaction" is simulated with a bare transaction synchronization.
+ */
+public class ProjectRollupLockTest {
+
+    private ProjectRollupLock lock;
+
+    @BeforeEach
+    public void setUp() {
+        lock = new ProjectRollupLock(null);
+        ReflectionTestUtils.setField(lock, "enabled", true);
+        ReflectionTestUtils.setField(lock, "advisory", false);
+        ReflectionTestUtils.setField(lock, "timeoutMs", 200L);
+    }
+
+    @Test
+    public void testDifferentProjectsDoNotBlockEachOther() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> inTransaction(() -> {
+            lock.lockForRollup(1L);
+            locked.countDown();
+            await(done);
+        }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        // Any other project ID, whatever its hash, is free while project 1 is held
+        for (long projectId = 2; projectId <= 200; projectId++) {
+            long id = projectId;
+            assertDoesNotThrow(() -> inTransaction(() -> lock.lockForRollup(id)), "Project " + id + " was blocked");
+        }
+        done.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSameProjectWaitsUntilCompletion() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> inTransaction(() -> {
+            lock.lockForRollup(1L);
+            lock.lockForRollup(1L); // Again in the same transaction: a no-op
+            locked.countDown();
+            await(done);
+        }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        assertThrows(IllegalStateException.class, () -> inTransaction(() -> lock.lockForRollup(1L)),
+                "A second transaction times out while the project is held");
+
+        done.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertDoesNotThrow(() -> inTransaction(() -> lock.lockForRollup(1L)), "Released at completion");
+    }
+
+    @Test
+    public void testRequiresTransaction() {
+        assertThrows(IllegalStateException.class, () -> lock.lockForRollup(1L));
+    }
+
+    // Runs the body on the current thread with transaction synchronization active, then completes it
+    private static void inTransaction(Runnable body) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            body.run();
+        } finally {
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
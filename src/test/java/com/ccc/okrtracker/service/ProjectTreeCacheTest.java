@@ -0,0 +1,157 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.dto.ProjectView;
+import com.ccc.okrtracker.dto.TreeCacheStats;
+import com.ccc.okrtracker.repository.HierarchyViewRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for the per-project JSON cache, with a mocked HierarchyViewRepository.
+ * Every project serializes to the same number of bytes, so the byte limit is a number of entries.
+ */
+public class ProjectTreeCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private HierarchyViewRepository viewRepository;
+    private ProjectTreeCache cache;
+    private int projectBytes;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        viewRepository = mock(HierarchyViewRepository.class);
+        when(viewRepository.findProjects(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(ProjectTreeCacheTest::view).toList();
+        });
+        projectBytes = objectMapper.writeValueAsBytes(view(1L)).length;
+
+        cache = new ProjectTreeCache(viewRepository, objectMapper);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxBytes", projectBytes * 2L + projectBytes / 2);
+    }
+
+    @Test
+    public void testSameVersionServedFromCache() {
+        String json = get(Map.of(1L, 1L));
+
+        assertEquals(json, get(Map.of(1L, 1L)));
+        verify(viewRepository, times(1)).findProjects(anyCollection());
+        TreeCacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+    }
+
+    @Test
+    public void testNewerVersionIsReloaded() {
+        get(Map.of(1L, 1L));
+        get(Map.of(1L, 2L));
+
+        verify(viewRepository, times(2)).findProjects(List.of(1L));
+        assertEquals(0, cache.getStats().getHits(), "A fragment of an older version is never served");
+        assertEquals(1, cache.getStats().getEntries(), "The newer version replaces the older one");
+    }
+
+    @Test
+    public void testOnlyMissingProjectsAreLoaded() {
+        get(Map.of(1L, 1L));
+
+        String json = get(ordered(1L, 2L));
+
+        verify(viewRepository).findProjects(List.of(2L));
+        assertEquals("[" + json(1L) + "," + json(2L) + "]", json, "Fragments are joined in the map's order");
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvictedAtByteLimit() {
+        get(Map.of(1L, 1L));
+        get(Map.of(2L, 1L));
+        get(Map.of(1L, 1L)); // 2 is now the least recently used
+        get(Map.of(3L, 1L));
+
+        TreeCacheStats stats = cache.getStats();
+        assertEquals(2, stats.getEntries());
+        assertEquals(1, stats.getEvictions());
+        assertTrue(stats.getBytes() <= stats.getMaxBytes(), "The cache stays within its byte limit");
+        assertEquals(2L * projectBytes, stats.getBytes());
+
+        clearInvocations(viewRepository);
+        get(ordered(1L, 3L));
+        verify(viewRepository, never()).findProjects(anyCollection());
+        get(Map.of(2L, 1L));
+        verify(viewRepository).findProjects(List.of(2L));
+    }
+
+    @Test
+    public void testFragmentOverLimitIsNotCached() {
+        ReflectionTestUtils.setField(cache, "maxBytes", projectBytes - 1L);
+
+        assertEquals("[" + json(1L) + "]", get(Map.of(1L, 1L)));
+        assertEquals(0, cache.getStats().getEntries());
+        assertEquals(0, cache.getStats().getBytes());
+    }
+
+    @Test
+    public void testEvictDropsEntry() {
+        get(Map.of(1L, 1L));
+
+        cache.evict(1L);
+        cache.evict(1L);
+
+        TreeCacheStats stats = cache.getStats();
+        assertEquals(0, stats.getEntries());
+        assertEquals(0, stats.getBytes());
+        assertEquals(1, stats.getInvalidations(), "Evicting a missing entry is not counted");
+        get(Map.of(1L, 1L));
+        verify(viewRepository, times(2)).findProjects(List.of(1L));
+    }
+
+    @Test
+    public void testDisabledCacheAlwaysLoads() {
+        ReflectionTestUtils.setField(cache, "enabled", false);
+
+        get(Map.of(1L, 1L));
+        get(Map.of(1L, 1L));
+
+        verify(viewRepository, times(2)).findProjects(List.of(1L));
+        assertEquals(0, cache.getStats().getEntries());
+    }
+
+    private String get(Map<Long, Long> versions) {
+        return new String(cache.getProjectsJson(versions), StandardCharsets.UTF_8);
+    }
+
+    private String json(Long projectId) {
+        try {
+            return objectMapper.writeValueAsString(view(projectId));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<Long, Long> ordered(Long... projectIds) {
+        Map<Long, Long> versions = new LinkedHashMap<>();
+        for (Long projectId : projectIds) {
+            versions.put(projectId, 1L);
+        }
+        return versions;
+    }
+
+    // Same length for every single-digit ID
+    private static ProjectView view(Long projectId) {
+        return new ProjectView(projectId, "Project " + projectId, null, 0, true, List.of());
+    }
+}
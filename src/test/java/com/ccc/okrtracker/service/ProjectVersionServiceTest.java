@@ -0,0 +1,114 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.repository.ProjectVersionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for the per-project tree versions, with mocked repository, lock and cache.
+ * A transaction is simulated with a bare transaction synchronization.
+ */
+public class ProjectVersionServiceTest {
+
+    private ProjectVersionRepository versionRepository;
+    private ProjectRollupLock rollupLock;
+    private ProjectTreeCache treeCache;
+    private ProjectVersionService versionService;
+
+    @BeforeEach
+    public void setUp() {
+        versionRepository = mock(ProjectVersionRepository.class);
+        rollupLock = mock(ProjectRollupLock.class);
+        treeCache = mock(ProjectTreeCache.class);
+        versionService = new ProjectVersionService(versionRepository, rollupLock, treeCache);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testIncrementedOncePerTransactionAndEvictedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        versionService.markChanged(1L);
+        versionService.markChanged(2L);
+        versionService.markChanged(1L);
+
+        verify(versionRepository, times(1)).increment(1L);
+        verify(versionRepository, times(1)).increment(2L);
+        verify(rollupLock, times(1)).lockForRollup(1L);
+        verify(treeCache, never()).evict(anyLong());
+
+        complete(true);
+
+        verify(treeCache, times(1)).evict(1L);
+        verify(treeCache, times(1)).evict(2L);
+    }
+
+    @Test
+    public void testRollbackKeepsCachedTree() {
+        TransactionSynchronizationManager.initSynchronization();
+        versionService.markChanged(1L);
+
+        complete(false);
+
+        verify(treeCache, never()).evict(anyLong());
+    }
+
+    @Test
+    public void testNextTransactionIncrementsAgain() {
+        TransactionSynchronizationManager.initSynchronization();
+        versionService.markChanged(1L);
+        complete(true);
+
+        TransactionSynchronizationManager.initSynchronization();
+        versionService.markChanged(1L);
+        complete(true);
+
+        verify(versionRepository, times(2)).increment(1L);
+        verify(treeCache, times(2)).evict(1L);
+    }
+
+    @Test
+    public void testOutsideTransactionEvictsImmediately() {
+        versionService.markChanged(1L);
+
+        verify(versionRepository).increment(1L);
+        verify(treeCache).evict(1L);
+    }
+
+    @Test
+    public void testETagFollowsVersionsAndVariant() {
+        String etag = versionService.etag(Map.of(1L, 1L), "projects");
+
+        assertTrue(etag.matches("W/\"[0-9a-f]{32}\""), "A weak ETag, so the container may gzip the body");
+        assertEquals(etag, versionService.etag(Map.of(1L, 1L), "projects"));
+        assertNotEquals(etag, versionService.etag(Map.of(1L, 2L), "projects"));
+        assertNotEquals(etag, versionService.etag(Map.of(1L, 1L, 2L, 1L), "projects"));
+        assertNotEquals(etag, versionService.etag(Map.of(1L, 1L), "tree:1"));
+    }
+
+    // Runs the hooks a transaction manager would run at commit or rollback, then ends the transaction
+    private static void complete(boolean commit) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (commit) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(commit
+                ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
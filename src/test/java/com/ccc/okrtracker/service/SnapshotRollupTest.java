@@ -0,0 +1,81 @@
+package com.ccc.okrtracker.service;
+
+import com.ccc.okrtracker.repository.HierarchySnapshot;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the primitive snapshot rollup.
+ * Verifies it applies the same rules as the entity-based recalculateProject.
+ */
+public class SnapshotRollupTest {
+
+    private static final double NONE = Double.NaN;
+
+    /**
+     * Builds: project -> initiative -> goal -> objective -> [kr1 (2 action items), kr2 (metrics), kr3 (manual)]
+     */
+    @Test
+    public void testRollupMatchesEntityRules() {
+        HierarchySnapshot.Builder b = HierarchySnapshot.builder();
+        int project = b.add(HierarchySnapshot.PROJECT, 1, -1, true, 0);
+        int init = b.add(HierarchySnapshot.INITIATIVE, 10, project, true, 0);
+        int goal = b.add(HierarchySnapshot.GOAL, 20, init, true, 0);
+        int obj = b.add(HierarchySnapshot.OBJECTIVE, 30, goal, true, 0);
+        int kr1 = b.add(HierarchySnapshot.KEY_RESULT, 40, obj, true, 0, false, 0.0, 10.0, 0.0);
+        int kr2 = b.add(HierarchySnapshot.KEY_RESULT, 41, obj, true, 0, false, 10.0, 110.0, 35.0);
+        b.add(HierarchySnapshot.KEY_RESULT, 42, obj, true, 90, true, NONE, NONE, NONE);
+        b.add(HierarchySnapshot.ACTION_ITEM, 50, kr1, true, 100);
+        b.add(HierarchySnapshot.ACTION_ITEM, 51, kr1, true, 0);
+        b.add(HierarchySnapshot.ACTION_ITEM, 52, kr1, false, 100); // inactive - ignored in the average
+
+        HierarchySnapshot snapshot = b.build();
+        CalculationService.rollupSnapshot(snapshot);
+
+        assertEquals(50, progressOf(snapshot, 40), "KR averages its active action items");
+        assertEquals(5.0, metricCurrentOf(snapshot, 40), 1e-9, "metricCurrent is back-filled from action items");
+        assertEquals(25, progressOf(snapshot, 41), "Metric KR uses (current - start) / (target - start)");
+        assertEquals(90, progressOf(snapshot, 42), "Manual KR keeps its progress");
+        assertEquals(55, progressOf(snapshot, 30), "Objective averages its KRs (50 + 25 + 90) / 3");
+        assertEquals(55, progressOf(snapshot, 20));
+        assertEquals(55, progressOf(snapshot, 10));
+        assertEquals(55, progressOf(snapshot, 1));
+    }
+
+    @Test
+    public void testInactiveSubtreeIsSkipped() {
+        HierarchySnapshot.Builder b = HierarchySnapshot.builder();
+        int project = b.add(HierarchySnapshot.PROJECT, 1, -1, true, 0);
+        int active = b.add(HierarchySnapshot.INITIATIVE, 10, project, true, 0);
+        int inactive = b.add(HierarchySnapshot.INITIATIVE, 11, project, false, 77);
+        int goal = b.add(HierarchySnapshot.GOAL, 20, active, true, 0);
+        b.add(HierarchySnapshot.GOAL, 21, inactive, true, 33);
+        b.add(HierarchySnapshot.OBJECTIVE, 30, goal, true, 0);
+
+        HierarchySnapshot snapshot = b.build();
+        CalculationService.rollupSnapshot(snapshot);
+
+        assertEquals(0, progressOf(snapshot, 1), "Project ignores the inactive initiative");
+        assertEquals(77, progressOf(snapshot, 11), "Inactive initiative keeps its stored progress");
+        assertEquals(33, progressOf(snapshot, 21), "Nodes under an inactive ancestor are not recalculated");
+        assertFalse(snapshot.progressChanged(slotOf(snapshot, 21)), "Unchanged nodes are not written back");
+    }
+
+    private static int slotOf(HierarchySnapshot snapshot, long id) {
+        for (int i = 0; i < snapshot.getSize(); i++) {
+            if (snapshot.getIds()[i] == id) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No node " + id);
+    }
+
+    private static int progressOf(HierarchySnapshot snapshot, long id) {
+        return snapshot.getProgress()[slotOf(snapshot, id)];
+    }
+
+    private static double metricCurrentOf(HierarchySnapshot snapshot, long id) {
+        return snapshot.getMetricCurrent()[slotOf(snapshot, id)];
+    }
+}